@@ -0,0 +1,58 @@
+package com.fintech.fintrust.authentication.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AnomalyScoringConfig {
+
+    @Bean(name = "anomalyScoringExecutor")
+    public ThreadPoolTaskExecutor anomalyScoringExecutor(
+            @Value("${anomaly.scoring.async.pool-size:16}") int poolSize,
+            @Value("${anomaly.scoring.async.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AnomalyScoring-");
+        // A saturated pool must not run scoring on the request thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "shadowScoringExecutor")
+    public ThreadPoolTaskExecutor shadowScoringExecutor(
+            @Value("${anomaly.shadow.pool-size:2}") int poolSize,
+            @Value("${anomaly.shadow.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ShadowScoring-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        // Shadow work is dropped, never run by or queued behind the request thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "behaviorRecordingExecutor")
+    public ThreadPoolTaskExecutor behaviorRecordingExecutor(
+            @Value("${anomaly.recording.pool-size:2}") int poolSize,
+            @Value("${anomaly.recording.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("BehaviorRecording-");
+        // Recording cached decisions must not add to a request's latency
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
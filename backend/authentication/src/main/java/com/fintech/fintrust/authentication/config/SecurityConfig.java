@@ -42,6 +42,16 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/anomaly/health").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
+                .requestMatchers("/api/anomaly/models/**").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/replay").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/behaviors/**").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/retention/**").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/cohorts/**").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/events/**").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/graph").hasRole("ADMIN")
+                .requestMatchers("/api/anomaly/drift").hasRole("ADMIN")
+                // Batches carry behaviors for arbitrary users and feed their baselines
+                .requestMatchers("/api/anomaly/detect/batch").hasAnyRole("ADMIN", "SERVICE")
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
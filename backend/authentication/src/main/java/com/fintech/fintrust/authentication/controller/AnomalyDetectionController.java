@@ -2,12 +2,27 @@ package com.fintech.fintrust.authentication.controller;
 
 import com.fintech.fintrust.authentication.model.*;
 import com.fintech.fintrust.authentication.service.AnomalyDetectionService;
+import com.fintech.fintrust.authentication.service.AnomalyEventStore;
+import com.fintech.fintrust.authentication.service.BatchAnomalyDetectionService;
+import com.fintech.fintrust.authentication.service.BehaviorBucketMigration;
+import com.fintech.fintrust.authentication.service.CohortBaselineService;
+import com.fintech.fintrust.authentication.service.DriftMonitor;
+import com.fintech.fintrust.authentication.service.IsolationForestService;
+import com.fintech.fintrust.authentication.service.ModelRegistry;
+import com.fintech.fintrust.authentication.service.ReplayService;
+import com.fintech.fintrust.authentication.service.RetentionService;
+import com.fintech.fintrust.authentication.service.ShadowScoringService;
+import com.fintech.fintrust.authentication.service.SharedInfrastructureGraph;
 import com.fintech.fintrust.authentication.service.SmartContractService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -21,7 +36,18 @@ import java.util.Map;
 public class AnomalyDetectionController {
     
     private final AnomalyDetectionService anomalyDetectionService;
+    private final BatchAnomalyDetectionService batchAnomalyDetectionService;
     private final SmartContractService smartContractService;
+    private final IsolationForestService isolationForestService;
+    private final ModelRegistry modelRegistry;
+    private final ShadowScoringService shadowScoringService;
+    private final AnomalyEventStore anomalyEventStore;
+    private final BehaviorBucketMigration behaviorBucketMigration;
+    private final RetentionService retentionService;
+    private final CohortBaselineService cohortBaselineService;
+    private final ReplayService replayService;
+    private final DriftMonitor driftMonitor;
+    private final SharedInfrastructureGraph sharedInfrastructureGraph;
     
     @PostMapping("/detect")
     public ResponseEntity<?> detectAnomaly(@RequestBody UserBehavior userBehavior, 
@@ -50,6 +76,25 @@ public class AnomalyDetectionController {
         }
     }
     
+    @PostMapping("/detect/batch")
+    public ResponseEntity<?> detectAnomalyBatch(@RequestBody List<UserBehavior> userBehaviors) {
+        if (userBehaviors.size() > batchAnomalyDetectionService.getMaxBatchSize()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Batch of " + userBehaviors.size() + " behaviors exceeds the limit of "
+                    + batchAnomalyDetectionService.getMaxBatchSize());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+        }
+        
+        log.info("Batch anomaly detection request for {} behaviors", userBehaviors.size());
+        StreamingResponseBody body = out -> batchAnomalyDetectionService.detect(userBehaviors, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @PostMapping("/smart-contract/execute")
     public ResponseEntity<?> executeSmartContract(@RequestBody Map<String, Object> request,
                                                 Authentication authentication) {
@@ -144,6 +189,255 @@ public class AnomalyDetectionController {
         }
     }
     
+    @GetMapping("/models")
+    public ResponseEntity<?> listModels() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("activeModel", modelRegistry.active().getVersion());
+        response.put("models", modelRegistry.list());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/models/shadow/report")
+    public ResponseEntity<?> shadowReport() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("report", shadowScoringService.report());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/models/shadow/reset")
+    public ResponseEntity<?> resetShadowReport() {
+        shadowScoringService.reset();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/models/{version}/activate")
+    public ResponseEntity<?> activateModel(@PathVariable String version) {
+        try {
+            log.info("Activating anomaly model: {}", version);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("activeModel", modelRegistry.activate(version));
+            response.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error activating anomaly model {}: {}", version, e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @PostMapping("/models/isolation-forest/train")
+    public ResponseEntity<?> trainIsolationForest() {
+        try {
+            log.info("Training isolation forest from stored user behaviors");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("training", isolationForestService.train());
+            response.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error training isolation forest: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @PostMapping("/replay")
+    public ResponseEntity<?> replay(@RequestBody(required = false) ReplayRequest request) {
+        try {
+            log.info("Replaying stored user behaviors");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("replay", replayService.replay(request != null ? request : new ReplayRequest()));
+            response.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error replaying user behaviors: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @PostMapping("/behaviors/migrate-to-buckets")
+    public ResponseEntity<?> migrateBehaviorsToBuckets() {
+        try {
+            log.info("Migrating stored user behaviors into buckets");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("migration", behaviorBucketMigration.migrate());
+            response.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error migrating user behaviors: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/retention/report")
+    public ResponseEntity<?> retentionReport() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("report", retentionService.lastReport());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/retention/run")
+    public ResponseEntity<?> runRetention() {
+        log.info("Running retention pass on request");
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("report", retentionService.run());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/drift")
+    public ResponseEntity<?> drift() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("drift", driftMonitor.report());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/graph")
+    public ResponseEntity<?> sharedInfrastructure(@RequestParam(defaultValue = "10") int rings) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("graph", sharedInfrastructureGraph.summary(rings));
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/cohorts")
+    public ResponseEntity<?> cohorts() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("cohorts", cohortBaselineService.summary());
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/cohorts/refresh")
+    public ResponseEntity<?> refreshCohorts() {
+        try {
+            log.info("Rebuilding cohort baselines on request");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("cohorts", cohortBaselineService.refresh());
+            response.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error rebuilding cohort baselines: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", LocalDateTime.now());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/events")
+    public ResponseEntity<?> anomaliesSince(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        LocalDateTime from = since != null ? since : LocalDateTime.now().minusHours(24);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("since", from);
+        response.put("anomalies", anomalyEventStore.findAnomaliesSince(from));
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/events/users/{userId}")
+    public ResponseEntity<?> userEvents(
+            @PathVariable String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("results", anomalyEventStore.findByUser(userId, start, end));
+        response.put("hourly", anomalyEventStore.hourlyCounts(userId, start, end));
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/events/summary")
+    public ResponseEntity<?> eventSummary(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("userId", userId);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("totals", anomalyEventStore.riskLevelTotals(userId, start, end));
+        response.put("timestamp", LocalDateTime.now());
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<?> healthCheck() {
         Map<String, Object> healthResponse = new HashMap<>();
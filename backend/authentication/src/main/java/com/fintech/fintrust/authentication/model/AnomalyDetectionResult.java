@@ -57,4 +57,5 @@ public class AnomalyDetectionResult {
     private String algorithmUsed;
     private Map<String, Object> modelParameters;
     private Double modelConfidence;
+    private Integer evaluationTier; // 0 session fingerprint, 1 baseline statistics, 2 full model
 } 
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's anomaly detection results for one hour (the bucket pattern).
+ * Counts per risk level and action are kept alongside the events, so range
+ * queries and dashboards read a few pre-aggregated documents instead of one
+ * document per request. Only the most recent {@link #MAX_EVENTS} events of
+ * the hour are kept; the counts cover all of them.
+ */
+@Document(collection = "anomaly_event_buckets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnomalyEventBucket {
+    public static final int MAX_EVENTS = 500;
+
+    @Id
+    private String id;
+    private String userId;
+    private LocalDateTime hourStart;
+    private long eventCount;
+    private long anomalyCount;
+    private double scoreSum;
+    private double maxScore;
+    private Map<String, Long> riskLevelCounts;
+    private Map<String, Long> actionCounts;
+    private List<Event> events;
+
+    public static String idOf(String userId, LocalDateTime hourStart) {
+        return userId + "|" + hourStart;
+    }
+
+    public static LocalDateTime hourOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    /** A result reduced to what is worth keeping, under short field names. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Event {
+        @Field("id")
+        private String resultId;
+        @Field("ts")
+        private LocalDateTime timestamp;
+        @Field("sid")
+        private String sessionId;
+        @Field("s")
+        private Double score;
+        @Field("an")
+        private Boolean anomaly;
+        @Field("rl")
+        private String riskLevel;
+        @Field("act")
+        private String action;
+        @Field("tier")
+        private Integer tier;
+        @Field("rf")
+        private List<String> riskFactors;
+        @Field("mv")
+        private String modelVersion;
+
+        public static Event of(AnomalyDetectionResult result) {
+            return Event.builder()
+                    .resultId(result.getId())
+                    .timestamp(result.getTimestamp())
+                    .sessionId(result.getSessionId())
+                    .score(result.getOverallAnomalyScore())
+                    .anomaly(result.getIsAnomaly())
+                    .riskLevel(result.getRiskLevel())
+                    .action(result.getRecommendedAction())
+                    .tier(result.getEvaluationTier())
+                    .riskFactors(result.getRiskFactors())
+                    .modelVersion(result.getModelVersion())
+                    .build();
+        }
+
+        public AnomalyDetectionResult toResult(String userId) {
+            return AnomalyDetectionResult.builder()
+                    .id(resultId)
+                    .userId(userId)
+                    .sessionId(sessionId)
+                    .timestamp(timestamp)
+                    .overallAnomalyScore(score)
+                    .isAnomaly(anomaly)
+                    .riskLevel(riskLevel)
+                    .recommendedAction(action)
+                    .evaluationTier(tier)
+                    .riskFactors(riskFactors)
+                    .modelVersion(modelVersion)
+                    .build();
+        }
+    }
+}
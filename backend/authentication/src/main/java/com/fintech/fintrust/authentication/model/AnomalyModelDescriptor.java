@@ -0,0 +1,132 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Versioned description of an anomaly scoring model, stored as a JSON file in
+ * the model directory. Thresholds and weights left out of the file fall back
+ * to the values of the original built-in model, heuristic-1.0. A descriptor
+ * that declares weights is scored with exactly those: features it leaves out
+ * weigh nothing, so a file written before a feature existed keeps its sum.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnomalyModelDescriptor {
+    public static final String ALGORITHM_WEIGHTED_DEVIATION = "weighted-deviation";
+    public static final String ALGORITHM_ISOLATION_FOREST = "isolation-forest";
+    public static final String ORIGINAL_BUILTIN_VERSION = "heuristic-1.0";
+    // heuristic-1.0 reweighted to make room for navigation
+    public static final String BUILTIN_VERSION = "heuristic-1.1";
+
+    private String version;
+    private String algorithm;
+    private String description;
+    // Binary model file relative to the model directory, for trained algorithms
+    private String artifact;
+    private Instant createdAt;
+
+    @Builder.Default
+    private Map<String, Double> weights = originalWeights();
+    @Builder.Default
+    private Thresholds thresholds = new Thresholds();
+
+    public static AnomalyModelDescriptor builtin() {
+        return AnomalyModelDescriptor.builder()
+                .version(BUILTIN_VERSION)
+                .algorithm(ALGORITHM_WEIGHTED_DEVIATION)
+                .description("Weighted relative deviation from the user's baseline, navigation included")
+                .weights(navigationWeights())
+                .build();
+    }
+
+    /** The built-in model as it was before navigation was scored, kept for deployments pinned to it. */
+    public static AnomalyModelDescriptor originalBuiltin() {
+        return AnomalyModelDescriptor.builder()
+                .version(ORIGINAL_BUILTIN_VERSION)
+                .algorithm(ALGORITHM_WEIGHTED_DEVIATION)
+                .description("Weighted relative deviation from the user's baseline")
+                // Sub-scores never exceed 1, so navigation raises no risk factor
+                .thresholds(Thresholds.builder().navigation(1.0).build())
+                .build();
+    }
+
+    public double weight(String feature) {
+        Map<String, Double> declared = weights != null ? weights : originalWeights();
+        return declared.getOrDefault(feature, 0.0);
+    }
+
+    private static Map<String, Double> originalWeights() {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        weights.put("typing", 0.25);
+        weights.put("touch", 0.20);
+        weights.put("location", 0.30);
+        weights.put("session", 0.15);
+        weights.put("device", 0.10);
+        return weights;
+    }
+
+    private static Map<String, Double> navigationWeights() {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        weights.put("typing", 0.25);
+        weights.put("touch", 0.20);
+        weights.put("location", 0.25);
+        weights.put("session", 0.10);
+        weights.put("device", 0.10);
+        weights.put("navigation", 0.10);
+        return weights;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Thresholds {
+        // Per-signal thresholds that raise a risk factor
+        @Builder.Default
+        private double typing = 0.7;
+        @Builder.Default
+        private double touch = 0.6;
+        @Builder.Default
+        private double location = 0.8;
+        @Builder.Default
+        private double session = 0.5;
+        @Builder.Default
+        private double device = 0.5;
+        @Builder.Default
+        private double navigation = 0.8;
+
+        // Distinct identifiers one user may show within a week before it becomes a risk factor
+        @Builder.Default
+        private long weeklyDevices = 5;
+        @Builder.Default
+        private long weeklyIpAddresses = 20;
+
+        // Accounts on one device or IP address (time-decayed), and accounts linked through them, before a risk factor
+        @Builder.Default
+        private double sharedDeviceAccounts = 5;
+        @Builder.Default
+        private double sharedIpAddressAccounts = 50;
+        @Builder.Default
+        private long linkedAccounts = 25;
+
+        // Overall score cut-offs
+        @Builder.Default
+        private double anomaly = 0.6;
+        @Builder.Default
+        private double medium = 0.5;
+        @Builder.Default
+        private double high = 0.7;
+        @Builder.Default
+        private double critical = 0.9;
+        @Builder.Default
+        private double reauthentication = 0.8;
+        @Builder.Default
+        private double smartContract = 0.9;
+    }
+}
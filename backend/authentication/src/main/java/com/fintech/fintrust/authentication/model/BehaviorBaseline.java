@@ -0,0 +1,124 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Running per-user behavioral statistics. Each new behavior is folded in with
+ * O(1) work, so scoring reads this single record instead of the user's history.
+ */
+@Document(collection = "behavior_baselines")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BehaviorBaseline {
+    // Identifiers per filter generation; each filter remembers up to two generations
+    public static final int DEVICE_FILTER_CAPACITY = 32;
+    public static final int IP_FILTER_CAPACITY = 128;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    @Id
+    private String userId;
+    @Version
+    private Long version;
+    private long sampleCount;
+
+    // Welford accumulators per FeatureSchema column
+    private FeatureStats features;
+    // Distribution of each scalar FeatureSchema column, for percentile scoring
+    private QuantileSketch[] quantiles;
+    private LocationClusters locations;
+    private TransitionMatrix navigation;
+
+    // Devices and IP addresses the user has used before, and how many distinct ones this week.
+    // Named apart from the old knownDevices list so legacy documents still map and get rebuilt.
+    private MembershipFilter deviceFilter;
+    private MembershipFilter ipAddressFilter;
+    private DistinctCounter weeklyDevices;
+    private DistinctCounter weeklyIpAddresses;
+    private LocalDateTime updatedAt;
+
+    public static BehaviorBaseline empty(String userId) {
+        return BehaviorBaseline.builder()
+                .userId(userId)
+                .features(FeatureStats.empty())
+                .quantiles(emptyQuantiles())
+                .locations(LocationClusters.empty())
+                .navigation(TransitionMatrix.empty())
+                .deviceFilter(MembershipFilter.forCapacity(DEVICE_FILTER_CAPACITY, FILTER_FALSE_POSITIVE_RATE))
+                .ipAddressFilter(MembershipFilter.forCapacity(IP_FILTER_CAPACITY, FILTER_FALSE_POSITIVE_RATE))
+                .weeklyDevices(DistinctCounter.weekly())
+                .weeklyIpAddresses(DistinctCounter.weekly())
+                .build();
+    }
+
+    public void record(UserBehavior behavior) {
+        record(behavior, FeatureSchema.extract(behavior));
+    }
+
+    /** Fold in a behavior whose raw feature vector has already been extracted. */
+    public void record(UserBehavior behavior, double[] rawFeatures) {
+        long epochMillis = LocationClusters.epochMillis(behavior.getTimestamp());
+        features.add(rawFeatures);
+        for (int f = 0; f < FeatureSchema.SCALAR_FEATURES; f++) {
+            quantiles[f].add(rawFeatures[f]);
+        }
+        double latitude = rawFeatures[FeatureSchema.LATITUDE];
+        if (latitude == latitude) {
+            locations.add(latitude, rawFeatures[FeatureSchema.LONGITUDE], epochMillis);
+        }
+        navigation.record(TransitionMatrix.endpointOf(behavior));
+        deviceFilter.add(behavior.getDeviceId());
+        ipAddressFilter.add(behavior.getIpAddress());
+        weeklyDevices.add(behavior.getDeviceId(), epochMillis);
+        weeklyIpAddresses.add(behavior.getIpAddress(), epochMillis);
+        sampleCount++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * A read-only view for scoring this user against a cohort: the cohort's
+     * feature distributions and usual places, with this user's own devices, IP
+     * addresses, navigation and last seen point. The view shares state with both
+     * baselines, so it must not be recorded into.
+     */
+    public BehaviorBaseline againstCohort(BehaviorBaseline cohort) {
+        return BehaviorBaseline.builder()
+                .userId(userId)
+                .sampleCount(cohort.sampleCount)
+                .features(cohort.features)
+                .quantiles(cohort.quantiles)
+                .locations(cohort.locations.withLastSeenOf(locations))
+                .navigation(navigation)
+                .deviceFilter(deviceFilter)
+                .ipAddressFilter(ipAddressFilter)
+                .weeklyDevices(weeklyDevices)
+                .weeklyIpAddresses(weeklyIpAddresses)
+                .updatedAt(cohort.updatedAt)
+                .build();
+    }
+
+    /** False for documents stored before one of the current statistics existed. */
+    public boolean hasCurrentLayout() {
+        return features != null && quantiles != null && locations != null && navigation != null
+                && deviceFilter != null;
+    }
+
+    public boolean isKnownDevice(String deviceId) {
+        return deviceFilter.mightContain(deviceId);
+    }
+
+    public boolean isKnownIpAddress(String ipAddress) {
+        return ipAddressFilter.mightContain(ipAddress);
+    }
+
+    private static QuantileSketch[] emptyQuantiles() {
+        QuantileSketch[] sketches = new QuantileSketch[FeatureSchema.SCALAR_FEATURES];
+        for (int f = 0; f < sketches.length; f++) sketches[f] = QuantileSketch.empty();
+        return sketches;
+    }
+}
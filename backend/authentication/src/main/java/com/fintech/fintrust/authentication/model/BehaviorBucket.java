@@ -0,0 +1,152 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Up to {@link #MAX_ENTRIES} consecutive behaviors of one user in a single
+ * document (the bucket pattern), as an alternative to one user_behaviors
+ * document per request. Entries keep only what scoring and training read,
+ * under short field names, with epoch-millis timestamps. A user's live writes
+ * fill one open bucket at a time, so the newest two buckets always hold at
+ * least the last {@code MAX_ENTRIES} behaviors.
+ */
+@Document(collection = "user_behavior_buckets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BehaviorBucket {
+    public static final int MAX_ENTRIES = 200;
+
+    @Id
+    private String id;
+    @Field("u")
+    private String userId;
+    // Epoch millis of the oldest and newest entry
+    @Field("s")
+    private long firstMillis;
+    @Field("e")
+    private long lastMillis;
+    @Field("n")
+    private int count;
+    // Closed buckets take no more appends; migrated history is written closed
+    @Field("c")
+    private boolean closed;
+    @Field("b")
+    private List<Entry> entries;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        // The behavior's id, so a replayed write can tell it is already stored
+        @Field("i")
+        private String behaviorId;
+        @Field("t")
+        private long timestampMillis;
+        @Field("dv")
+        private String deviceId;
+        @Field("dt")
+        private String deviceType;
+        @Field("dm")
+        private String deviceModel;
+        @Field("ip")
+        private String ipAddress;
+        @Field("ua")
+        private String userAgent;
+        @Field("la")
+        private Double latitude;
+        @Field("lo")
+        private Double longitude;
+        @Field("lh")
+        private String locationHash;
+        @Field("ts")
+        private Double typingSpeed;
+        @Field("tp")
+        private Double tapPressure;
+        @Field("sid")
+        private String sessionId;
+        @Field("sd")
+        private Long sessionDuration;
+        @Field("rc")
+        private Integer requestCount;
+        @Field("pg")
+        private String page;
+        @Field("ep")
+        private String endpoint;
+        @Field("m")
+        private String requestMethod;
+        @Field("at")
+        private String actionType;
+
+        public static Entry of(UserBehavior behavior) {
+            UserBehavior.TypingPattern typing = behavior.getTypingPattern();
+            UserBehavior.TouchPattern touch = behavior.getTouchPattern();
+            UserBehavior.SessionPattern session = behavior.getSessionPattern();
+            UserBehavior.NavigationPattern navigation = behavior.getNavigationPattern();
+            return Entry.builder()
+                    .behaviorId(behavior.getId())
+                    .timestampMillis(LocationClusters.epochMillis(behavior.getTimestamp()))
+                    .deviceId(behavior.getDeviceId())
+                    .deviceType(behavior.getDeviceType())
+                    .deviceModel(behavior.getDeviceModel())
+                    .ipAddress(behavior.getIpAddress())
+                    .userAgent(behavior.getUserAgent())
+                    .latitude(behavior.getLatitude())
+                    .longitude(behavior.getLongitude())
+                    .locationHash(behavior.getLocationHash())
+                    .typingSpeed(typing == null ? null : typing.getAverageTypingSpeed())
+                    .tapPressure(touch == null ? null : touch.getTapPressure())
+                    .sessionId(session == null ? null : session.getSessionId())
+                    .sessionDuration(session == null ? null : session.getSessionDuration())
+                    .requestCount(session == null ? null : session.getRequestCount())
+                    .page(navigation == null ? null : navigation.getCurrentPage())
+                    .endpoint(behavior.getEndpoint())
+                    .requestMethod(behavior.getRequestMethod())
+                    .actionType(behavior.getActionType())
+                    .build();
+        }
+
+        public UserBehavior toBehavior(String userId) {
+            return UserBehavior.builder()
+                    .id(behaviorId)
+                    .userId(userId)
+                    .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneId.systemDefault()))
+                    .deviceId(deviceId)
+                    .deviceType(deviceType)
+                    .deviceModel(deviceModel)
+                    .ipAddress(ipAddress)
+                    .userAgent(userAgent)
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .locationHash(locationHash)
+                    .typingPattern(typingSpeed == null ? null : UserBehavior.TypingPattern.builder()
+                            .averageTypingSpeed(typingSpeed)
+                            .build())
+                    .touchPattern(tapPressure == null ? null : UserBehavior.TouchPattern.builder()
+                            .tapPressure(tapPressure)
+                            .build())
+                    .sessionPattern(sessionId == null && sessionDuration == null ? null : UserBehavior.SessionPattern.builder()
+                            .sessionId(sessionId)
+                            .sessionDuration(sessionDuration)
+                            .requestCount(requestCount)
+                            .build())
+                    .navigationPattern(page == null ? null : UserBehavior.NavigationPattern.builder()
+                            .currentPage(page)
+                            .build())
+                    .endpoint(endpoint)
+                    .requestMethod(requestMethod)
+                    .actionType(actionType)
+                    .build();
+        }
+    }
+}
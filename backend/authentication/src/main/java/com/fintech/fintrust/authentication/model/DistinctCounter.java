@@ -0,0 +1,90 @@
+package com.fintech.fintrust.authentication.model;
+
+import com.fintech.fintrust.authentication.util.StableHash;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog estimate of how many distinct identifiers a user showed within
+ * the current fixed, epoch-aligned time window (a week by default). 256
+ * one-byte registers give about 6.5% standard error, and small counts, which
+ * are the ones velocity checks care about, are exact in practice thanks to the
+ * linear-counting correction. The registers reset when a new window starts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistinctCounter {
+    public static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final int PRECISION = 8;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private long windowMillis;
+    private long window;
+    private byte[] registers;
+
+    public static DistinctCounter weekly() {
+        return new DistinctCounter(WEEK_MILLIS, 0L, new byte[REGISTERS]);
+    }
+
+    public void add(String value, long epochMillis) {
+        if (value == null) return;
+        roll(epochMillis);
+        long hash = StableHash.hash64(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        byte rank = rank(hash);
+        if (rank > registers[index]) registers[index] = rank;
+    }
+
+    /** Distinct identifiers in the window containing {@code epochMillis}. */
+    public long estimate(long epochMillis) {
+        return estimateWith(null, epochMillis);
+    }
+
+    /** The estimate as if {@code value} had also been added, without changing the counter. */
+    public long estimateWith(String value, long epochMillis) {
+        boolean sameWindow = epochMillis / windowMillis == window;
+        int index = -1;
+        byte rank = 0;
+        if (value != null) {
+            long hash = StableHash.hash64(value);
+            index = (int) (hash >>> (64 - PRECISION));
+            rank = rank(hash);
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            int register = sameWindow ? registers[i] : 0;
+            if (i == index && rank > register) register = rank;
+            if (register == 0) zeros++;
+            sum += Math.scalb(1.0, -register);
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public DistinctCounter copy() {
+        return new DistinctCounter(windowMillis, window, registers.clone());
+    }
+
+    private void roll(long epochMillis) {
+        long now = epochMillis / windowMillis;
+        // A late event from an older window is counted in the current one rather than wiping it
+        if (now > window) {
+            window = now;
+            Arrays.fill(registers, (byte) 0);
+        }
+    }
+
+    private static byte rank(long hash) {
+        return (byte) (Long.numberOfLeadingZeros(hash << PRECISION | (1L << (PRECISION - 1))) + 1);
+    }
+}
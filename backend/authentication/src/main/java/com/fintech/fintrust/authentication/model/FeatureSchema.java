@@ -0,0 +1,48 @@
+package com.fintech.fintrust.authentication.model;
+
+/**
+ * Fixed layout of the raw behavioral signals used for scoring. A behavior is
+ * flattened once into a double[] of this width; missing signals are NaN.
+ */
+public final class FeatureSchema {
+    public static final int TYPING_SPEED = 0;
+    public static final int TAP_PRESSURE = 1;
+    public static final int SESSION_DURATION = 2;
+    public static final int LATITUDE = 3;
+    public static final int LONGITUDE = 4;
+    public static final int WIDTH = 5;
+    // Columns [0, SCALAR_FEATURES) are independent scalars; the rest is the location pair
+    public static final int SCALAR_FEATURES = 3;
+
+    private FeatureSchema() {
+    }
+
+    public static double[] extract(UserBehavior behavior) {
+        double[] features = new double[WIDTH];
+        extract(behavior, features);
+        return features;
+    }
+
+    public static void extract(UserBehavior behavior, double[] out) {
+        UserBehavior.TypingPattern typing = behavior.getTypingPattern();
+        out[TYPING_SPEED] = typing == null ? Double.NaN : value(typing.getAverageTypingSpeed());
+        UserBehavior.TouchPattern touch = behavior.getTouchPattern();
+        out[TAP_PRESSURE] = touch == null ? Double.NaN : value(touch.getTapPressure());
+        UserBehavior.SessionPattern session = behavior.getSessionPattern();
+        out[SESSION_DURATION] = session == null || session.getSessionDuration() == null
+                ? Double.NaN
+                : session.getSessionDuration().doubleValue();
+        // A location is only usable as a pair
+        if (behavior.getLatitude() != null && behavior.getLongitude() != null) {
+            out[LATITUDE] = behavior.getLatitude();
+            out[LONGITUDE] = behavior.getLongitude();
+        } else {
+            out[LATITUDE] = Double.NaN;
+            out[LONGITUDE] = Double.NaN;
+        }
+    }
+
+    private static double value(Double boxed) {
+        return boxed == null ? Double.NaN : boxed;
+    }
+}
@@ -0,0 +1,52 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Welford running statistics for every {@link FeatureSchema} column, held as
+ * parallel primitive arrays (structure of arrays) so scoring reads them in one
+ * pass without touching per-feature objects.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeatureStats {
+    private long[] count;
+    private double[] mean;
+    private double[] m2;
+
+    public static FeatureStats empty() {
+        return new FeatureStats(new long[FeatureSchema.WIDTH], new double[FeatureSchema.WIDTH],
+                new double[FeatureSchema.WIDTH]);
+    }
+
+    /** Fold one raw feature vector in; NaN entries are skipped per column. */
+    public void add(double[] features) {
+        for (int f = 0; f < FeatureSchema.WIDTH; f++) {
+            double value = features[f];
+            if (value != value) continue;
+            long n = ++count[f];
+            double delta = value - mean[f];
+            mean[f] += delta / n;
+            m2[f] += delta * (value - mean[f]);
+        }
+    }
+
+    public boolean hasSamples(int feature) {
+        return count[feature] > 0;
+    }
+
+    public double mean(int feature) {
+        return mean[feature];
+    }
+
+    public double variance(int feature) {
+        return count[feature] > 1 ? m2[feature] / (count[feature] - 1) : 0.0;
+    }
+
+    public FeatureStats copy() {
+        return new FeatureStats(count.clone(), mean.clone(), m2.clone());
+    }
+}
@@ -0,0 +1,171 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A user's usual locations as a handful of incrementally maintained clusters,
+ * keyed by the same ~1 km grid cells as {@code UserBehavior.locationHash}, plus
+ * the last point seen for the impossible-travel check. Distances use an
+ * equirectangular approximation with cos(latitude) precomputed per cluster, so
+ * comparing a point with every cluster needs no trigonometry. That is accurate
+ * to well under a percent at the tens-of-kilometers scale the location score
+ * cares about.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationClusters {
+    public static final int MAX_CLUSTERS = 8;
+    // Points this close to a cluster centroid are folded into it
+    public static final double CLUSTER_RADIUS_KM = 2.0;
+    // Faster than a commercial flight between two logins is not a real journey
+    public static final double MAX_TRAVEL_SPEED_KMH = 1000.0;
+    // Hops shorter than this are GPS or IP geolocation noise, whatever the speed
+    public static final double MIN_TRAVEL_DISTANCE_KM = 50.0;
+
+    private static final double KM_PER_DEGREE = 6371.0 * Math.PI / 180.0;
+    // Caps a cluster's weight so its centroid can still follow a slow move
+    private static final long MAX_WEIGHT = 1000;
+    private static final long MIN_TRAVEL_MILLIS = 60_000;
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private int size;
+    private long[] cells;
+    private double[] latitude;
+    private double[] longitude;
+    private double[] cosLatitude;
+    private long[] weight;
+
+    private boolean hasLastSeen;
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastSeenAt;
+
+    public static LocationClusters empty() {
+        return new LocationClusters(0, new long[MAX_CLUSTERS], new double[MAX_CLUSTERS], new double[MAX_CLUSTERS],
+                new double[MAX_CLUSTERS], new long[MAX_CLUSTERS], false, 0.0, 0.0, 0L);
+    }
+
+    /** Grid cell of a point, truncated to two decimals exactly like the filter's location hash. */
+    public static long cell(double latitude, double longitude) {
+        return ((long) (int) (latitude * 100) << 32) | ((int) (longitude * 100) & 0xFFFFFFFFL);
+    }
+
+    public static long epochMillis(LocalDateTime timestamp) {
+        return timestamp == null
+                ? System.currentTimeMillis()
+                : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** Distance in kilometers to the closest known cluster, or NaN when there is none. */
+    public double nearestKm(double lat, double lon) {
+        if (size == 0) return Double.NaN;
+        return Math.sqrt(squaredDegrees(nearest(lat, lon, cell(lat, lon)), lat, lon)) * KM_PER_DEGREE;
+    }
+
+    /**
+     * Ground speed in km/h needed to get from the last seen point to this one, or
+     * 0 when there is no previous point or the hop is too short to mean anything.
+     */
+    public double travelSpeedKmh(double lat, double lon, long epochMillis) {
+        if (!hasLastSeen) return 0.0;
+        double cosLat = Math.cos(Math.toRadians((lat + lastLatitude) / 2));
+        double dy = lat - lastLatitude;
+        double dx = longitudeDelta(lon, lastLongitude) * cosLat;
+        double km = Math.sqrt(dx * dx + dy * dy) * KM_PER_DEGREE;
+        if (km < MIN_TRAVEL_DISTANCE_KM) return 0.0;
+        // Clock skew or same-instant logins from two places count as a minute apart
+        long elapsed = Math.max(epochMillis - lastSeenAt, MIN_TRAVEL_MILLIS);
+        return km / (elapsed / MILLIS_PER_HOUR);
+    }
+
+    public static boolean isImpossibleTravel(double speedKmh) {
+        return speedKmh > MAX_TRAVEL_SPEED_KMH;
+    }
+
+    /** Fold a point into its cluster, opening a new one (evicting the lightest) when none is close. */
+    public void add(double lat, double lon, long epochMillis) {
+        long key = cell(lat, lon);
+        int target = size == 0 ? -1 : nearest(lat, lon, key);
+        boolean merge = target >= 0 && (cells[target] == key
+                || squaredDegrees(target, lat, lon) <= sq(CLUSTER_RADIUS_KM / KM_PER_DEGREE));
+        if (merge) {
+            long w = Math.min(weight[target] + 1, MAX_WEIGHT);
+            weight[target] = w;
+            latitude[target] += (lat - latitude[target]) / w;
+            longitude[target] += longitudeDelta(lon, longitude[target]) / w;
+            cosLatitude[target] = Math.cos(Math.toRadians(latitude[target]));
+            cells[target] = cell(latitude[target], longitude[target]);
+        } else {
+            int slot = size < MAX_CLUSTERS ? size++ : lightest();
+            cells[slot] = key;
+            latitude[slot] = lat;
+            longitude[slot] = lon;
+            cosLatitude[slot] = Math.cos(Math.toRadians(lat));
+            weight[slot] = 1;
+        }
+        if (!hasLastSeen || epochMillis >= lastSeenAt) {
+            hasLastSeen = true;
+            lastLatitude = lat;
+            lastLongitude = lon;
+            lastSeenAt = epochMillis;
+        }
+    }
+
+    /** These clusters with another instance's last seen point, sharing the cluster arrays. */
+    public LocationClusters withLastSeenOf(LocationClusters other) {
+        return new LocationClusters(size, cells, latitude, longitude, cosLatitude, weight,
+                other.hasLastSeen, other.lastLatitude, other.lastLongitude, other.lastSeenAt);
+    }
+
+    public LocationClusters copy() {
+        return new LocationClusters(size, cells.clone(), latitude.clone(), longitude.clone(), cosLatitude.clone(),
+                weight.clone(), hasLastSeen, lastLatitude, lastLongitude, lastSeenAt);
+    }
+
+    private int nearest(double lat, double lon, long key) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            // Same grid cell is as close as it gets, no need to look further
+            if (cells[i] == key) return i;
+            double d = squaredDegrees(i, lat, lon);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int lightest() {
+        int lightest = 0;
+        for (int i = 1; i < size; i++) {
+            if (weight[i] < weight[lightest]) lightest = i;
+        }
+        return lightest;
+    }
+
+    private double squaredDegrees(int cluster, double lat, double lon) {
+        double dy = lat - latitude[cluster];
+        double dx = longitudeDelta(lon, longitude[cluster]) * cosLatitude[cluster];
+        return dx * dx + dy * dy;
+    }
+
+    private static double longitudeDelta(double lon, double from) {
+        double delta = lon - from;
+        // Take the short way round across the antimeridian
+        if (delta > 180) return delta - 360;
+        if (delta < -180) return delta + 360;
+        return delta;
+    }
+
+    private static double sq(double value) {
+        return value * value;
+    }
+}
@@ -0,0 +1,79 @@
+package com.fintech.fintrust.authentication.model;
+
+import com.fintech.fintrust.authentication.util.StableHash;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fixed-size Bloom filter answering "has this user used this identifier
+ * before" in constant time and memory. It keeps two generations: once the
+ * current one holds {@code capacity} identifiers it becomes the previous one
+ * and a fresh one starts, so the false-positive rate stays bounded and
+ * identifiers not seen for two generations are eventually forgotten.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipFilter {
+    private int capacity;
+    private int hashes;
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+    private long inserted;
+
+    /** A filter sized for {@code capacity} identifiers per generation at the given false-positive rate. */
+    public static MembershipFilter forCapacity(int capacity, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        int bits = (int) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (bits + 63) >>> 6;
+        int hashes = Math.max(1, (int) Math.round((double) words * 64 / capacity * ln2));
+        return new MembershipFilter(capacity, hashes, new long[words], new long[words], 0, 0L);
+    }
+
+    public boolean isEmpty() {
+        return inserted == 0;
+    }
+
+    public boolean mightContain(String value) {
+        if (value == null) return false;
+        long hash = StableHash.hash64(value);
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    public void add(String value) {
+        if (value == null) return;
+        long hash = StableHash.hash64(value);
+        // Identifiers only in the previous generation are carried forward
+        if (contains(current, hash)) return;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int bits = current.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            current[bit >>> 6] |= 1L << bit;
+        }
+        inserted++;
+        if (++currentCount >= capacity) {
+            previous = current;
+            current = new long[previous.length];
+            currentCount = 0;
+        }
+    }
+
+    public MembershipFilter copy() {
+        return new MembershipFilter(capacity, hashes, current.clone(), previous.clone(), currentCount, inserted);
+    }
+
+    private boolean contains(long[] words, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int bits = words.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fixed-size merging t-digest of one feature's values for one user. New
+ * values go to a small buffer that is folded into at most
+ * {@link #MAX_CENTROIDS} centroids when it fills. Centroids are kept small
+ * near the tails, where percentile scoring needs the precision. The CDF is
+ * read without folding the buffer in, so scoring never mutates the sketch.
+ * Two sketches of the same feature merge into one, e.g. baselines kept on
+ * different nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantileSketch {
+    public static final int MAX_CENTROIDS = 32;
+    // Below this many values a percentile says little about the user
+    public static final long MIN_SAMPLES = 20;
+
+    private static final int BUFFER = 16;
+    // k1 scale compression; keeps the digest comfortably under MAX_CENTROIDS
+    private static final double COMPRESSION = 40;
+
+    private long count;
+    private double min;
+    private double max;
+    private int centroids;
+    private double[] means;
+    private double[] weights;
+    private int buffered;
+    private double[] buffer;
+
+    public static QuantileSketch empty() {
+        return new QuantileSketch(0, Double.NaN, Double.NaN, 0, new double[MAX_CENTROIDS],
+                new double[MAX_CENTROIDS], 0, new double[BUFFER]);
+    }
+
+    public void add(double value) {
+        if (value != value) return;
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        buffer[buffered++] = value;
+        if (buffered == BUFFER) compress(null);
+    }
+
+    /** Fold another sketch of the same feature into this one. */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) return;
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        compress(other);
+    }
+
+    /**
+     * Fraction of the user's values below {@code value}, counting values equal
+     * to it half, or NaN when there are none.
+     */
+    public double cdf(double value) {
+        if (count == 0) return Double.NaN;
+        if (value < min) return 0.0;
+        if (value > max) return 1.0;
+        if (min == max) return 0.5;
+        // The extremes are where a constant or capped feature piles up
+        if (value == max) return 1.0 - tiedWeight(value) / (2.0 * count);
+        if (value == min) return tiedWeight(value) / (2.0 * count);
+
+        double below = 0;
+        for (int i = 0; i < buffered; i++) {
+            if (buffer[i] < value) below += 1;
+            else if (buffer[i] == value) below += 0.5;
+        }
+        if (centroids > 0) below += digestBelow(value);
+        return below / count;
+    }
+
+    /**
+     * How unusual {@code value} is for this user, in [0, 1]: 0 at the median, 0.5
+     * for a value as or more extreme than 10% of the user's own values (two-sided),
+     * 1 for 1% or rarer. NaN when the sketch is too small to say.
+     */
+    public double tailScore(double value) {
+        if (value != value || count < MIN_SAMPLES) return Double.NaN;
+        // A feature the user always reports the same way says nothing about them
+        if (min == max) return 0.0;
+        double p = cdf(value);
+        double twoSided = 2 * Math.min(p, 1 - p);
+        if (twoSided <= 0) return 1.0;
+        return Math.min(1.0, -Math.log10(twoSided) / 2);
+    }
+
+    /**
+     * Like {@link #tailScore}, but only values above the user's median count:
+     * for features that grow over time, such as elapsed session time, where
+     * being low says nothing.
+     */
+    public double upperTailScore(double value) {
+        if (value != value || count < MIN_SAMPLES) return Double.NaN;
+        return cdf(value) <= 0.5 ? 0.0 : tailScore(value);
+    }
+
+    public QuantileSketch copy() {
+        return new QuantileSketch(count, min, max, centroids, means.clone(), weights.clone(), buffered, buffer.clone());
+    }
+
+    /** Values recorded exactly at {@code value}; at least one, as only min and max are asked for. */
+    private double tiedWeight(double value) {
+        double tied = 0;
+        for (int i = 0; i < buffered; i++) {
+            if (buffer[i] == value) tied += 1;
+        }
+        for (int i = 0; i < centroids; i++) {
+            if (means[i] == value) tied += weights[i];
+        }
+        return Math.max(tied, 1.0);
+    }
+
+    private double digestBelow(double value) {
+        // Each centroid's weight is spread evenly around its mean
+        double cumulative = 0;
+        double previousMean = min;
+        double previousCumulative = 0;
+        for (int i = 0; i < centroids; i++) {
+            if (means[i] == value) {
+                // Centroids of equal values count half, like ties in the buffer
+                double tied = 0;
+                for (int j = i; j < centroids && means[j] == value; j++) tied += weights[j];
+                return cumulative + tied / 2;
+            }
+            double center = cumulative + weights[i] / 2;
+            if (value < means[i]) {
+                return interpolate(value, previousMean, previousCumulative, means[i], center);
+            }
+            cumulative += weights[i];
+            previousMean = means[i];
+            previousCumulative = center;
+        }
+        return interpolate(value, previousMean, previousCumulative, max, cumulative);
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        if (x1 <= x0) return y1;
+        return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    /** Sort centroids, buffer and the other sketch's contents together and merge neighbours under the k1 limit. */
+    private void compress(QuantileSketch other) {
+        int otherSize = other == null ? 0 : other.centroids + other.buffered;
+        int n = centroids + buffered + otherSize;
+        double[] itemMeans = new double[n];
+        double[] itemWeights = new double[n];
+        int k = 0;
+        for (int i = 0; i < centroids; i++, k++) {
+            itemMeans[k] = means[i];
+            itemWeights[k] = weights[i];
+        }
+        for (int i = 0; i < buffered; i++, k++) {
+            itemMeans[k] = buffer[i];
+            itemWeights[k] = 1;
+        }
+        if (other != null) {
+            for (int i = 0; i < other.centroids; i++, k++) {
+                itemMeans[k] = other.means[i];
+                itemWeights[k] = other.weights[i];
+            }
+            for (int i = 0; i < other.buffered; i++, k++) {
+                itemMeans[k] = other.buffer[i];
+                itemWeights[k] = 1;
+            }
+        }
+        sortByMean(itemMeans, itemWeights);
+
+        double total = 0;
+        for (double weight : itemWeights) total += weight;
+        centroids = 0;
+        buffered = 0;
+        double mergedWeight = itemWeights[0];
+        double mergedMean = itemMeans[0];
+        double weightBefore = 0;
+        double kBefore = scale(0);
+        for (int i = 1; i < n; i++) {
+            double proposed = mergedWeight + itemWeights[i];
+            if (scale((weightBefore + proposed) / total) - kBefore <= 1 || centroids == MAX_CENTROIDS - 1) {
+                mergedMean += (itemMeans[i] - mergedMean) * itemWeights[i] / proposed;
+                mergedWeight = proposed;
+            } else {
+                means[centroids] = mergedMean;
+                weights[centroids++] = mergedWeight;
+                weightBefore += mergedWeight;
+                kBefore = scale(weightBefore / total);
+                mergedMean = itemMeans[i];
+                mergedWeight = itemWeights[i];
+            }
+        }
+        means[centroids] = mergedMean;
+        weights[centroids++] = mergedWeight;
+    }
+
+    private static double scale(double q) {
+        return COMPRESSION / (2 * Math.PI) * Math.asin(2 * Math.min(q, 1.0) - 1);
+    }
+
+    // Insertion sort: the centroids are already sorted and the rest is small
+    private static void sortByMean(double[] itemMeans, double[] itemWeights) {
+        for (int i = 1; i < itemMeans.length; i++) {
+            double mean = itemMeans[i];
+            double weight = itemWeights[i];
+            int j = i - 1;
+            while (j >= 0 && itemMeans[j] > mean) {
+                itemMeans[j + 1] = itemMeans[j];
+                itemWeights[j + 1] = itemWeights[j];
+                j--;
+            }
+            itemMeans[j + 1] = mean;
+            itemWeights[j + 1] = weight;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** What to replay stored behaviors with; every field is optional. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayRequest {
+    // Model version to score with; the active model when empty
+    private String model;
+    // Replaces the model's thresholds when set
+    private AnomalyModelDescriptor.Thresholds thresholds;
+    // Only behaviors in [from, to) are scored; earlier ones still build the user's baseline
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Users are split into this many partitions, replayed in parallel
+    private Integer partitions;
+}
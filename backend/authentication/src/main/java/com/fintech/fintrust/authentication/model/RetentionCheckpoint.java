@@ -0,0 +1,22 @@
+package com.fintech.fintrust.authentication.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Where a retention purge task stopped, so an interrupted or time-boxed run
+ * continues from there instead of rescanning.
+ */
+@Document(collection = "retention_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RetentionCheckpoint {
+    @Id
+    private String task;
+    private String lastId;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,179 @@
+package com.fintech.fintrust.authentication.model;
+
+import com.fintech.fintrust.authentication.util.EndpointInterner;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * A user's endpoint-to-endpoint transition frequencies as a sparse matrix in
+ * open-addressed primitive arrays: one table of edges keyed by (from, to) and
+ * one of row totals keyed by from. Weights decay exponentially per recorded
+ * transition so old habits fade. The decay is applied lazily by growing the
+ * increment instead of touching every entry. Memory is bounded: when the edge
+ * table fills, only the heavier half of the edges is kept.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionMatrix {
+    public static final int MAX_EDGES = 64;
+    // A transition's weight halves after this many further transitions
+    public static final int HALF_LIFE = 200;
+
+    private static final int SLOTS = 2 * MAX_EDGES;
+    private static final long EMPTY_EDGE = -1L;
+    private static final int EMPTY_ROW = -1;
+    private static final double GROWTH = Math.pow(2.0, 1.0 / HALF_LIFE);
+    private static final double RESCALE_AT = 1e150;
+    // A row needs this much (decayed) history before its transitions say anything
+    private static final double MIN_ROW_WEIGHT = 5.0;
+    // Additive smoothing over an assumed vocabulary of endpoints
+    private static final double SMOOTHING = 0.1;
+    private static final double VOCABULARY = 64;
+
+    private int lastEndpoint;
+    private double increment;
+    private int edgeCount;
+    private long[] edgeKeys;
+    private double[] edgeWeights;
+    private int[] rowKeys;
+    private double[] rowWeights;
+
+    public static TransitionMatrix empty() {
+        long[] edgeKeys = new long[SLOTS];
+        int[] rowKeys = new int[SLOTS];
+        Arrays.fill(edgeKeys, EMPTY_EDGE);
+        Arrays.fill(rowKeys, EMPTY_ROW);
+        return new TransitionMatrix(-1, 1.0, 0, edgeKeys, new double[SLOTS], rowKeys, new double[SLOTS]);
+    }
+
+    /** Interned endpoint of a behavior: the page it reports, or else the request path. */
+    public static int endpointOf(UserBehavior behavior) {
+        UserBehavior.NavigationPattern navigation = behavior.getNavigationPattern();
+        String page = navigation != null && navigation.getCurrentPage() != null
+                ? navigation.getCurrentPage()
+                : behavior.getEndpoint();
+        return EndpointInterner.id(behavior.getRequestMethod(), page);
+    }
+
+    /**
+     * Surprise, in bits, of moving from the last recorded endpoint to {@code to};
+     * NaN when there is no previous endpoint or too little history from it.
+     */
+    public double surpriseBits(int to) {
+        if (lastEndpoint < 0 || to < 0) return Double.NaN;
+        int row = findRow(lastEndpoint);
+        double rowWeight = rowKeys[row] == EMPTY_ROW ? 0.0 : rowWeights[row] / increment;
+        if (rowWeight < MIN_ROW_WEIGHT) return Double.NaN;
+        int edge = findEdge(key(lastEndpoint, to));
+        double edgeWeight = edgeKeys[edge] == EMPTY_EDGE ? 0.0 : edgeWeights[edge] / increment;
+        double probability = (edgeWeight + SMOOTHING) / (rowWeight + SMOOTHING * VOCABULARY);
+        return -Math.log(probability) / Math.log(2);
+    }
+
+    /** Record a visit to {@code endpoint}, counting the transition from the previous one. */
+    public void record(int endpoint) {
+        if (endpoint < 0) return;
+        if (lastEndpoint >= 0) addTransition(lastEndpoint, endpoint);
+        lastEndpoint = endpoint;
+    }
+
+    public TransitionMatrix copy() {
+        return new TransitionMatrix(lastEndpoint, increment, edgeCount, edgeKeys.clone(), edgeWeights.clone(),
+                rowKeys.clone(), rowWeights.clone());
+    }
+
+    private void addTransition(int from, int to) {
+        increment *= GROWTH;
+        if (increment > RESCALE_AT) rescale();
+        long key = key(from, to);
+        int edge = findEdge(key);
+        if (edgeKeys[edge] == EMPTY_EDGE) {
+            if (edgeCount >= MAX_EDGES) {
+                prune();
+                edge = findEdge(key);
+            }
+            edgeKeys[edge] = key;
+            edgeCount++;
+        }
+        edgeWeights[edge] += increment;
+        int row = findRow(from);
+        rowKeys[row] = from;
+        rowWeights[row] += increment;
+    }
+
+    /** Keep the heavier half of the edges, and the rows they leave from. */
+    private void prune() {
+        Integer[] order = new Integer[SLOTS];
+        for (int i = 0; i < SLOTS; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(edgeWeights[b], edgeWeights[a]));
+
+        long[] oldEdgeKeys = edgeKeys;
+        double[] oldEdgeWeights = edgeWeights;
+        int[] oldRowKeys = rowKeys;
+        double[] oldRowWeights = rowWeights;
+        TransitionMatrix kept = empty();
+        edgeKeys = kept.edgeKeys;
+        edgeWeights = kept.edgeWeights;
+        rowKeys = kept.rowKeys;
+        rowWeights = kept.rowWeights;
+        edgeCount = 0;
+
+        for (int i = 0; i < SLOTS && edgeCount < MAX_EDGES / 2; i++) {
+            int slot = order[i];
+            if (oldEdgeKeys[slot] == EMPTY_EDGE) continue;
+            int edge = findEdge(oldEdgeKeys[slot]);
+            edgeKeys[edge] = oldEdgeKeys[slot];
+            edgeWeights[edge] = oldEdgeWeights[slot];
+            edgeCount++;
+        }
+        // Row totals keep the mass of dropped edges so kept probabilities are not inflated
+        for (int i = 0; i < SLOTS; i++) {
+            int from = oldRowKeys[i];
+            if (from == EMPTY_ROW || !hasEdgeFrom(from)) continue;
+            int row = findRow(from);
+            rowKeys[row] = from;
+            rowWeights[row] = oldRowWeights[i];
+        }
+    }
+
+    private boolean hasEdgeFrom(int from) {
+        for (long key : edgeKeys) {
+            if (key != EMPTY_EDGE && (int) (key >>> 32) == from) return true;
+        }
+        return false;
+    }
+
+    private void rescale() {
+        for (int i = 0; i < SLOTS; i++) {
+            edgeWeights[i] /= increment;
+            rowWeights[i] /= increment;
+        }
+        increment = 1.0;
+    }
+
+    // Linear probing; the tables are never more than half full, so probes stay short
+    private int findEdge(long key) {
+        int slot = mix((int) (key ^ (key >>> 32)));
+        while (edgeKeys[slot] != EMPTY_EDGE && edgeKeys[slot] != key) slot = (slot + 1) & (SLOTS - 1);
+        return slot;
+    }
+
+    private int findRow(int from) {
+        int slot = mix(from);
+        while (rowKeys[slot] != EMPTY_ROW && rowKeys[slot] != from) slot = (slot + 1) & (SLOTS - 1);
+        return slot;
+    }
+
+    private static int mix(int hash) {
+        return (hash * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(SLOTS));
+    }
+
+    private static long key(int from, int to) {
+        // Endpoint IDs are non-negative, so no key collides with EMPTY_EDGE
+        return ((long) from << 32) | to;
+    }
+}
@@ -2,17 +2,37 @@ package com.fintech.fintrust.authentication.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 @Document(collection = "user_behaviors")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_time", def = "{'userId': 1, 'timestamp': -1}"),
+        @CompoundIndex(name = "user_device", def = "{'userId': 1, 'deviceId': 1}"),
+        @CompoundIndex(name = "user_ip", def = "{'userId': 1, 'ipAddress': 1}"),
+        // Cohort sampling: recent behaviors of one device type
+        @CompoundIndex(name = "device_time", def = "{'deviceType': 1, 'timestamp': -1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class UserBehavior {
+    /**
+     * Projection of the fields scoring and model training read, the same set a
+     * behavior bucket entry keeps. Behaviors read through it come back partially
+     * filled: no risk, context or compliance data, and only those pattern fields.
+     */
+    public static final String SCORING_FIELDS = "{'userId': 1, 'timestamp': 1, 'deviceId': 1, 'deviceType': 1, "
+            + "'deviceModel': 1, 'ipAddress': 1, 'userAgent': 1, 'latitude': 1, 'longitude': 1, 'locationHash': 1, "
+            + "'typingPattern.averageTypingSpeed': 1, 'touchPattern.tapPressure': 1, 'sessionPattern.sessionId': 1, "
+            + "'sessionPattern.sessionDuration': 1, 'sessionPattern.requestCount': 1, "
+            + "'navigationPattern.currentPage': 1, 'endpoint': 1, 'requestMethod': 1, 'actionType': 1}";
+
     @Id
     private String id;
     private String userId;
@@ -0,0 +1,24 @@
+package com.fintech.fintrust.authentication.repository;
+
+import com.fintech.fintrust.authentication.model.AnomalyEventBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnomalyEventBucketRepository extends MongoRepository<AnomalyEventBucket, String> {
+    
+    // Served by the partial hourStart index, which only holds buckets with anomalies
+    @Query("{'hourStart': {$gte: ?0}, 'anomalyCount': {$gt: 0}}")
+    List<AnomalyEventBucket> findWithAnomaliesSince(LocalDateTime since);
+    
+    @Query(value = "{'userId': ?0, 'hourStart': {$gte: ?1, $lt: ?2}}", sort = "{'hourStart': -1}")
+    List<AnomalyEventBucket> findByUserIdAndHourRange(String userId, LocalDateTime from, LocalDateTime to);
+    
+    // Counts only; the embedded events are not read
+    @Query(value = "{'userId': ?0, 'hourStart': {$gte: ?1, $lt: ?2}}", fields = "{'events': 0}", sort = "{'hourStart': 1}")
+    List<AnomalyEventBucket> findCountsByUserIdAndHourRange(String userId, LocalDateTime from, LocalDateTime to);
+}
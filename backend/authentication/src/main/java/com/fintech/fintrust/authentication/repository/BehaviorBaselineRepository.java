@@ -0,0 +1,9 @@
+package com.fintech.fintrust.authentication.repository;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BehaviorBaselineRepository extends MongoRepository<BehaviorBaseline, String> {
+}
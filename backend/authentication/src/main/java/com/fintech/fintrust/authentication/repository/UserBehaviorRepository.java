@@ -1,6 +1,7 @@
 package com.fintech.fintrust.authentication.repository;
 
 import com.fintech.fintrust.authentication.model.UserBehavior;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -13,6 +14,12 @@ public interface UserBehaviorRepository extends MongoRepository<UserBehavior, St
     
     List<UserBehavior> findByUserIdOrderByTimestampDesc(String userId);
     
+    List<UserBehavior> findTop100ByUserIdOrderByTimestampDesc(String userId);
+    
+    // Newest first with only the scoring fields; the user_time index serves the filter and sort
+    @Query(value = "{'userId': ?0}", sort = "{'timestamp': -1}", fields = UserBehavior.SCORING_FIELDS)
+    List<UserBehavior> findScoringFieldsByUserId(String userId, Pageable pageable);
+    
     List<UserBehavior> findByUserIdAndTimestampBetweenOrderByTimestampDesc(
             String userId, LocalDateTime startTime, LocalDateTime endTime);
     
@@ -22,9 +29,6 @@ public interface UserBehaviorRepository extends MongoRepository<UserBehavior, St
     @Query("{'userId': ?0, 'riskLevel': ?1}")
     List<UserBehavior> findByUserIdAndRiskLevel(String userId, String riskLevel);
     
-    @Query("{'timestamp': {$gte: ?0}, 'isAnomaly': true}")
-    List<UserBehavior> findAnomaliesSince(LocalDateTime since);
-    
     @Query("{'userId': ?0, 'deviceId': ?1}")
     List<UserBehavior> findByUserIdAndDeviceId(String userId, String deviceId);
     
@@ -2,9 +2,14 @@ package com.fintech.fintrust.authentication.security;
 
 import com.fintech.fintrust.authentication.model.AnomalyDetectionResult;
 import com.fintech.fintrust.authentication.model.UserBehavior;
-import com.fintech.fintrust.authentication.service.AnomalyDetectionService;
+import com.fintech.fintrust.authentication.service.AnomalyFastPath;
+import com.fintech.fintrust.authentication.service.AsyncAnomalyScoringService;
+import com.fintech.fintrust.authentication.service.AsyncAnomalyScoringService.ScoringOutcome;
+import com.fintech.fintrust.authentication.service.CachedDecisionRecorder;
+import com.fintech.fintrust.authentication.service.RetentionService;
 import com.fintech.fintrust.authentication.service.SmartContractService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,9 +36,15 @@ import java.util.UUID;
 public class AnomalyDetectionFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
-    private final AnomalyDetectionService anomalyDetectionService;
+    private final PrincipalResolver principalResolver;
+    private final AsyncAnomalyScoringService anomalyScoringService;
+    private final SessionRevocationService revocationService;
+    private final SessionTracker sessionTracker;
     private final SmartContractService smartContractService;
+    private final SessionDecisionCache decisionCache;
+    private final AnomalyFastPath fastPath;
+    private final CachedDecisionRecorder cachedDecisionRecorder;
+    private final RetentionService retentionService;
     private final ObjectMapper objectMapper;
     
     @Override
@@ -52,14 +63,46 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
             final String username = jwtService.extractUsernameFromAccessToken(jwt);
             
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                Claims claims = jwtService.extractAccessTokenClaims(jwt);
+                UserDetails userDetails = principalResolver.resolve(claims);
                 
                 if (jwtService.validateAccessToken(jwt)) {
+                    // Sessions revoked by a late anomaly score
+                    if (revocationService.isRevoked(username, claims.getIssuedAt())) {
+                        sendRevokedResponse(response);
+                        return;
+                    }
+                    
                     // Create user behavior data for anomaly detection
-                    UserBehavior userBehavior = createUserBehavior(request, username, userDetails);
+                    UserBehavior userBehavior = createUserBehavior(request, username, userDetails, claims);
+                    
+                    // Tier 0: this session was just allowed with the same fingerprint
+                    long start = System.nanoTime();
+                    long cached = decisionCache.lookup(userBehavior);
+                    if (cached != 0) {
+                        cachedDecisionRecorder.record(userBehavior, SessionDecisionCache.score(cached),
+                                SessionDecisionCache.confidence(cached));
+                        authenticate(request, userDetails);
+                        addCachedDecisionHeaders(response, cached);
+                        fastPath.recordDecision(AnomalyFastPath.TIER_FINGERPRINT, "ALLOW", start);
+                        filterChain.doFilter(request, response);
+                        return;
+                    }
                     
-                    // Perform anomaly detection
-                    AnomalyDetectionResult anomalyResult = anomalyDetectionService.detectAnomaly(userBehavior);
+                    // Perform anomaly detection within the latency budget
+                    ScoringOutcome outcome = anomalyScoringService.score(userBehavior);
+                    if (outcome.isDeferred()) {
+                        if (outcome.isFailClosed()) {
+                            sendDeferredResponse(response);
+                            return;
+                        }
+                        authenticate(request, userDetails);
+                        response.setHeader("X-Anomaly-Status", "DEFERRED");
+                        filterChain.doFilter(request, response);
+                        return;
+                    }
+                    AnomalyDetectionResult anomalyResult = outcome.getResult();
+                    decisionCache.store(userBehavior, anomalyResult);
                     
                     // Check if anomaly is detected
                     if (anomalyResult.getIsAnomaly()) {
@@ -80,11 +123,7 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
                     }
                     
                     // If no anomaly or anomaly is acceptable, proceed with authentication
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    authenticate(request, userDetails);
                     
                     // Add anomaly detection headers to response
                     addAnomalyHeaders(response, anomalyResult);
@@ -99,13 +138,23 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
         }
     }
     
-    private UserBehavior createUserBehavior(HttpServletRequest request, String username, UserDetails userDetails) {
+    private void authenticate(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities()
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+    
+    private UserBehavior createUserBehavior(HttpServletRequest request, String username, UserDetails userDetails,
+                                            Claims claims) {
         // Extract behavioral data from request
         Map<String, Object> contextData = new HashMap<>();
         contextData.put("userAgent", request.getHeader("User-Agent"));
         contextData.put("acceptLanguage", request.getHeader("Accept-Language"));
         contextData.put("referer", request.getHeader("Referer"));
         contextData.put("requestSize", request.getContentLength());
+        contextData.put("appVersion", request.getHeader("X-App-Version"));
         
         // Extract location data if available
         String locationHeader = request.getHeader("X-User-Location");
@@ -178,17 +227,15 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
                 .navigationPattern(UserBehavior.NavigationPattern.builder()
                         .currentPage(request.getRequestURI())
                         .build())
-                .sessionPattern(UserBehavior.SessionPattern.builder()
-                        .sessionId(request.getSession().getId())
-                        .isActive(true)
-                        .build())
+                .sessionPattern(sessionTracker.track(userDetails.getUsername(), sessionId(request, claims),
+                        request.getRequestURI()))
                 .actionType("API_REQUEST")
                 .endpoint(request.getRequestURI())
                 .requestMethod(request.getMethod())
                 .contextData(contextData)
                 .dataAnonymized(true)
                 .consentLevel("EXPLICIT")
-                .dataRetentionUntil(LocalDateTime.now().plusYears(1))
+                .dataRetentionUntil(retentionService.behaviorRetentionUntil())
                 .build();
     }
     
@@ -223,11 +270,59 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
         objectMapper.writeValue(response.getWriter(), challengeResponse);
     }
     
+    private void sendRevokedResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        
+        Map<String, Object> revokedResponse = new HashMap<>();
+        revokedResponse.put("error", "SESSION_REVOKED");
+        revokedResponse.put("message", "Session revoked after anomaly review, please sign in again");
+        revokedResponse.put("timestamp", LocalDateTime.now());
+        
+        objectMapper.writeValue(response.getWriter(), revokedResponse);
+    }
+    
+    private void sendDeferredResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Retry-After", "1");
+        
+        Map<String, Object> deferredResponse = new HashMap<>();
+        deferredResponse.put("error", "ANOMALY_CHECK_UNAVAILABLE");
+        deferredResponse.put("message", "Risk assessment did not complete in time, please retry");
+        deferredResponse.put("timestamp", LocalDateTime.now());
+        
+        objectMapper.writeValue(response.getWriter(), deferredResponse);
+    }
+    
     private void addAnomalyHeaders(HttpServletResponse response, AnomalyDetectionResult anomalyResult) {
         response.setHeader("X-Anomaly-Score", String.valueOf(anomalyResult.getOverallAnomalyScore()));
         response.setHeader("X-Risk-Level", anomalyResult.getRiskLevel());
         response.setHeader("X-Confidence-Level", anomalyResult.getConfidenceLevel());
         response.setHeader("X-Security-Measures", String.join(",", anomalyResult.getSecurityMeasures()));
+        if (anomalyResult.getEvaluationTier() != null) {
+            response.setHeader("X-Anomaly-Tier", String.valueOf(anomalyResult.getEvaluationTier()));
+        }
+    }
+    
+    private void addCachedDecisionHeaders(HttpServletResponse response, long cached) {
+        response.setHeader("X-Anomaly-Score", String.valueOf(SessionDecisionCache.score(cached)));
+        response.setHeader("X-Risk-Level", "LOW");
+        response.setHeader("X-Confidence-Level", SessionDecisionCache.confidence(cached));
+        response.setHeader("X-Security-Measures", "BASIC_MONITORING");
+        response.setHeader("X-Anomaly-Tier", String.valueOf(AnomalyFastPath.TIER_FINGERPRINT));
+    }
+    
+    /**
+     * The client's session ID, or else one per access token. Never a servlet
+     * session: this service is stateless.
+     */
+    private String sessionId(HttpServletRequest request, Claims claims) {
+        String sessionId = request.getHeader("X-Session-ID");
+        if (sessionId != null && !sessionId.isBlank()) {
+            return sessionId;
+        }
+        return claims.getIssuedAt() == null ? null : "token-" + claims.getIssuedAt().getTime();
     }
     
     private String getClientIpAddress(HttpServletRequest request) {
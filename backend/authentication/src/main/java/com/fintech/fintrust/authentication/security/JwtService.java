@@ -1,7 +1,9 @@
 package com.fintech.fintrust.authentication.security;
 
+import com.fintech.fintrust.authentication.util.VerifiedClaimsCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -16,17 +18,26 @@ public class JwtService {
     private final Key refreshTokenKey;
     private final long accessTokenExpirationMs;
     private final long refreshTokenExpirationMs;
+    // Parsers are immutable and thread-safe, so build them once
+    private final JwtParser accessTokenParser;
+    private final JwtParser refreshTokenParser;
+    private final VerifiedClaimsCache accessClaimsCache;
 
     public JwtService(
             @Value("${jwt.access.secret}") String accessSecret,
             @Value("${jwt.refresh.secret}") String refreshSecret,
             @Value("${jwt.access.expiration}") long accessTokenExpirationMs,
-            @Value("${jwt.refresh.expiration}") long refreshTokenExpirationMs
+            @Value("${jwt.refresh.expiration}") long refreshTokenExpirationMs,
+            @Value("${jwt.access.claims-cache.max-entries:100000}") int claimsCacheMaxEntries,
+            MeterRegistry meterRegistry
     ) {
         this.accessTokenKey = Keys.hmacShaKeyFor(accessSecret.getBytes());
         this.refreshTokenKey = Keys.hmacShaKeyFor(refreshSecret.getBytes());
         this.accessTokenExpirationMs = accessTokenExpirationMs;
         this.refreshTokenExpirationMs = refreshTokenExpirationMs;
+        this.accessTokenParser = Jwts.parserBuilder().setSigningKey(accessTokenKey).build();
+        this.refreshTokenParser = Jwts.parserBuilder().setSigningKey(refreshTokenKey).build();
+        this.accessClaimsCache = new VerifiedClaimsCache("jwt.access.claims", claimsCacheMaxEntries, meterRegistry);
     }
 
     public String generateAccessToken(String username, List<String> roles) {
@@ -49,24 +60,30 @@ public class JwtService {
     }
 
     public boolean validateAccessToken(String token) {
-        return validateToken(token, accessTokenKey);
+        try {
+            extractAccessTokenClaims(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public boolean validateRefreshToken(String token) {
-        return validateToken(token, refreshTokenKey);
-    }
-
-    private boolean validateToken(String token, Key key) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            refreshTokenParser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
+    /** Verified access token claims; the signature is checked once per token per node. */
+    public Claims extractAccessTokenClaims(String token) {
+        return accessClaimsCache.get(token, t -> accessTokenParser.parseClaimsJws(t).getBody());
+    }
+
     public String extractUsernameFromAccessToken(String token) {
-        return extractClaim(token, accessTokenKey, Claims::getSubject);
+        return extractAccessTokenClaims(token).getSubject();
     }
 
     public String extractUsernameFromRefreshToken(String token) {
@@ -74,7 +91,14 @@ public class JwtService {
     }
 
     public <T> T extractClaim(String token, Key key, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        final Claims claims = key == accessTokenKey
+                ? extractAccessTokenClaims(token)
+                : parserFor(key).parseClaimsJws(token).getBody();
         return claimsResolver.apply(claims);
     }
+
+    private JwtParser parserFor(Key key) {
+        if (key == refreshTokenKey) return refreshTokenParser;
+        return Jwts.parserBuilder().setSigningKey(key).build();
+    }
 }
@@ -0,0 +1,248 @@
+package com.fintech.fintrust.authentication.security;
+
+import com.fintech.fintrust.authentication.model.AnomalyDetectionResult;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.service.ModelRegistry;
+import com.fintech.fintrust.authentication.service.ScoringModel;
+import com.fintech.fintrust.authentication.util.ExpiringRegistry;
+import com.fintech.fintrust.authentication.util.StableHash;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Per-node cache of LOW/ALLOW decisions, keyed by user and session and
+ * tagged with a fingerprint of device, location cell, IP and user agent. A
+ * request whose session was allowed within the TTL with the same fingerprint
+ * reuses that decision without being scored again.
+ * <p>
+ * Entries are three packed longs in set-associative primitive arrays split
+ * into lock stripes, about 24 bytes each: a million sessions fit in roughly
+ * 24 MB with no per-entry objects. Reads are optimistic and take no lock.
+ * A decision stops being reused when its fingerprint changes, its TTL expires,
+ * the user has a risk event (a BLOCK or CHALLENGE in any session), or the
+ * active model changes. Risk events are never evicted while they matter; if
+ * too many are live to record another, every cached decision is dropped.
+ */
+@Component
+public class SessionDecisionCache {
+    private static final int WAYS = 8;
+    private static final String[] CONFIDENCE = {"LOW", "MEDIUM", "HIGH"};
+
+    // Value layout: expiry (40 bits, ms since origin) | score * 10^4 (14 bits) | confidence (2) | epoch (8)
+    private static final int EPOCH_BITS = 8;
+    private static final int CONFIDENCE_SHIFT = EPOCH_BITS;
+    private static final int SCORE_SHIFT = CONFIDENCE_SHIFT + 2;
+    private static final int EXPIRY_SHIFT = SCORE_SHIFT + 14;
+    private static final long SCORE_MASK = (1L << 14) - 1;
+    private static final double SCORE_SCALE = 10_000.0;
+
+    private final ModelRegistry modelRegistry;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final long origin = System.currentTimeMillis();
+    private final Stripe[] stripes;
+    private final ExpiringRegistry<String, Long> riskEvents;
+    private final AtomicInteger epoch = new AtomicInteger();
+    private volatile ScoringModel epochModel;
+
+    public SessionDecisionCache(
+            ModelRegistry modelRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.decision-cache.enabled:true}") boolean enabled,
+            @Value("${anomaly.decision-cache.ttl-ms:30000}") long ttlMillis,
+            @Value("${anomaly.decision-cache.max-entries:262144}") int maxEntries,
+            @Value("${anomaly.decision-cache.stripes:64}") int stripeCount
+    ) {
+        this.modelRegistry = modelRegistry;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        int buckets = Math.max(1, Integer.highestOneBit(Math.max(1, maxEntries / WAYS / stripeCount)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new Stripe(buckets);
+        // A risk event only has to outlive the decisions it invalidates
+        this.riskEvents = new ExpiringRegistry<>("anomaly.decision-cache.risk-events", ttlMillis, maxEntries, meterRegistry);
+        Gauge.builder("anomaly.decision-cache.capacity", () -> (double) buckets * WAYS * stripeCount)
+                .register(meterRegistry);
+    }
+
+    /** The cached decision's packed value for this request, or 0 when it must be scored. */
+    public long lookup(UserBehavior behavior) {
+        if (!enabled || behavior.getSessionPattern() == null) return 0;
+        long key = sessionKey(behavior.getUserId(), behavior.getSessionPattern().getSessionId());
+        if (key == 0) return 0;
+        long value = stripeFor(key).get(key, fingerprint(behavior));
+        if (value == 0) return 0;
+
+        long now = System.currentTimeMillis() - origin;
+        long expiry = value >>> EXPIRY_SHIFT;
+        if (expiry <= now || (int) (value & ((1 << EPOCH_BITS) - 1)) != currentEpoch()) return 0;
+        Long riskEventAt = riskEvents.getIfPresent(behavior.getUserId());
+        // Decisions made before the user's latest risk event are stale
+        if (riskEventAt != null && expiry - ttlMillis <= riskEventAt - origin) return 0;
+        return value;
+    }
+
+    /** Cache a fresh decision if it is a plain LOW/ALLOW, otherwise drop what the session had. */
+    public void store(UserBehavior behavior, AnomalyDetectionResult result) {
+        if (!enabled || behavior.getSessionPattern() == null) return;
+        long key = sessionKey(behavior.getUserId(), behavior.getSessionPattern().getSessionId());
+        String action = result.getRecommendedAction();
+        if ("BLOCK".equals(action) || "CHALLENGE".equals(action)) {
+            riskEvent(behavior.getUserId());
+        }
+        if (key == 0) return;
+        Stripe stripe = stripeFor(key);
+        if (!"ALLOW".equals(action) || !"LOW".equals(result.getRiskLevel())) {
+            stripe.remove(key);
+            return;
+        }
+        long expiry = System.currentTimeMillis() - origin + ttlMillis;
+        double score = result.getOverallAnomalyScore() == null ? 0.0 : result.getOverallAnomalyScore();
+        long packedScore = Math.min(SCORE_MASK, Math.round(Math.max(0.0, score) * SCORE_SCALE));
+        long value = expiry << EXPIRY_SHIFT
+                | packedScore << SCORE_SHIFT
+                | (long) confidenceIndex(result.getConfidenceLevel()) << CONFIDENCE_SHIFT
+                | currentEpoch();
+        stripe.put(key, fingerprint(behavior), value, System.currentTimeMillis() - origin);
+    }
+
+    /** Stop reusing any decision for this user's sessions. */
+    public void riskEvent(String userId) {
+        if (userId != null && !riskEvents.put(userId, System.currentTimeMillis())) {
+            // Losing the event would let the user's other sessions keep their ALLOW
+            epoch.incrementAndGet();
+        }
+    }
+
+    public static double score(long value) {
+        return ((value >>> SCORE_SHIFT) & SCORE_MASK) / SCORE_SCALE;
+    }
+
+    public static String confidence(long value) {
+        int index = (int) ((value >>> CONFIDENCE_SHIFT) & 3);
+        return index < CONFIDENCE.length ? CONFIDENCE[index] : CONFIDENCE[0];
+    }
+
+    private int currentEpoch() {
+        ScoringModel active = modelRegistry.active();
+        if (active != epochModel) {
+            // A model swap, or an edited active model, invalidates everything cached
+            synchronized (this) {
+                if (active != epochModel) {
+                    epochModel = active;
+                    epoch.incrementAndGet();
+                }
+            }
+        }
+        return epoch.get() & ((1 << EPOCH_BITS) - 1);
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) ((key >>> 40) % stripes.length)];
+    }
+
+    private static long sessionKey(String userId, String sessionId) {
+        if (userId == null || sessionId == null) return 0;
+        long key = StableHash.hash64(userId, sessionId);
+        return key == 0 ? 1 : key;
+    }
+
+    private static long fingerprint(UserBehavior behavior) {
+        return StableHash.hash64(behavior.getDeviceId(), behavior.getLocationHash(),
+                behavior.getIpAddress(), behavior.getUserAgent());
+    }
+
+    private static int confidenceIndex(String confidence) {
+        for (int i = 0; i < CONFIDENCE.length; i++) {
+            if (CONFIDENCE[i].equals(confidence)) return i;
+        }
+        return 0;
+    }
+
+    /** One lock stripe: buckets of WAYS slots, each slot a (key, fingerprint, value) triple. */
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final long[] keys;
+        private final long[] fingerprints;
+        private final long[] values;
+        private final int bucketMask;
+
+        Stripe(int buckets) {
+            keys = new long[buckets * WAYS];
+            fingerprints = new long[buckets * WAYS];
+            values = new long[buckets * WAYS];
+            bucketMask = buckets - 1;
+        }
+
+        long get(long key, long fingerprint) {
+            int base = bucket(key);
+            long stamp = lock.tryOptimisticRead();
+            long value = find(base, key, fingerprint);
+            if (lock.validate(stamp)) return value;
+            stamp = lock.readLock();
+            try {
+                return find(base, key, fingerprint);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long key, long fingerprint, long value, long now) {
+            int base = bucket(key);
+            long stamp = lock.writeLock();
+            try {
+                // Same session, else a free or expired slot, else the one expiring soonest
+                int target = base;
+                long soonest = Long.MAX_VALUE;
+                for (int slot = base; slot < base + WAYS; slot++) {
+                    if (keys[slot] == key) {
+                        target = slot;
+                        break;
+                    }
+                    long expiry = values[slot] >>> EXPIRY_SHIFT;
+                    if (keys[slot] == 0 || expiry <= now) expiry = -1;
+                    if (expiry < soonest) {
+                        soonest = expiry;
+                        target = slot;
+                    }
+                }
+                keys[target] = key;
+                fingerprints[target] = fingerprint;
+                values[target] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key) {
+            int base = bucket(key);
+            long stamp = lock.writeLock();
+            try {
+                for (int slot = base; slot < base + WAYS; slot++) {
+                    if (keys[slot] == key) {
+                        keys[slot] = 0;
+                        values[slot] = 0;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private long find(int base, long key, long fingerprint) {
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (keys[slot] == key) return fingerprints[slot] == fingerprint ? values[slot] : 0;
+            }
+            return 0;
+        }
+
+        private int bucket(long key) {
+            return ((int) key & bucketMask) * WAYS;
+        }
+    }
+}
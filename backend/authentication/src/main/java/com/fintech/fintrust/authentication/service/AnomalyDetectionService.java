@@ -1,244 +1,262 @@
 package com.fintech.fintrust.authentication.service;
 
 import com.fintech.fintrust.authentication.model.*;
-import com.fintech.fintrust.authentication.repository.UserBehaviorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AnomalyDetectionService {
     
-    private final UserBehaviorRepository userBehaviorRepository;
-    
-    // Machine Learning Model Parameters
-    private static final double TYPING_ANOMALY_THRESHOLD = 0.7;
-    private static final double TOUCH_ANOMALY_THRESHOLD = 0.6;
-    private static final double LOCATION_ANOMALY_THRESHOLD = 0.8;
-    private static final double SESSION_ANOMALY_THRESHOLD = 0.5;
-    private static final double OVERALL_ANOMALY_THRESHOLD = 0.6;
+    private final BehaviorBaselineService baselineService;
+    private final UserBehaviorWriteBehindService behaviorWriter;
+    private final ModelRegistry modelRegistry;
+    private final MeterRegistry meterRegistry;
+    private final ShadowScoringService shadowScoringService;
+    private final AnomalyFastPath fastPath;
+    private final AnomalyEventStore eventStore;
+    private final CohortBaselineService cohortBaselines;
+    private final DriftMonitor driftMonitor;
+    private final SharedInfrastructureGraph sharedInfrastructure;
     
     public AnomalyDetectionResult detectAnomaly(UserBehavior currentBehavior) {
+        long start = System.nanoTime();
+        // Read the active model once so a concurrent swap cannot change it mid-request
+        ScoringModel model = modelRegistry.active();
         log.info("Starting anomaly detection for user: {}", currentBehavior.getUserId());
         log.info("user behaviur : {}", currentBehavior);
-        // Get historical behavior data for comparison
-        List<UserBehavior> historicalBehaviors = userBehaviorRepository
-                .findByUserIdOrderByTimestampDesc(currentBehavior.getUserId())
-                .stream()
-                .limit(100) // Last 100 behaviors
-                .collect(Collectors.toList());
-        log.info("{}",historicalBehaviors);
-        if (historicalBehaviors.isEmpty()) {
-            // First-time user, create baseline
-            return createBaselineResult(currentBehavior);
+        
+        // Running statistics replace the scan over the user's behavior history
+        BehaviorBaseline baseline = baselineService.load(currentBehavior.getUserId());
+        AnomalyDetectionResult result = evaluate(currentBehavior, baseline, model, true);
+        
+        // Save current behavior for future analysis; the writer assigns the id the baseline flush relies on
+        behaviorWriter.submit(currentBehavior);
+        baselineService.record(currentBehavior);
+        eventStore.submit(result);
+        driftMonitor.record(currentBehavior, result);
+        fastPath.recordDecision(result.getEvaluationTier(), result.getRecommendedAction(), start);
+        
+        log.info("Anomaly detection completed. Score: {}, Anomaly: {}, Risk Level: {}", 
+                result.getOverallAnomalyScore(), result.getIsAnomaly(), result.getRiskLevel());
+        
+        return result;
+    }
+    
+    /**
+     * Fold a request allowed from the session decision cache into the state a
+     * scored request updates: the baseline, the shared-infrastructure graph, the
+     * event store and drift. Nothing is scored; the cached score is reported.
+     */
+    public void recordCachedDecision(UserBehavior behavior, double score, String confidence) {
+        sharedInfrastructure.record(behavior);
+        AnomalyDetectionResult result = createFastResult(behavior, modelRegistry.active(), score,
+                AnomalyFastPath.TIER_FINGERPRINT, "Session Decision Cache", null, null);
+        result.setConfidenceLevel(confidence);
+        baselineService.record(behavior);
+        eventStore.submit(result);
+        driftMonitor.record(behavior, result);
+    }
+
+    /**
+     * Score one user's behaviors, in the given order, against a single baseline
+     * load. Each behavior is folded into the loaded baseline before the next is
+     * scored, exactly as if they had arrived one request at a time, and the stored
+     * baseline is updated once at the end.
+     */
+    public void detectAnomalies(List<UserBehavior> behaviors, BiConsumer<UserBehavior, AnomalyDetectionResult> sink) {
+        if (behaviors.isEmpty()) return;
+        ScoringModel model = modelRegistry.active();
+        BehaviorBaseline baseline = baselineService.load(behaviors.get(0).getUserId());
+        for (UserBehavior behavior : behaviors) {
+            // Batches always run the full model so their results are comparable
+            AnomalyDetectionResult result = evaluate(behavior, baseline, model, false);
+            baseline.record(behavior);
+            behaviorWriter.submit(behavior);
+            eventStore.submit(result);
+            driftMonitor.record(behavior, result);
+            sink.accept(behavior, result);
+        }
+        baselineService.recordAll(behaviors);
+    }
+    
+    private AnomalyDetectionResult evaluate(UserBehavior currentBehavior, BehaviorBaseline ownBaseline,
+                                            ScoringModel model, boolean fastPathAllowed) {
+        AnomalyModelDescriptor.Thresholds thresholds = model.getThresholds();
+        // Users with little history of their own are scored against their cohort
+        CohortBaselineService.Match cohort = cohortBaselines.match(currentBehavior, ownBaseline);
+        BehaviorBaseline baseline = cohort != null ? cohort.baseline() : ownBaseline;
+        // Every behavior updates the graph, a new account's first login on a shared device included
+        SharedInfrastructureGraph.Exposure exposure = sharedInfrastructure.record(currentBehavior);
+        if (baseline.getSampleCount() == 0) {
+            // First-time user and no cohort to compare with, create baseline
+            return createBaselineResult(currentBehavior, model, exposure);
         }
+        // Confidence reflects the user's own history, not the cohort's
+        int historySize = (int) Math.min(ownBaseline.getSampleCount(), Integer.MAX_VALUE);
         
         // Calculate anomaly scores for different behavioral aspects
-        double typingAnomalyScore = calculateTypingAnomalyScore(currentBehavior, historicalBehaviors);
-        double touchAnomalyScore = calculateTouchAnomalyScore(currentBehavior, historicalBehaviors);
-        double locationAnomalyScore = calculateLocationAnomalyScore(currentBehavior, historicalBehaviors);
-        double sessionAnomalyScore = calculateSessionAnomalyScore(currentBehavior, historicalBehaviors);
-        double deviceAnomalyScore = calculateDeviceAnomalyScore(currentBehavior, historicalBehaviors);
+        SubScores subScores = calculateSubScores(currentBehavior, baseline).withSharedInfrastructure(exposure);
+        // Sampled before the tier split, so candidates are compared on all scored traffic
+        boolean shadowed = shadowScoringService.sample();
+        
+        // Tier 1: nothing in the statistics stands out, the model would not change the outcome.
+        // Cohort-scored users always get the model: early sessions are where account fraud concentrates.
+        // So does shared infrastructure, which the statistics cannot see.
+        if (fastPathAllowed && cohort == null && !sharesInfrastructure(exposure, thresholds)
+                && fastPath.isClear(subScores, thresholds)) {
+            AnomalyDetectionResult fast = createFastResult(currentBehavior, model,
+                    fastPath.statisticsScore(currentBehavior, subScores),
+                    AnomalyFastPath.TIER_STATISTICS, "Baseline Statistics", subScores, historySize);
+            if (shadowed) {
+                shadowScoringService.submit(currentBehavior, subScores, model, fast.getOverallAnomalyScore(),
+                        fast.getRecommendedAction());
+            }
+            return fast;
+        }
         
-        // Calculate overall anomaly score using weighted average
-        double overallAnomalyScore = calculateOverallAnomalyScore(
-                typingAnomalyScore, touchAnomalyScore, locationAnomalyScore, 
-                sessionAnomalyScore, deviceAnomalyScore
-        );
+        // Overall score from the active model
+        double overallAnomalyScore = model.score(currentBehavior, baseline, subScores);
         
         // Determine if anomaly is detected
-        boolean isAnomaly = overallAnomalyScore > OVERALL_ANOMALY_THRESHOLD;
+        boolean isAnomaly = overallAnomalyScore > thresholds.getAnomaly();
         
         // Identify risk factors
-        List<String> riskFactors = identifyRiskFactors(
-                typingAnomalyScore, touchAnomalyScore, locationAnomalyScore,
-                sessionAnomalyScore, deviceAnomalyScore
-        );
+        List<String> riskFactors = identifyRiskFactors(subScores, thresholds);
         
         // Determine risk level
-        String riskLevel = determineRiskLevel(overallAnomalyScore, riskFactors);
+        String riskLevel = determineRiskLevel(overallAnomalyScore, riskFactors, thresholds);
         
         // Determine recommended action
-        String recommendedAction = determineRecommendedAction(overallAnomalyScore, riskLevel);
+        String recommendedAction = determineRecommendedAction(overallAnomalyScore, riskLevel, thresholds);
+        meterRegistry.counter("anomaly.model.decisions", "model", model.getVersion(), "action", recommendedAction)
+                .increment();
         
         // Create result
         AnomalyDetectionResult result = AnomalyDetectionResult.builder()
                 .id(UUID.randomUUID().toString())
                 .userId(currentBehavior.getUserId())
-                .sessionId(currentBehavior.getSessionPattern().getSessionId())
+                .sessionId(currentBehavior.getSessionPattern() != null ? currentBehavior.getSessionPattern().getSessionId() : null)
                 .timestamp(LocalDateTime.now())
                 .overallAnomalyScore(overallAnomalyScore)
                 .isAnomaly(isAnomaly)
-                .anomalyType(determineAnomalyType(typingAnomalyScore, touchAnomalyScore, locationAnomalyScore))
-                .confidenceLevel(determineConfidenceLevel(historicalBehaviors.size()))
-                .typingAnomalyScore(typingAnomalyScore)
-                .touchAnomalyScore(touchAnomalyScore)
-                .navigationAnomalyScore(0.0) // TODO: Implement navigation analysis
-                .locationAnomalyScore(locationAnomalyScore)
-                .deviceAnomalyScore(deviceAnomalyScore)
-                .sessionAnomalyScore(sessionAnomalyScore)
+                .anomalyType(determineAnomalyType(subScores, thresholds))
+                .confidenceLevel(determineConfidenceLevel(historySize))
+                .typingAnomalyScore(subScores.getTyping())
+                .touchAnomalyScore(subScores.getTouch())
+                .navigationAnomalyScore(subScores.getNavigation())
+                .locationAnomalyScore(subScores.getLocation())
+                .deviceAnomalyScore(subScores.getDevice())
+                .sessionAnomalyScore(subScores.getSession())
                 .actionType(currentBehavior.getActionType())
                 .endpoint(currentBehavior.getEndpoint())
                 .requestMethod(currentBehavior.getRequestMethod())
                 .contextData(currentBehavior.getContextData())
                 .recommendedAction(recommendedAction)
                 .securityMeasures(determineSecurityMeasures(riskLevel))
-                .requiresReauthentication(overallAnomalyScore > 0.8)
-                .triggersSmartContract(overallAnomalyScore > 0.9)
+                .requiresReauthentication(overallAnomalyScore > thresholds.getReauthentication())
+                .triggersSmartContract(overallAnomalyScore > thresholds.getSmartContract())
                 .riskFactors(riskFactors)
                 .riskLevel(riskLevel)
                 .dataAnonymized(currentBehavior.getDataAnonymized())
                 .consentLevel(currentBehavior.getConsentLevel())
                 .dataRetentionUntil(currentBehavior.getDataRetentionUntil())
-                .modelVersion("1.0")
-                .algorithmUsed("Isolation Forest + Statistical Analysis")
-                .modelParameters(createModelParameters())
-                .modelConfidence(calculateModelConfidence(historicalBehaviors.size()))
+                .modelVersion(model.getVersion())
+                .algorithmUsed(model.getDescriptor().getAlgorithm())
+                .modelParameters(createModelParameters(model.getDescriptor(), cohort))
+                .modelConfidence(calculateModelConfidence(historySize))
+                .evaluationTier(AnomalyFastPath.TIER_MODEL)
                 .build();
         
-        // Save current behavior for future analysis
-        userBehaviorRepository.save(currentBehavior);
-        
-        log.info("Anomaly detection completed. Score: {}, Anomaly: {}, Risk Level: {}", 
-                overallAnomalyScore, isAnomaly, riskLevel);
+        // Candidate models see the same input off the request thread
+        if (shadowed) {
+            shadowScoringService.submit(currentBehavior, subScores, model, overallAnomalyScore, recommendedAction);
+        }
         
         return result;
     }
     
-    private double calculateTypingAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getTypingPattern() == null) return 0.0;
-        
-        // Calculate average typing speed from historical data
-        double avgHistoricalSpeed = historical.stream()
-                .filter(b -> b.getTypingPattern() != null && b.getTypingPattern().getAverageTypingSpeed() != null)
-                .mapToDouble(b -> b.getTypingPattern().getAverageTypingSpeed())
-                .average()
-                .orElse(0.0);
-        
-        if (avgHistoricalSpeed == 0.0) return 0.0;
-        
-        double currentSpeed = current.getTypingPattern().getAverageTypingSpeed();
-        double speedDifference = Math.abs(currentSpeed - avgHistoricalSpeed) / avgHistoricalSpeed;
-        
-        // Normalize to 0-1 scale
-        return Math.min(speedDifference, 1.0);
-    }
-    
-    private double calculateTouchAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getTouchPattern() == null) return 0.0;
-        
-        // Calculate average tap pressure from historical data
-        double avgHistoricalPressure = historical.stream()
-                .filter(b -> b.getTouchPattern() != null && b.getTouchPattern().getTapPressure() != null)
-                .mapToDouble(b -> b.getTouchPattern().getTapPressure())
-                .average()
-                .orElse(0.0);
-        
-        if (avgHistoricalPressure == 0.0) return 0.0;
-        
-        double currentPressure = current.getTouchPattern().getTapPressure();
-        double pressureDifference = Math.abs(currentPressure - avgHistoricalPressure) / avgHistoricalPressure;
-        
-        return Math.min(pressureDifference, 1.0);
-    }
-    
-    private double calculateLocationAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getLatitude() == null || current.getLongitude() == null) return 0.0;
-        
-        // Calculate distance from usual location
-        double avgLat = historical.stream()
-                .filter(b -> b.getLatitude() != null)
-                .mapToDouble(UserBehavior::getLatitude)
-                .average()
-                .orElse(current.getLatitude());
-        
-        double avgLon = historical.stream()
-                .filter(b -> b.getLongitude() != null)
-                .mapToDouble(UserBehavior::getLongitude)
-                .average()
-                .orElse(current.getLongitude());
-        
-        double distance = calculateDistance(
-                current.getLatitude(), current.getLongitude(),
-                avgLat, avgLon
-        );
-        
-        // Normalize distance (consider 100km as maximum anomaly)
-        return Math.min(distance / 100.0, 1.0);
-    }
-    
-    private double calculateSessionAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getSessionPattern() == null) return 0.0;
-        
-        // Check for unusual session patterns
-        long currentDuration = current.getSessionPattern().getSessionDuration();
-        double avgHistoricalDuration = historical.stream()
-                .filter(b -> b.getSessionPattern() != null && b.getSessionPattern().getSessionDuration() != null)
-                .mapToDouble(b -> b.getSessionPattern().getSessionDuration())
-                .average()
-                .orElse(currentDuration);
-        
-        if (avgHistoricalDuration == 0.0) return 0.0;
-        
-        double durationDifference = Math.abs(currentDuration - avgHistoricalDuration) / avgHistoricalDuration;
-        return Math.min(durationDifference, 1.0);
-    }
-    
-    private double calculateDeviceAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        // Check if device is new or unusual
-        Set<String> knownDevices = historical.stream()
-                .map(UserBehavior::getDeviceId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-        
-        if (knownDevices.isEmpty()) return 0.0;
-        
-        return knownDevices.contains(current.getDeviceId()) ? 0.0 : 0.8;
+    /** Per-signal scores of a behavior against a baseline, without side effects. */
+    static SubScores calculateSubScores(UserBehavior current, BehaviorBaseline baseline) {
+        // One pass over the baseline columns yields both the model features and the sub-scores
+        double[] raw = FeatureSchema.extract(current);
+        double[] deviations = new double[BehaviorFeatureExtractor.FEATURE_COUNT];
+        BehaviorFeatureExtractor.extract(raw, current.getDeviceId(), baseline, deviations);
+        double latitude = raw[FeatureSchema.LATITUDE];
+        long epochMillis = LocationClusters.epochMillis(current.getTimestamp());
+        double travelSpeed = latitude != latitude ? 0.0
+                : baseline.getLocations().travelSpeedKmh(latitude, raw[FeatureSchema.LONGITUDE], epochMillis);
+        double[] tailScores = new double[FeatureSchema.SCALAR_FEATURES];
+        for (int f = 0; f < FeatureSchema.SCALAR_FEATURES; f++) {
+            QuantileSketch sketch = baseline.getQuantiles()[f];
+            // Session duration is the time elapsed so far, short at the start of every session
+            tailScores[f] = f == FeatureSchema.SESSION_DURATION ? sketch.upperTailScore(raw[f]) : sketch.tailScore(raw[f]);
+        }
+        double navigationSurprise = baseline.getNavigation().surpriseBits(TransitionMatrix.endpointOf(current));
+        return SubScores.fromDeviations(deviations, tailScores, navigationSurprise, travelSpeed,
+                baseline.getWeeklyDevices().estimateWith(current.getDeviceId(), epochMillis),
+                baseline.getWeeklyIpAddresses().estimateWith(current.getIpAddress(), epochMillis));
     }
     
-    private double calculateOverallAnomalyScore(double typing, double touch, double location, 
-                                              double session, double device) {
-        // Weighted average based on importance
-        return (typing * 0.25 + touch * 0.20 + location * 0.30 + session * 0.15 + device * 0.10);
+    /** Recommended action for an overall score under a model's thresholds. */
+    static String recommendedAction(double anomalyScore, SubScores scores, AnomalyModelDescriptor.Thresholds thresholds) {
+        String riskLevel = determineRiskLevel(anomalyScore, identifyRiskFactors(scores, thresholds), thresholds);
+        return determineRecommendedAction(anomalyScore, riskLevel, thresholds);
     }
     
-    private List<String> identifyRiskFactors(double typing, double touch, double location, 
-                                           double session, double device) {
+    private static List<String> identifyRiskFactors(SubScores scores, AnomalyModelDescriptor.Thresholds thresholds) {
         List<String> factors = new ArrayList<>();
         
-        if (typing > TYPING_ANOMALY_THRESHOLD) factors.add("UNUSUAL_TYPING_PATTERN");
-        if (touch > TOUCH_ANOMALY_THRESHOLD) factors.add("UNUSUAL_TOUCH_PATTERN");
-        if (location > LOCATION_ANOMALY_THRESHOLD) factors.add("UNUSUAL_LOCATION");
-        if (session > SESSION_ANOMALY_THRESHOLD) factors.add("UNUSUAL_SESSION_PATTERN");
-        if (device > 0.5) factors.add("UNKNOWN_DEVICE");
+        if (scores.getTyping() > thresholds.getTyping()) factors.add("UNUSUAL_TYPING_PATTERN");
+        if (scores.getTouch() > thresholds.getTouch()) factors.add("UNUSUAL_TOUCH_PATTERN");
+        if (scores.getLocation() > thresholds.getLocation()) factors.add("UNUSUAL_LOCATION");
+        if (scores.isImpossibleTravel()) factors.add("IMPOSSIBLE_TRAVEL");
+        if (scores.getWeeklyDevices() > thresholds.getWeeklyDevices()) factors.add("HIGH_DEVICE_VELOCITY");
+        if (scores.getWeeklyIpAddresses() > thresholds.getWeeklyIpAddresses()) factors.add("HIGH_IP_VELOCITY");
+        if (scores.getSession() > thresholds.getSession()) factors.add("UNUSUAL_SESSION_PATTERN");
+        if (scores.getDevice() > thresholds.getDevice()) factors.add("UNKNOWN_DEVICE");
+        if (scores.getNavigation() > thresholds.getNavigation()) factors.add("UNUSUAL_NAVIGATION");
+        if (sharesInfrastructure(scores.getSharedInfrastructure(), thresholds)) factors.add("SHARED_INFRASTRUCTURE");
         
         return factors;
     }
     
-    private String determineRiskLevel(double anomalyScore, List<String> riskFactors) {
-        if (anomalyScore > 0.9 || riskFactors.size() >= 4) return "CRITICAL";
-        if (anomalyScore > 0.7 || riskFactors.size() >= 3) return "HIGH";
-        if (anomalyScore > 0.5 || riskFactors.size() >= 2) return "MEDIUM";
+    /** The device or IP address is shared by more accounts than expected, or the user is linked to too many. */
+    private static boolean sharesInfrastructure(SharedInfrastructureGraph.Exposure exposure,
+                                                AnomalyModelDescriptor.Thresholds thresholds) {
+        return exposure.deviceAccounts() > thresholds.getSharedDeviceAccounts()
+                || exposure.ipAddressAccounts() > thresholds.getSharedIpAddressAccounts()
+                || exposure.linkedAccounts() > thresholds.getLinkedAccounts();
+    }
+    
+    private static String determineRiskLevel(double anomalyScore, List<String> riskFactors,
+                                             AnomalyModelDescriptor.Thresholds thresholds) {
+        if (anomalyScore > thresholds.getCritical() || riskFactors.size() >= 4) return "CRITICAL";
+        if (anomalyScore > thresholds.getHigh() || riskFactors.size() >= 3) return "HIGH";
+        if (anomalyScore > thresholds.getMedium() || riskFactors.size() >= 2) return "MEDIUM";
         return "LOW";
     }
     
-    private String determineRecommendedAction(double anomalyScore, String riskLevel) {
-        if ("CRITICAL".equals(riskLevel) || anomalyScore > 0.9) return "BLOCK";
-        if ("HIGH".equals(riskLevel) || anomalyScore > 0.7) return "CHALLENGE";
-        if ("MEDIUM".equals(riskLevel) || anomalyScore > 0.5) return "MONITOR";
+    private static String determineRecommendedAction(double anomalyScore, String riskLevel,
+                                                     AnomalyModelDescriptor.Thresholds thresholds) {
+        if ("CRITICAL".equals(riskLevel) || anomalyScore > thresholds.getCritical()) return "BLOCK";
+        if ("HIGH".equals(riskLevel) || anomalyScore > thresholds.getHigh()) return "CHALLENGE";
+        if ("MEDIUM".equals(riskLevel) || anomalyScore > thresholds.getMedium()) return "MONITOR";
         return "ALLOW";
     }
     
-    private String determineAnomalyType(double typing, double touch, double location) {
-        if (location > LOCATION_ANOMALY_THRESHOLD) return "LOCATION";
-        if (typing > TYPING_ANOMALY_THRESHOLD) return "BEHAVIORAL";
-        if (touch > TOUCH_ANOMALY_THRESHOLD) return "BEHAVIORAL";
+    private String determineAnomalyType(SubScores scores, AnomalyModelDescriptor.Thresholds thresholds) {
+        if (scores.getLocation() > thresholds.getLocation()) return "LOCATION";
+        if (scores.getTyping() > thresholds.getTyping()) return "BEHAVIORAL";
+        if (scores.getTouch() > thresholds.getTouch()) return "BEHAVIORAL";
+        if (scores.getNavigation() > thresholds.getNavigation()) return "BEHAVIORAL";
         return "NONE";
     }
     
@@ -269,13 +287,22 @@ public class AnomalyDetectionService {
         return measures;
     }
     
-    private Map<String, Object> createModelParameters() {
+    private Map<String, Object> createModelParameters(AnomalyModelDescriptor descriptor,
+                                                      CohortBaselineService.Match cohort) {
         Map<String, Object> params = new HashMap<>();
-        params.put("typingThreshold", TYPING_ANOMALY_THRESHOLD);
-        params.put("touchThreshold", TOUCH_ANOMALY_THRESHOLD);
-        params.put("locationThreshold", LOCATION_ANOMALY_THRESHOLD);
-        params.put("sessionThreshold", SESSION_ANOMALY_THRESHOLD);
-        params.put("overallThreshold", OVERALL_ANOMALY_THRESHOLD);
+        if (cohort != null) {
+            params.put("baselineCohort", cohort.cohort());
+        }
+        AnomalyModelDescriptor.Thresholds thresholds = descriptor.getThresholds();
+        params.put("typingThreshold", thresholds.getTyping());
+        params.put("touchThreshold", thresholds.getTouch());
+        params.put("locationThreshold", thresholds.getLocation());
+        params.put("sessionThreshold", thresholds.getSession());
+        params.put("navigationThreshold", thresholds.getNavigation());
+        params.put("overallThreshold", thresholds.getAnomaly());
+        if (AnomalyModelDescriptor.ALGORITHM_WEIGHTED_DEVIATION.equals(descriptor.getAlgorithm())) {
+            params.put("weights", descriptor.getWeights());
+        }
         return params;
     }
     
@@ -283,7 +310,10 @@ public class AnomalyDetectionService {
         return Math.min(historicalDataSize / 100.0, 1.0);
     }
     
-    private AnomalyDetectionResult createBaselineResult(UserBehavior behavior) {
+    private AnomalyDetectionResult createBaselineResult(UserBehavior behavior, ScoringModel model,
+                                                        SharedInfrastructureGraph.Exposure exposure) {
+        // No baseline to score against, but a shared device or IP address is still worth reporting
+        boolean shared = sharesInfrastructure(exposure, model.getThresholds());
         return AnomalyDetectionResult.builder()
                 .id(UUID.randomUUID().toString())
                 .userId(behavior.getUserId())
@@ -294,26 +324,47 @@ public class AnomalyDetectionService {
                 .anomalyType("NONE")
                 .confidenceLevel("LOW")
                 .recommendedAction("ALLOW")
+                .securityMeasures(determineSecurityMeasures("LOW"))
+                .riskFactors(shared ? List.of("SHARED_INFRASTRUCTURE") : List.of())
                 .riskLevel("LOW")
-                .modelVersion("1.0")
+                .modelVersion(model.getVersion())
                 .algorithmUsed("Baseline Creation")
                 .modelConfidence(0.1)
+                .evaluationTier(AnomalyFastPath.TIER_STATISTICS)
                 .build();
     }
     
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        // Haversine formula for calculating distance between two points
-        final int R = 6371; // Earth's radius in kilometers
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+    /** Slim ALLOW result for decisions made before the model runs. */
+    private AnomalyDetectionResult createFastResult(UserBehavior behavior, ScoringModel model, Double score, int tier,
+                                                    String algorithm, SubScores subScores, Integer historySize) {
+        AnomalyDetectionResult.AnomalyDetectionResultBuilder result = AnomalyDetectionResult.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(behavior.getUserId())
+                .sessionId(behavior.getSessionPattern() != null ? behavior.getSessionPattern().getSessionId() : null)
+                .timestamp(LocalDateTime.now())
+                .overallAnomalyScore(score)
+                .isAnomaly(false)
+                .anomalyType("NONE")
+                .confidenceLevel(historySize != null ? determineConfidenceLevel(historySize) : "HIGH")
+                .recommendedAction("ALLOW")
+                .securityMeasures(determineSecurityMeasures("LOW"))
+                .riskFactors(List.of())
+                .riskLevel("LOW")
+                .actionType(behavior.getActionType())
+                .endpoint(behavior.getEndpoint())
+                .requestMethod(behavior.getRequestMethod())
+                .modelVersion(model.getVersion())
+                .algorithmUsed(algorithm)
+                .evaluationTier(tier);
+        if (subScores != null) {
+            result.typingAnomalyScore(subScores.getTyping())
+                    .touchAnomalyScore(subScores.getTouch())
+                    .navigationAnomalyScore(subScores.getNavigation())
+                    .locationAnomalyScore(subScores.getLocation())
+                    .deviceAnomalyScore(subScores.getDevice())
+                    .sessionAnomalyScore(subScores.getSession())
+                    .modelConfidence(calculateModelConfidence(historySize));
+        }
+        return result.build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyDetectionResult;
+import com.fintech.fintrust.authentication.model.AnomalyEventBucket;
+import com.fintech.fintrust.authentication.repository.AnomalyEventBucketRepository;
+import com.fintech.fintrust.authentication.util.WriteBehindBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps every anomaly detection result in hourly per-user buckets. Results are
+ * buffered off the request path and each flush becomes one upsert per bucket,
+ * which appends the events and bumps the bucket's pre-aggregated counts.
+ */
+@Service
+@Slf4j
+public class AnomalyEventStore {
+    public static final List<String> RISK_LEVELS = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final AnomalyEventBucketRepository bucketRepository;
+    private final WriteBehindBuffer<AnomalyDetectionResult> buffer;
+
+    public AnomalyEventStore(
+            MongoTemplate mongoTemplate,
+            AnomalyEventBucketRepository bucketRepository,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.events.enabled:true}") boolean enabled,
+            @Value("${anomaly.events.capacity:10000}") int capacity,
+            @Value("${anomaly.events.batch-size:500}") int batchSize,
+            @Value("${anomaly.events.flush-interval-ms:500}") long flushIntervalMs,
+            @Value("${anomaly.events.offer-timeout-ms:5}") long offerTimeoutMs,
+            @Value("${anomaly.events.max-attempts:5}") int maxAttempts,
+            @Value("${anomaly.events.retry-backoff-ms:500}") long retryBackoffMs
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketRepository = bucketRepository;
+        this.buffer = enabled
+                ? new WriteBehindBuffer<>("anomaly_events", capacity, batchSize, flushIntervalMs,
+                        offerTimeoutMs, maxAttempts, retryBackoffMs, this::writeBatch, null, meterRegistry)
+                : null;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        try {
+            IndexOperations indexes = mongoTemplate.indexOps(AnomalyEventBucket.class);
+            indexes.ensureIndex(new Index().on("userId", Sort.Direction.ASC).on("hourStart", Sort.Direction.DESC)
+                    .named("user_hour"));
+            // Compound so it stays distinct from the plain hourStart TTL index that retention adds
+            indexes.ensureIndex(new Index().on("hourStart", Sort.Direction.ASC).on("userId", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("anomalyCount").gt(0)))
+                    .named("anomalous_hours"));
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure anomaly event indexes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Record a result asynchronously. Falls back to a synchronous write when the
+     * buffer is full, as the behavior write-behind does.
+     */
+    public void submit(AnomalyDetectionResult result) {
+        if (result.getUserId() == null || result.getTimestamp() == null) return;
+        if (buffer == null || !buffer.submit(result)) {
+            writeBatch(List.of(result));
+        }
+    }
+
+    /** Anomalous results from the given time on, newest first. */
+    public List<AnomalyDetectionResult> findAnomaliesSince(LocalDateTime since) {
+        List<AnomalyDetectionResult> anomalies = new ArrayList<>();
+        for (AnomalyEventBucket bucket : bucketRepository.findWithAnomaliesSince(AnomalyEventBucket.hourOf(since))) {
+            for (AnomalyEventBucket.Event event : bucket.getEvents()) {
+                if (Boolean.TRUE.equals(event.getAnomaly()) && !event.getTimestamp().isBefore(since)) {
+                    anomalies.add(event.toResult(bucket.getUserId()));
+                }
+            }
+        }
+        anomalies.sort(Comparator.comparing(AnomalyDetectionResult::getTimestamp).reversed());
+        return anomalies;
+    }
+
+    /** One user's results in [from, to), newest first. */
+    public List<AnomalyDetectionResult> findByUser(String userId, LocalDateTime from, LocalDateTime to) {
+        List<AnomalyDetectionResult> results = new ArrayList<>();
+        for (AnomalyEventBucket bucket : bucketRepository.findByUserIdAndHourRange(userId,
+                AnomalyEventBucket.hourOf(from), to)) {
+            for (int i = bucket.getEvents().size() - 1; i >= 0; i--) {
+                AnomalyEventBucket.Event event = bucket.getEvents().get(i);
+                if (!event.getTimestamp().isBefore(from) && event.getTimestamp().isBefore(to)) {
+                    results.add(event.toResult(userId));
+                }
+            }
+        }
+        return results;
+    }
+
+    /** Hourly buckets of one user in [from, to), with counts only. */
+    public List<AnomalyEventBucket> hourlyCounts(String userId, LocalDateTime from, LocalDateTime to) {
+        return bucketRepository.findCountsByUserIdAndHourRange(userId, AnomalyEventBucket.hourOf(from), to);
+    }
+
+    /**
+     * Totals per risk level over whole hours in [from, to), for one user or all
+     * of them when {@code userId} is null. Summed in the database from the
+     * bucket counts; no event is read.
+     */
+    public Map<String, Long> riskLevelTotals(String userId, LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = Criteria.where("hourStart").gte(AnomalyEventBucket.hourOf(from)).lt(to);
+        if (userId != null) {
+            criteria = criteria.and("userId").is(userId);
+        }
+        GroupOperation group = Aggregation.group().sum("eventCount").as("events").sum("anomalyCount").as("anomalies");
+        for (String level : RISK_LEVELS) {
+            group = group.sum("riskLevelCounts." + level).as(level);
+        }
+        Document totals = mongoTemplate.aggregate(Aggregation.newAggregation(Aggregation.match(criteria), group),
+                AnomalyEventBucket.class, Document.class).getUniqueMappedResult();
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("events", count(totals, "events"));
+        result.put("anomalies", count(totals, "anomalies"));
+        for (String level : RISK_LEVELS) {
+            result.put(level, count(totals, level));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private void writeBatch(List<AnomalyDetectionResult> batch) {
+        Map<String, List<AnomalyDetectionResult>> byBucket = new LinkedHashMap<>();
+        for (AnomalyDetectionResult result : batch) {
+            String id = AnomalyEventBucket.idOf(result.getUserId(), AnomalyEventBucket.hourOf(result.getTimestamp()));
+            byBucket.computeIfAbsent(id, key -> new ArrayList<>()).add(result);
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnomalyEventBucket.class);
+        byBucket.forEach((id, results) -> operations.upsert(bucketNotHolding(id, results), bucketUpdate(results)));
+        try {
+            operations.execute();
+        } catch (BulkOperationException e) {
+            // A retried batch: buckets that already took their events fail the upsert's insert; those are done
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+
+    /** The bucket, unless it already holds these results. Each upsert is atomic, so one result id tells. */
+    private static Query bucketNotHolding(String id, List<AnomalyDetectionResult> results) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        String resultId = results.get(0).getId();
+        if (resultId != null) criteria = criteria.and("events.resultId").ne(resultId);
+        return Query.query(criteria);
+    }
+
+    private static Update bucketUpdate(List<AnomalyDetectionResult> results) {
+        AnomalyDetectionResult first = results.get(0);
+        Update update = new Update()
+                .setOnInsert("userId", first.getUserId())
+                .setOnInsert("hourStart", AnomalyEventBucket.hourOf(first.getTimestamp()))
+                .inc("eventCount", results.size());
+
+        long anomalies = 0;
+        double scoreSum = 0;
+        double maxScore = 0;
+        Map<String, Long> riskLevels = new LinkedHashMap<>();
+        Map<String, Long> actions = new LinkedHashMap<>();
+        Object[] events = new Object[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            AnomalyDetectionResult result = results.get(i);
+            if (Boolean.TRUE.equals(result.getIsAnomaly())) anomalies++;
+            double score = result.getOverallAnomalyScore() == null ? 0.0 : result.getOverallAnomalyScore();
+            scoreSum += score;
+            maxScore = Math.max(maxScore, score);
+            if (result.getRiskLevel() != null) riskLevels.merge(result.getRiskLevel(), 1L, Long::sum);
+            if (result.getRecommendedAction() != null) actions.merge(result.getRecommendedAction(), 1L, Long::sum);
+            events[i] = AnomalyEventBucket.Event.of(result);
+        }
+        update.inc("anomalyCount", anomalies).inc("scoreSum", scoreSum).max("maxScore", maxScore);
+        riskLevels.forEach((level, count) -> update.inc("riskLevelCounts." + level, count));
+        actions.forEach((action, count) -> update.inc("actionCounts." + action, count));
+        // Keep the newest events once the hour overflows
+        update.push("events").slice(-AnomalyEventBucket.MAX_EVENTS).each(events);
+        return update;
+    }
+
+    private static long count(Document totals, String field) {
+        if (totals == null) return 0L;
+        Object value = totals.get(field);
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
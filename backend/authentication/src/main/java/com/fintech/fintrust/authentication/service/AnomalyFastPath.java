@@ -0,0 +1,72 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cheap tiers of anomaly evaluation. Tier 0 is the filter's session
+ * decision cache, which reuses a recent decision for an unchanged session
+ * fingerprint. Tier 1 allows a request from the baseline statistics alone when
+ * every sub-score is clearly low. Anything else goes to tier 2, the active model.
+ */
+@Service
+public class AnomalyFastPath {
+    public static final int TIER_FINGERPRINT = 0;
+    public static final int TIER_STATISTICS = 1;
+    public static final int TIER_MODEL = 2;
+
+    private final boolean enabled;
+    private final double clearThreshold;
+    private final MeterRegistry meterRegistry;
+    private final WeightedDeviationScorer statisticsScorer = new WeightedDeviationScorer(AnomalyModelDescriptor.builtin());
+    private final Timer[] latency = new Timer[3];
+
+    public AnomalyFastPath(
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.tiers.enabled:true}") boolean enabled,
+            @Value("${anomaly.tiers.clear-threshold:0.3}") double clearThreshold
+    ) {
+        this.enabled = enabled;
+        this.clearThreshold = clearThreshold;
+        this.meterRegistry = meterRegistry;
+        for (int tier = 0; tier < latency.length; tier++) {
+            latency[tier] = Timer.builder("anomaly.tier.latency")
+                    .tag("tier", String.valueOf(tier))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Tier 1: whether the statistics alone show nothing worth running the model for.
+     * Device and IP velocity must also be within the model's thresholds, so those
+     * risk factors are still raised by tier 2.
+     */
+    public boolean isClear(SubScores scores, AnomalyModelDescriptor.Thresholds thresholds) {
+        return enabled
+                && scores.getTyping() < clearThreshold
+                && scores.getTouch() < clearThreshold
+                && scores.getLocation() < clearThreshold
+                && scores.getSession() < clearThreshold
+                && scores.getDevice() < clearThreshold
+                && scores.getNavigation() < clearThreshold
+                && !scores.isImpossibleTravel()
+                && scores.getWeeklyDevices() <= thresholds.getWeeklyDevices()
+                && scores.getWeeklyIpAddresses() <= thresholds.getWeeklyIpAddresses();
+    }
+
+    /** Overall score reported for a tier 1 decision: the built-in weighting of the sub-scores. */
+    public double statisticsScore(UserBehavior behavior, SubScores scores) {
+        return statisticsScorer.score(behavior, null, scores);
+    }
+
+    public void recordDecision(int tier, String action, long startNanos) {
+        latency[tier].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("anomaly.tier.decisions", "tier", String.valueOf(tier), "action", action).increment();
+    }
+}
@@ -0,0 +1,15 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+
+/**
+ * Produces the overall anomaly score of a behavior. Implementations must be
+ * thread-safe and must not modify the baseline. The baseline is null for
+ * statistics-tier and shadow scoring; what scorers need from it is already in
+ * the sub-scores.
+ */
+public interface AnomalyScorer {
+
+    double score(UserBehavior behavior, BehaviorBaseline baseline, SubScores subScores);
+}
@@ -0,0 +1,194 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scores large batches of behaviors. The batch is grouped by user so each
+ * baseline is loaded and saved once, user groups are scored in parallel on a
+ * fork-join pool, and results are written as NDJSON lines as soon as they are
+ * ready. Lines arrive in completion order and carry the behavior's index in the
+ * request; within one user they keep timestamp order. The endpoint is open
+ * only to the ADMIN and SERVICE roles (the gateway and offline jobs), since a
+ * batch names its users and is recorded into their baselines.
+ */
+@Service
+@Slf4j
+public class BatchAnomalyDetectionService {
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+    private final int maxBatchSize;
+    private final Timer batchLatency;
+
+    public BatchAnomalyDetectionService(
+            AnomalyDetectionService anomalyDetectionService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.batch.parallelism:0}") int parallelism,
+            @Value("${anomaly.batch.max-size:10000}") int maxBatchSize
+    ) {
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.objectMapper = objectMapper;
+        // Groups block on MongoDB for their baseline, so default to twice the cores
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : 2 * Runtime.getRuntime().availableProcessors());
+        this.maxBatchSize = maxBatchSize;
+        this.batchLatency = Timer.builder("anomaly.batch.latency").register(meterRegistry);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** Score the batch, writing one NDJSON line per behavior to the stream. */
+    public void detect(List<UserBehavior> behaviors, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<Map<String, Object>> lines = new LinkedBlockingQueue<>();
+        List<List<Integer>> groups = groupByUser(behaviors, lines);
+        int pending = behaviors.size() - lines.size();
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        if (!groups.isEmpty()) {
+            pool.execute(new ScoreGroups(behaviors, groups, 0, groups.size(), lines, cancelled));
+        }
+        int written = 0;
+        try {
+            // Behaviors rejected up front are already queued, scored ones follow as groups finish
+            while (written < behaviors.size()) {
+                Map<String, Object> line = lines.poll();
+                if (line == null) {
+                    out.flush();
+                    line = lines.take();
+                }
+                out.write(objectMapper.writeValueAsBytes(line));
+                out.write(NEWLINE);
+                written++;
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+            throw new IOException("Interrupted while streaming batch results", e);
+        } catch (IOException e) {
+            // Client went away; stop scoring groups that have not started yet
+            cancelled.set(true);
+            throw e;
+        } finally {
+            batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("Batch anomaly detection: {} behaviors in {} user groups, {} results written, {} sent for scoring",
+                    behaviors.size(), groups.size(), written, pending);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private List<List<Integer>> groupByUser(List<UserBehavior> behaviors, BlockingQueue<Map<String, Object>> lines) {
+        Map<String, List<Integer>> byUser = new LinkedHashMap<>();
+        for (int i = 0; i < behaviors.size(); i++) {
+            UserBehavior behavior = behaviors.get(i);
+            if (behavior == null || behavior.getUserId() == null) {
+                lines.add(errorLine(i, null, "userId is required"));
+                continue;
+            }
+            byUser.computeIfAbsent(behavior.getUserId(), k -> new ArrayList<>()).add(i);
+        }
+        List<List<Integer>> groups = new ArrayList<>(byUser.values());
+        for (List<Integer> group : groups) {
+            // Stable sort: behaviors without a timestamp keep their request order
+            group.sort(Comparator.comparing((Integer i) -> behaviors.get(i).getTimestamp(),
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+        }
+        return groups;
+    }
+
+    private void scoreGroup(List<UserBehavior> behaviors, List<Integer> group,
+                            BlockingQueue<Map<String, Object>> lines, AtomicBoolean cancelled) {
+        List<UserBehavior> userBehaviors = new ArrayList<>(group.size());
+        for (int index : group) userBehaviors.add(behaviors.get(index));
+        int[] emitted = {0};
+        try {
+            if (cancelled.get()) throw new IllegalStateException("Batch cancelled");
+            anomalyDetectionService.detectAnomalies(userBehaviors, (behavior, result) -> {
+                int index = group.get(emitted[0]++);
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("index", index);
+                line.put("userId", behavior.getUserId());
+                line.put("success", true);
+                line.put("anomalyResult", result);
+                lines.add(line);
+            });
+        } catch (RuntimeException e) {
+            log.error("Batch scoring failed for user {}: {}", userBehaviors.get(0).getUserId(), e.getMessage());
+            // Every behavior must produce a line, or the writer would wait forever
+            for (int i = emitted[0]; i < group.size(); i++) {
+                lines.add(errorLine(group.get(i), userBehaviors.get(i).getUserId(), e.getMessage()));
+            }
+        }
+    }
+
+    private static Map<String, Object> errorLine(int index, String userId, String error) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("userId", userId);
+        line.put("success", false);
+        line.put("error", error);
+        line.put("timestamp", LocalDateTime.now());
+        return line;
+    }
+
+    private final class ScoreGroups extends RecursiveAction {
+        private final List<UserBehavior> behaviors;
+        private final List<List<Integer>> groups;
+        private final int from;
+        private final int to;
+        private final BlockingQueue<Map<String, Object>> lines;
+        private final AtomicBoolean cancelled;
+
+        ScoreGroups(List<UserBehavior> behaviors, List<List<Integer>> groups, int from, int to,
+                    BlockingQueue<Map<String, Object>> lines, AtomicBoolean cancelled) {
+            this.behaviors = behaviors;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.lines = lines;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) scoreGroup(behaviors, groups.get(i), lines, cancelled);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreGroups(behaviors, groups, from, mid, lines, cancelled),
+                    new ScoreGroups(behaviors, groups, mid, to, lines, cancelled));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.repository.BehaviorBaselineRepository;
+import com.fintech.fintrust.authentication.util.WriteBehindBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Loads and updates per-user baselines. Updates are not saved on the request
+ * path: recorded behaviors go through a write-behind buffer, and each flush
+ * reads the batch's baselines in one query, folds in every pending behavior of
+ * a user and saves that baseline once. A request that arrives before the flush
+ * is scored against the baseline without the user's last few behaviors.
+ */
+@Service
+@Slf4j
+public class BehaviorBaselineService {
+
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    private static final int SEED_HISTORY = 100;
+
+    private final BehaviorBaselineRepository baselineRepository;
+    private final BehaviorHistoryStore historyStore;
+    private final WriteBehindBuffer<UserBehavior> buffer;
+    private final Counter droppedUpdates;
+
+    public BehaviorBaselineService(
+            BehaviorBaselineRepository baselineRepository,
+            BehaviorHistoryStore historyStore,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.baseline.write-behind.enabled:true}") boolean enabled,
+            @Value("${anomaly.baseline.write-behind.capacity:10000}") int capacity,
+            @Value("${anomaly.baseline.write-behind.batch-size:500}") int batchSize,
+            @Value("${anomaly.baseline.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${anomaly.baseline.write-behind.offer-timeout-ms:5}") long offerTimeoutMs,
+            @Value("${anomaly.baseline.write-behind.max-attempts:5}") int maxAttempts,
+            @Value("${anomaly.baseline.write-behind.retry-backoff-ms:500}") long retryBackoffMs
+    ) {
+        this.baselineRepository = baselineRepository;
+        this.historyStore = historyStore;
+        this.droppedUpdates = meterRegistry.counter("anomaly.baseline.updates.dropped");
+        // A batch is only retried when its baselines could not be read, so nothing in it was applied twice
+        this.buffer = enabled
+                ? new WriteBehindBuffer<>("behavior_baselines", capacity, batchSize, flushIntervalMs,
+                        offerTimeoutMs, maxAttempts, retryBackoffMs, this::persistBatch, null, meterRegistry)
+                : null;
+    }
+
+    /**
+     * Load the user's baseline, seeding it once from recent history for users
+     * whose behaviors were recorded before the baseline store existed.
+     */
+    public BehaviorBaseline load(String userId) {
+        return baselineRepository.findById(userId)
+                .map(this::upgradeLegacy)
+                .orElseGet(() -> seedFromHistory(userId, Collections.emptySet()));
+    }
+
+    /** Fold a behavior into the user's stored baseline on the next flush. */
+    public void record(UserBehavior behavior) {
+        recordAll(List.of(behavior));
+    }
+
+    /**
+     * Fold behaviors into their users' stored baselines on the next flush, in
+     * the given order. Falls back to a synchronous save for whatever the buffer
+     * is disabled or too full to take.
+     */
+    public void recordAll(List<UserBehavior> behaviors) {
+        List<UserBehavior> refused = new ArrayList<>();
+        for (UserBehavior behavior : behaviors) {
+            if (buffer == null || !buffer.submit(behavior)) {
+                refused.add(behavior);
+            }
+        }
+        if (!refused.isEmpty()) {
+            persistBatch(refused);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Make sure the user's history is folded into a stored baseline in the
+     * current layout, so purging the raw behaviors loses nothing scoring needs.
+     */
+    public void compact(String userId) {
+        Optional<BehaviorBaseline> stored = baselineRepository.findById(userId);
+        if (stored.isPresent() && stored.get().hasCurrentLayout()) return;
+        BehaviorBaseline baseline = stored.map(this::upgradeLegacy)
+                .orElseGet(() -> seedFromHistory(userId, Collections.emptySet()));
+        try {
+            baselineRepository.save(baseline);
+        } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+            // A flush stored a current baseline first
+        }
+    }
+
+    private void persistBatch(List<UserBehavior> batch) {
+        Map<String, List<UserBehavior>> byUser = new LinkedHashMap<>();
+        for (UserBehavior behavior : batch) {
+            byUser.computeIfAbsent(behavior.getUserId(), userId -> new ArrayList<>()).add(behavior);
+        }
+        Map<String, BehaviorBaseline> stored = new HashMap<>();
+        baselineRepository.findAllById(byUser.keySet()).forEach(baseline -> stored.put(baseline.getUserId(), baseline));
+
+        byUser.forEach((userId, behaviors) -> {
+            try {
+                BehaviorBaseline baseline = stored.containsKey(userId)
+                        ? upgradeLegacy(stored.get(userId))
+                        : seedFromHistory(userId, idsOf(behaviors));
+                save(baseline, behaviors);
+            } catch (RuntimeException e) {
+                // Retrying the batch would apply the users already saved twice
+                droppedUpdates.increment(behaviors.size());
+                log.error("Dropping {} baseline updates for user {}: {}", behaviors.size(), userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fold behaviors of one user into the baseline and save it. Concurrent
+     * writers on other nodes are resolved by reloading and reapplying them.
+     */
+    private void save(BehaviorBaseline baseline, List<UserBehavior> behaviors) {
+        BehaviorBaseline current = baseline;
+        for (int attempt = 1; ; attempt++) {
+            behaviors.forEach(current::record);
+            try {
+                baselineRepository.save(current);
+                return;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    droppedUpdates.increment(behaviors.size());
+                    log.warn("Dropping baseline update for user {} after {} conflicting writes",
+                            baseline.getUserId(), attempt);
+                    return;
+                }
+                current = load(baseline.getUserId());
+            }
+        }
+    }
+
+    private BehaviorBaseline upgradeLegacy(BehaviorBaseline stored) {
+        if (stored.hasCurrentLayout()) return stored;
+        // Stored in an older layout; rebuild from history but keep the
+        // version so the next save replaces the document instead of conflicting with it
+        BehaviorBaseline rebuilt = seedFromHistory(stored.getUserId(), Collections.emptySet());
+        rebuilt.setVersion(stored.getVersion());
+        return rebuilt;
+    }
+
+    /** A baseline built from recent history, leaving out behaviors that are about to be folded in. */
+    private BehaviorBaseline seedFromHistory(String userId, Set<String> pendingIds) {
+        BehaviorBaseline baseline = BehaviorBaseline.empty(userId);
+        List<UserBehavior> recent = historyStore.recent(userId, SEED_HISTORY);
+        // Oldest first so the last seen location and weekly windows end on the newest behavior
+        int seeded = 0;
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            if (pendingIds.contains(recent.get(i).getId())) continue;
+            baseline.record(recent.get(i));
+            seeded++;
+        }
+        if (seeded > 0) {
+            log.info("Seeded behavior baseline for user {} from {} historical behaviors", userId, seeded);
+        }
+        return baseline;
+    }
+
+    private static Set<String> idsOf(List<UserBehavior> behaviors) {
+        Set<String> ids = new HashSet<>();
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getId() != null) ids.add(behavior.getId());
+        }
+        return ids;
+    }
+}
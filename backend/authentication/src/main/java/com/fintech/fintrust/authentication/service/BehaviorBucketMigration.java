@@ -0,0 +1,157 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBucket;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Copies the user_behaviors collection into behavior buckets. Users are
+ * split into chunks that are migrated in parallel; each user's history is
+ * read newest first and written as closed buckets, stopping at the oldest
+ * behavior already bucketed; behaviors at that same millisecond are checked
+ * by id. An interrupted run therefore resumes where it stopped, and running
+ * it again is a no-op. Run it after switching anomaly.behavior.storage to
+ * buckets, so no behavior lands in the old collection afterwards. The source collection is left untouched.
+ */
+@Service
+@Slf4j
+public class BehaviorBucketMigration {
+    private final MongoTemplate mongoTemplate;
+    private final BehaviorHistoryStore historyStore;
+    private final int threads;
+    private final int usersPerChunk;
+
+    public BehaviorBucketMigration(
+            MongoTemplate mongoTemplate,
+            BehaviorHistoryStore historyStore,
+            @Value("${anomaly.behavior.migration.threads:4}") int threads,
+            @Value("${anomaly.behavior.migration.users-per-chunk:100}") int usersPerChunk
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.historyStore = historyStore;
+        this.threads = threads;
+        this.usersPerChunk = usersPerChunk;
+    }
+
+    public synchronized Map<String, Object> migrate() throws InterruptedException {
+        if (!historyStore.isBucketed()) {
+            throw new IllegalStateException("Set anomaly.behavior.storage=buckets before migrating behaviors");
+        }
+        long startedAt = System.currentTimeMillis();
+        List<String> users = mongoTemplate.findDistinct(new Query(), "userId", UserBehavior.class, String.class);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "behavior-migration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<long[]>> chunks = new ArrayList<>();
+        try {
+            for (int from = 0; from < users.size(); from += usersPerChunk) {
+                List<String> chunk = users.subList(from, Math.min(users.size(), from + usersPerChunk));
+                chunks.add(pool.submit(() -> migrateUsers(chunk)));
+            }
+            // behaviors, buckets, failed users
+            long[] totals = new long[3];
+            for (Future<long[]> chunk : chunks) {
+                long[] counts = chunk.get();
+                for (int i = 0; i < totals.length; i++) totals[i] += counts[i];
+            }
+
+            long durationMs = System.currentTimeMillis() - startedAt;
+            log.info("Migrated {} behaviors of {} users into {} buckets in {} ms ({} users failed)",
+                    totals[0], users.size(), totals[1], durationMs, totals[2]);
+            Map<String, Object> report = new HashMap<>();
+            report.put("users", users.size());
+            report.put("chunks", chunks.size());
+            report.put("behaviors", totals[0]);
+            report.put("buckets", totals[1]);
+            report.put("failedUsers", totals[2]);
+            report.put("durationMs", durationMs);
+            return report;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Behavior migration failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long[] migrateUsers(List<String> users) {
+        long[] counts = new long[3];
+        for (String userId : users) {
+            try {
+                long[] migrated = migrateUser(userId);
+                counts[0] += migrated[0];
+                counts[1] += migrated[1];
+            } catch (RuntimeException e) {
+                // Later runs pick the user up again from its oldest bucketed behavior
+                log.error("Behavior migration failed for user {}: {}", userId, e.getMessage());
+                counts[2]++;
+            }
+        }
+        return counts;
+    }
+
+    private long[] migrateUser(String userId) {
+        long oldest = historyStore.oldestBucketedMillis(userId);
+        Criteria criteria = Criteria.where("userId").is(userId);
+        // Behaviors sharing the oldest bucketed millisecond may not all have been bucketed yet
+        Set<String> bucketedAtOldest = Set.of();
+        if (oldest != Long.MAX_VALUE) {
+            criteria = criteria.and("timestamp")
+                    .lte(LocalDateTime.ofInstant(Instant.ofEpochMilli(oldest), ZoneId.systemDefault()));
+            bucketedAtOldest = historyStore.bucketedIdsAt(userId, oldest);
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "timestamp"));
+
+        long behaviors = 0;
+        long buckets = 0;
+        List<UserBehavior> page = new ArrayList<>(BehaviorBucket.MAX_ENTRIES);
+        try (Stream<UserBehavior> history = mongoTemplate.stream(query, UserBehavior.class)) {
+            for (UserBehavior behavior : (Iterable<UserBehavior>) history::iterator) {
+                if (bucketedAtOldest.contains(behavior.getId())) continue;
+                page.add(behavior);
+                if (page.size() == BehaviorBucket.MAX_ENTRIES) {
+                    behaviors += writePage(userId, page);
+                    buckets++;
+                }
+            }
+        }
+        if (!page.isEmpty()) {
+            behaviors += writePage(userId, page);
+            buckets++;
+        }
+        return new long[]{behaviors, buckets};
+    }
+
+    private int writePage(String userId, List<UserBehavior> newestFirst) {
+        int size = newestFirst.size();
+        Collections.reverse(newestFirst);
+        historyStore.insertClosedBucket(userId, newestFirst);
+        newestFirst.clear();
+        return size;
+    }
+}
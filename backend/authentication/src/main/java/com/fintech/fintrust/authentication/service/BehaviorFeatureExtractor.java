@@ -0,0 +1,63 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.FeatureSchema;
+import com.fintech.fintrust.authentication.model.FeatureStats;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+
+/**
+ * Computes a behavior's deviations from the user's baseline in a single pass
+ * over the raw {@link FeatureSchema} vector and the baseline's columnar stats.
+ * The deviation vector feeds the isolation forest directly, and the heuristic
+ * sub-scores are derived from it. Deviations that cannot be computed (missing
+ * signal or empty baseline) are NaN.
+ */
+public final class BehaviorFeatureExtractor {
+    // Slots [0, FeatureSchema.SCALAR_FEATURES) line up with the same FeatureSchema columns
+    public static final int TYPING_SPEED_DEVIATION = 0;
+    public static final int TAP_PRESSURE_DEVIATION = 1;
+    public static final int SESSION_DURATION_DEVIATION = 2;
+    public static final int LOCATION_DISTANCE_KM = 3;
+    public static final int UNKNOWN_DEVICE = 4;
+    public static final int FEATURE_COUNT = 5;
+
+    private BehaviorFeatureExtractor() {
+    }
+
+    public static double[] extract(UserBehavior behavior, BehaviorBaseline baseline) {
+        double[] deviations = new double[FEATURE_COUNT];
+        extract(FeatureSchema.extract(behavior), behavior.getDeviceId(), baseline, deviations);
+        return deviations;
+    }
+
+    public static void extract(double[] raw, String deviceId, BehaviorBaseline baseline, double[] out) {
+        FeatureStats stats = baseline.getFeatures();
+        long[] count = stats.getCount();
+        double[] mean = stats.getMean();
+
+        for (int f = 0; f < FeatureSchema.SCALAR_FEATURES; f++) {
+            double value = raw[f];
+            double avg = mean[f];
+            out[f] = value != value || count[f] == 0 || avg == 0.0
+                    ? Double.NaN
+                    : Math.abs(value - avg) / Math.abs(avg);
+        }
+        // Elapsed session time starts at zero in every session, so only running longer than usual deviates
+        double session = raw[FeatureSchema.SESSION_DURATION];
+        if (out[SESSION_DURATION_DEVIATION] == out[SESSION_DURATION_DEVIATION]
+                && session < mean[FeatureSchema.SESSION_DURATION]) {
+            out[SESSION_DURATION_DEVIATION] = 0.0;
+        }
+
+        // Distance to the closest usual place, not to the average of all of them
+        double latitude = raw[FeatureSchema.LATITUDE];
+        out[LOCATION_DISTANCE_KM] = latitude != latitude
+                ? Double.NaN
+                : baseline.getLocations().nearestKm(latitude, raw[FeatureSchema.LONGITUDE]);
+
+        // A missing device id on an account with known devices counts as unknown
+        out[UNKNOWN_DEVICE] = baseline.getDeviceFilter().isEmpty()
+                ? Double.NaN
+                : baseline.isKnownDevice(deviceId) ? 0.0 : 1.0;
+    }
+}
@@ -0,0 +1,342 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBucket;
+import com.fintech.fintrust.authentication.model.LocationClusters;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.repository.UserBehaviorRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Where user behaviors are written and read back, in either storage layout:
+ * one document per behavior in user_behaviors, or per-user
+ * {@link BehaviorBucket}s (anomaly.behavior.storage=buckets). Callers see
+ * plain UserBehaviors either way. In the bucket layout a user's recent
+ * history comes back from one small query instead of one document per
+ * behavior. In the document layout reads project to
+ * {@link UserBehavior#SCORING_FIELDS}, so both layouts return the same fields.
+ */
+@Service
+@Slf4j
+public class BehaviorHistoryStore {
+    public static final String LAYOUT_DOCUMENTS = "documents";
+    public static final String LAYOUT_BUCKETS = "buckets";
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    // Entries pushed per upsert; an open bucket can overshoot MAX_ENTRIES by less than this
+    private static final int PUSH_CHUNK = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserBehaviorRepository behaviorRepository;
+    private final boolean bucketed;
+
+    public BehaviorHistoryStore(
+            MongoTemplate mongoTemplate,
+            UserBehaviorRepository behaviorRepository,
+            @Value("${anomaly.behavior.storage:documents}") String layout
+    ) {
+        if (!LAYOUT_DOCUMENTS.equals(layout) && !LAYOUT_BUCKETS.equals(layout)) {
+            throw new IllegalArgumentException("Unknown behavior storage layout: " + layout);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.behaviorRepository = behaviorRepository;
+        this.bucketed = LAYOUT_BUCKETS.equals(layout);
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        // user_behaviors indexes are declared on UserBehavior and created by MongoIndexInitializer
+        if (!bucketed) return;
+        try {
+            mongoTemplate.indexOps(BehaviorBucket.class).ensureIndex(new Index()
+                    .on("u", Sort.Direction.ASC).on("e", Sort.Direction.ASC).named("user_last"));
+            mongoTemplate.indexOps(BehaviorBucket.class).ensureIndex(new Index()
+                    .on("u", Sort.Direction.ASC).on("n", Sort.Direction.ASC).named("user_fill"));
+            // Cohort sampling reads the buckets written since a point in time
+            mongoTemplate.indexOps(BehaviorBucket.class).ensureIndex(new Index()
+                    .on("e", Sort.Direction.ASC).named("last"));
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure behavior history indexes: {}", e.getMessage());
+        }
+    }
+
+    public boolean isBucketed() {
+        return bucketed;
+    }
+
+    /** Store behaviors in arrival order. */
+    public void append(List<UserBehavior> behaviors) {
+        if (behaviors.isEmpty()) return;
+        if (bucketed) {
+            appendToBuckets(behaviors, false);
+        } else {
+            insertDocuments(behaviors);
+        }
+    }
+
+    /**
+     * Store behaviors that may already be stored in part or in full, from a
+     * replayed journal segment or a retried batch, skipping the ones that are.
+     */
+    public void appendAgain(List<UserBehavior> behaviors) {
+        if (behaviors.isEmpty()) return;
+        if (bucketed) {
+            appendToBuckets(behaviors, true);
+        } else {
+            // Documents are keyed by behavior id, so repeats fail as duplicates and are skipped
+            insertDocuments(behaviors);
+        }
+    }
+
+    /** The user's last {@code limit} behaviors, newest first. */
+    public List<UserBehavior> recent(String userId, int limit) {
+        if (!bucketed) {
+            return behaviorRepository.findScoringFieldsByUserId(userId, PageRequest.of(0, limit));
+        }
+        // The open bucket may be nearly empty, so read one more than the entries need
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "lastMillis"))
+                .limit(limit / BehaviorBucket.MAX_ENTRIES + 2);
+        List<BehaviorBucket.Entry> entries = new ArrayList<>();
+        for (BehaviorBucket bucket : mongoTemplate.find(query, BehaviorBucket.class)) {
+            entries.addAll(bucket.getEntries());
+        }
+        entries.sort(Comparator.comparingLong(BehaviorBucket.Entry::getTimestampMillis).reversed());
+        List<UserBehavior> recent = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            recent.add(entries.get(i).toBehavior(userId));
+        }
+        return recent;
+    }
+
+    /** Every stored behavior, grouped by user and in time order within a user. Close the stream. */
+    public Stream<UserBehavior> streamAll() {
+        return streamUsers(null, null);
+    }
+
+    /**
+     * Stored behaviors of users in [fromUserId, toUserId), either bound null for
+     * open, grouped by user and in time order within a user. Close the stream.
+     */
+    public Stream<UserBehavior> streamUsers(String fromUserId, String toUserId) {
+        Criteria users = userRange(fromUserId, toUserId);
+        if (!bucketed) {
+            // Users in descending order: the reverse of the user_time index, so the sort needs no memory
+            Query query = new BasicQuery(users.getCriteriaObject(), Document.parse(UserBehavior.SCORING_FIELDS))
+                    .with(Sort.by(Sort.Order.desc("userId"), Sort.Order.asc("timestamp")));
+            return mongoTemplate.stream(query, UserBehavior.class);
+        }
+        return mongoTemplate.stream(Query.query(users).with(Sort.by("userId", "lastMillis")), BehaviorBucket.class)
+                .flatMap(bucket -> bucket.getEntries().stream()
+                        .sorted(Comparator.comparingLong(BehaviorBucket.Entry::getTimestampMillis))
+                        .map(entry -> entry.toBehavior(bucket.getUserId())));
+    }
+
+    /** User ids of up to {@code size} random stored documents, so users with more history come up more often. */
+    public List<String> sampleUserIds(int size) {
+        String userField = bucketed ? "u" : "userId";
+        String collection = mongoTemplate.getCollectionName(bucketed ? BehaviorBucket.class : UserBehavior.class);
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.sample(size), Aggregation.project(userField));
+        List<String> userIds = new ArrayList<>(size);
+        for (Document document : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            String userId = document.getString(userField);
+            if (userId != null) userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    /** Device types of behaviors stored since the given time, null for behaviors without one. */
+    public List<String> deviceTypesSince(LocalDateTime since) {
+        List<String> deviceTypes = new ArrayList<>();
+        if (!bucketed) {
+            deviceTypes.addAll(mongoTemplate.findDistinct(Query.query(Criteria.where("timestamp").gte(since)),
+                    "deviceType", UserBehavior.class, String.class));
+        } else {
+            Query recentBuckets = Query.query(Criteria.where("e").gte(LocationClusters.epochMillis(since)));
+            deviceTypes.addAll(mongoTemplate.findDistinct(recentBuckets, "b.dt",
+                    mongoTemplate.getCollectionName(BehaviorBucket.class), String.class));
+        }
+        deviceTypes.remove(null);
+        deviceTypes.add(null);
+        return deviceTypes;
+    }
+
+    /**
+     * Up to {@code size} behaviors of one device type (null for none) stored
+     * since the given time, picked at random by the database and projected to
+     * the scoring fields.
+     */
+    public List<UserBehavior> sample(String deviceType, LocalDateTime since, int size) {
+        if (!bucketed) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("timestamp").gte(since).and("deviceType").is(deviceType)),
+                    Aggregation.sample(size),
+                    context -> new Document("$project", Document.parse(UserBehavior.SCORING_FIELDS)));
+            return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(UserBehavior.class),
+                    UserBehavior.class).getMappedResults();
+        }
+        long sinceMillis = LocationClusters.epochMillis(since);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("e").gte(sinceMillis)),
+                Aggregation.unwind("b"),
+                Aggregation.match(Criteria.where("b.t").gte(sinceMillis).and("b.dt").is(deviceType)),
+                Aggregation.sample(size),
+                Aggregation.project("u", "b"));
+        List<UserBehavior> sampled = new ArrayList<>(size);
+        for (Document document : mongoTemplate.aggregate(aggregation,
+                mongoTemplate.getCollectionName(BehaviorBucket.class), Document.class)) {
+            BehaviorBucket.Entry entry = mongoTemplate.getConverter().read(BehaviorBucket.Entry.class,
+                    document.get("b", Document.class));
+            sampled.add(entry.toBehavior(document.getString("u")));
+        }
+        return sampled;
+    }
+
+    private Criteria userRange(String fromUserId, String toUserId) {
+        // Bucket criteria go through the same property mapping, so "userId" works for both layouts
+        if (fromUserId == null && toUserId == null) return new Criteria();
+        Criteria range = Criteria.where("userId");
+        if (fromUserId != null) range = range.gte(fromUserId);
+        if (toUserId != null) range = range.lt(toUserId);
+        return range;
+    }
+
+    /** Epoch millis of the user's oldest bucketed behavior, or Long.MAX_VALUE if there is none. */
+    long oldestBucketedMillis(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.ASC, "lastMillis"));
+        query.fields().include("firstMillis");
+        BehaviorBucket oldest = mongoTemplate.findOne(query, BehaviorBucket.class);
+        return oldest == null ? Long.MAX_VALUE : oldest.getFirstMillis();
+    }
+
+    /** Ids of the user's bucketed behaviors stored at exactly {@code millis}. */
+    Set<String> bucketedIdsAt(String userId, long millis) {
+        Query query = Query.query(Criteria.where("userId").is(userId)
+                .and("firstMillis").lte(millis)
+                .and("lastMillis").gte(millis));
+        query.fields().include("entries.behaviorId").include("entries.timestampMillis");
+        Set<String> ids = new HashSet<>();
+        for (BehaviorBucket bucket : mongoTemplate.find(query, BehaviorBucket.class)) {
+            for (BehaviorBucket.Entry entry : bucket.getEntries()) {
+                if (entry.getTimestampMillis() == millis && entry.getBehaviorId() != null) ids.add(entry.getBehaviorId());
+            }
+        }
+        return ids;
+    }
+
+    /** Write consecutive, oldest-first behaviors of one user as a closed bucket. */
+    void insertClosedBucket(String userId, List<UserBehavior> behaviors) {
+        List<BehaviorBucket.Entry> entries = new ArrayList<>(behaviors.size());
+        for (UserBehavior behavior : behaviors) {
+            entries.add(BehaviorBucket.Entry.of(behavior));
+        }
+        mongoTemplate.insert(BehaviorBucket.builder()
+                .userId(userId)
+                .firstMillis(entries.get(0).getTimestampMillis())
+                .lastMillis(entries.get(entries.size() - 1).getTimestampMillis())
+                .count(entries.size())
+                .closed(true)
+                .entries(entries)
+                .build());
+    }
+
+    private void appendToBuckets(List<UserBehavior> behaviors, boolean mayBeStored) {
+        // Reading back the open buckets costs more than the write, so only repeats pay for it
+        Set<String> stored = mayBeStored ? storedIds(behaviors) : new HashSet<>();
+        Map<String, List<BehaviorBucket.Entry>> byUser = new LinkedHashMap<>();
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getUserId() == null) continue;
+            if (behavior.getId() != null && !stored.add(behavior.getId())) continue;
+            byUser.computeIfAbsent(behavior.getUserId(), key -> new ArrayList<>()).add(BehaviorBucket.Entry.of(behavior));
+        }
+        if (byUser.isEmpty()) return;
+
+        // Ordered, so a user's later chunk sees the bucket its earlier chunk filled
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, BehaviorBucket.class);
+        byUser.forEach((userId, entries) -> {
+            for (int from = 0; from < entries.size(); from += PUSH_CHUNK) {
+                List<BehaviorBucket.Entry> chunk = entries.subList(from, Math.min(entries.size(), from + PUSH_CHUNK));
+                Query openBucket = Query.query(Criteria.where("userId").is(userId)
+                        .and("count").lt(BehaviorBucket.MAX_ENTRIES)
+                        .and("closed").ne(true));
+                long first = Long.MAX_VALUE;
+                long last = Long.MIN_VALUE;
+                for (BehaviorBucket.Entry entry : chunk) {
+                    first = Math.min(first, entry.getTimestampMillis());
+                    last = Math.max(last, entry.getTimestampMillis());
+                }
+                Update update = new Update()
+                        .inc("count", chunk.size())
+                        .min("firstMillis", first)
+                        .max("lastMillis", last);
+                update.push("entries").each(chunk.toArray());
+                operations.upsert(openBucket, update);
+            }
+        });
+        operations.execute();
+    }
+
+    /**
+     * Ids of the given behaviors already in their users' buckets. Only buckets
+     * reaching the batch's oldest behavior are read, the open ones in steady state.
+     */
+    private Set<String> storedIds(List<UserBehavior> behaviors) {
+        Set<String> userIds = new HashSet<>();
+        long since = Long.MAX_VALUE;
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getUserId() == null || behavior.getId() == null) continue;
+            userIds.add(behavior.getUserId());
+            since = Math.min(since, LocationClusters.epochMillis(behavior.getTimestamp()));
+        }
+        Set<String> stored = new HashSet<>();
+        if (userIds.isEmpty()) return stored;
+        Query query = Query.query(Criteria.where("userId").in(userIds).and("lastMillis").gte(since));
+        query.fields().include("entries.behaviorId");
+        for (BehaviorBucket bucket : mongoTemplate.find(query, BehaviorBucket.class)) {
+            for (BehaviorBucket.Entry entry : bucket.getEntries()) {
+                if (entry.getBehaviorId() != null) stored.add(entry.getBehaviorId());
+            }
+        }
+        return stored;
+    }
+
+    private void insertDocuments(List<UserBehavior> behaviors) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserBehavior.class)
+                    .insert(behaviors)
+                    .execute();
+        } catch (BulkOperationException e) {
+            // Replayed journal entries may already be stored; those ids are safe to skip
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Records requests allowed from the session decision cache. The behavior is
+ * stored through the write-behind on the request thread; the baseline, the
+ * shared-infrastructure graph, drift and the event store are updated off it,
+ * so a cache hit stays a lookup. When the recording pool is saturated that
+ * update is dropped and counted, never run on the request thread.
+ */
+@Service
+@Slf4j
+public class CachedDecisionRecorder {
+
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final UserBehaviorWriteBehindService behaviorWriter;
+    private final Executor executor;
+    private final Counter dropped;
+
+    public CachedDecisionRecorder(
+            AnomalyDetectionService anomalyDetectionService,
+            UserBehaviorWriteBehindService behaviorWriter,
+            @Qualifier("behaviorRecordingExecutor") Executor executor,
+            MeterRegistry meterRegistry
+    ) {
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.behaviorWriter = behaviorWriter;
+        this.executor = executor;
+        this.dropped = meterRegistry.counter("anomaly.recording.dropped");
+    }
+
+    public void record(UserBehavior behavior, double score, String confidence) {
+        behaviorWriter.submit(behavior);
+        try {
+            executor.execute(() -> recordQuietly(behavior, score, confidence));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void recordQuietly(UserBehavior behavior, double score, String confidence) {
+        try {
+            anomalyDetectionService.recordCachedDecision(behavior, score, confidence);
+        } catch (RuntimeException e) {
+            log.warn("Recording cached decision failed for user {}: {}", behavior.getUserId(), e.getMessage());
+        }
+    }
+}
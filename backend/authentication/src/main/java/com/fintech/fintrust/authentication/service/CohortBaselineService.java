@@ -0,0 +1,182 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Population and cohort baselines for scoring users who do not have enough
+ * history of their own yet. Cohorts are by device type, by region (the whole
+ * degrees of the location hash) and by both. They are rebuilt periodically
+ * from a random sample of recent behaviors, one database sample per device
+ * type in parallel, and swapped in whole. A new user is scored against the
+ * most specific cohort with enough samples, with their own devices, IP
+ * addresses and navigation laid over it (see
+ * {@link BehaviorBaseline#againstCohort}).
+ */
+@Service
+@Slf4j
+public class CohortBaselineService {
+    public static final String POPULATION = "population";
+
+    private final BehaviorHistoryStore historyStore;
+    private final boolean enabled;
+    private final Duration window;
+    private final int samplesPerDeviceType;
+    private final long minCohortSamples;
+    private final long minUserHistory;
+    private final int threads;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Map<String, BehaviorBaseline> cohorts = Map.of();
+    private volatile LocalDateTime builtAt;
+
+    public CohortBaselineService(
+            BehaviorHistoryStore historyStore,
+            @Value("${anomaly.cohorts.enabled:true}") boolean enabled,
+            @Value("${anomaly.cohorts.window-days:30}") long windowDays,
+            @Value("${anomaly.cohorts.samples-per-device-type:20000}") int samplesPerDeviceType,
+            @Value("${anomaly.cohorts.min-samples:200}") long minCohortSamples,
+            @Value("${anomaly.cohorts.min-user-history:20}") long minUserHistory,
+            @Value("${anomaly.cohorts.threads:4}") int threads
+    ) {
+        this.historyStore = historyStore;
+        this.enabled = enabled;
+        this.window = Duration.ofDays(windowDays);
+        this.samplesPerDeviceType = samplesPerDeviceType;
+        this.minCohortSamples = minCohortSamples;
+        this.minUserHistory = minUserHistory;
+        this.threads = threads;
+    }
+
+    /** A baseline to score against, and the cohort it came from. */
+    public record Match(String cohort, BehaviorBaseline baseline) {
+    }
+
+    /**
+     * The cohort view to score the behavior against while the user has fewer
+     * than anomaly.cohorts.min-user-history behaviors, or null to score against
+     * the user's own baseline.
+     */
+    public Match match(UserBehavior behavior, BehaviorBaseline own) {
+        if (!enabled || own.getSampleCount() >= minUserHistory) return null;
+        Map<String, BehaviorBaseline> current = cohorts;
+        for (String key : candidateKeys(behavior)) {
+            BehaviorBaseline cohort = current.get(key);
+            if (cohort != null && cohort.getSampleCount() >= minCohortSamples) {
+                return new Match(key, own.againstCohort(cohort));
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.cohorts.refresh-ms:3600000}",
+            initialDelayString = "${anomaly.cohorts.initial-delay-ms:60000}")
+    public void scheduledRefresh() {
+        if (!enabled) return;
+        try {
+            refresh();
+        } catch (DataAccessException | IllegalStateException e) {
+            log.warn("Could not rebuild cohort baselines: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Rebuild every cohort from a fresh sample; returns a summary, or the current one if a rebuild is running. */
+    public Map<String, Object> refresh() throws InterruptedException {
+        if (!refreshing.compareAndSet(false, true)) return summary();
+        long startedAt = System.currentTimeMillis();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cohort-baselines-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            LocalDateTime since = LocalDateTime.now().minus(window);
+            List<Future<List<UserBehavior>>> samples = new ArrayList<>();
+            for (String deviceType : historyStore.deviceTypesSince(since)) {
+                samples.add(pool.submit(() -> historyStore.sample(deviceType, since, samplesPerDeviceType)));
+            }
+
+            Map<String, BehaviorBaseline> rebuilt = new HashMap<>();
+            long sampled = 0;
+            for (Future<List<UserBehavior>> sample : samples) {
+                for (UserBehavior behavior : sample.get()) {
+                    for (String key : candidateKeys(behavior)) {
+                        rebuilt.computeIfAbsent(key, BehaviorBaseline::empty).record(behavior);
+                    }
+                    sampled++;
+                }
+            }
+            cohorts = Map.copyOf(rebuilt);
+            builtAt = LocalDateTime.now();
+            log.info("Rebuilt {} cohort baselines from {} sampled behaviors in {} ms",
+                    rebuilt.size(), sampled, System.currentTimeMillis() - startedAt);
+            return summary();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cohort baseline rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            refreshing.set(false);
+        }
+    }
+
+    /** Sample counts per cohort, and when they were built. */
+    public Map<String, Object> summary() {
+        Map<String, BehaviorBaseline> current = cohorts;
+        Map<String, Long> samples = new LinkedHashMap<>();
+        current.keySet().stream().sorted().forEach(key -> samples.put(key, current.get(key).getSampleCount()));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", enabled);
+        summary.put("builtAt", builtAt);
+        summary.put("minCohortSamples", minCohortSamples);
+        summary.put("minUserHistory", minUserHistory);
+        summary.put("cohorts", samples);
+        return summary;
+    }
+
+    /** Cohorts a behavior belongs to, most specific first. */
+    private static List<String> candidateKeys(UserBehavior behavior) {
+        List<String> keys = new ArrayList<>(4);
+        String device = behavior.getDeviceType() == null ? null : "device:" + behavior.getDeviceType();
+        String region = regionOf(behavior.getLocationHash());
+        if (device != null && region != null) keys.add(device + "|" + region);
+        if (device != null) keys.add(device);
+        if (region != null) keys.add(region);
+        keys.add(POPULATION);
+        return keys;
+    }
+
+    /** Whole-degree cell of a "lat,lon" location hash in hundredths of a degree, about 100 km across. */
+    private static String regionOf(String locationHash) {
+        if (locationHash == null) return null;
+        int comma = locationHash.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            int latitude = Integer.parseInt(locationHash.substring(0, comma)) / 100;
+            int longitude = Integer.parseInt(locationHash.substring(comma + 1)) / 100;
+            return "region:" + latitude + "," + longitude;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
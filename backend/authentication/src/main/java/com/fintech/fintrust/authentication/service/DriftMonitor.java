@@ -0,0 +1,377 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyDetectionResult;
+import com.fintech.fintrust.authentication.model.FeatureSchema;
+import com.fintech.fintrust.authentication.model.QuantileSketch;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches the anomaly score and the scalar behavior features for drift, per
+ * app version and device type. Every scored request is folded into fixed-size
+ * quantile sketches for the current time slice; closed slices make up the
+ * current window, and slices that age out of it are merged into per-period
+ * sketches that make up the reference window. A scheduled check compares the
+ * two windows with PSI and KL divergence over the reference's deciles and
+ * raises an alert when PSI crosses the threshold. Raw behaviors are never read
+ * back. A new app version without a reference of its own is compared with the
+ * reference of its device type across versions, which is what catches a
+ * release that changes how a signal is measured. Segments with no samples
+ * left in either window are evicted, with their gauges, so versions that are
+ * no longer seen make room for new ones.
+ */
+@Service
+@Slf4j
+public class DriftMonitor {
+    public static final String ANY_VERSION = "*";
+    // Column 0 is the score, the rest line up with FeatureSchema's scalar columns
+    public static final List<String> SIGNALS = List.of("score", "typingSpeed", "tapPressure", "sessionDuration");
+
+    private static final String UNKNOWN = "unknown";
+    private static final int BINS = 10;
+    private static final int BISECTION_STEPS = 50;
+    // Floor for empty bins, so PSI and KL stay finite
+    private static final double EPSILON = 1e-4;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long sliceMs;
+    private final int currentSlices;
+    private final int slicesPerPeriod;
+    private final int referencePeriods;
+    private final long minSamples;
+    private final double psiAlert;
+    private final int stripes;
+    private final int maxSegments;
+    private final Counter droppedSegments;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private volatile LocalDateTime checkedAt;
+
+    public DriftMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.drift.enabled:true}") boolean enabled,
+            @Value("${anomaly.drift.slice-ms:3600000}") long sliceMs,
+            @Value("${anomaly.drift.current-slices:24}") int currentSlices,
+            @Value("${anomaly.drift.slices-per-reference-period:24}") int slicesPerPeriod,
+            @Value("${anomaly.drift.reference-periods:7}") int referencePeriods,
+            @Value("${anomaly.drift.min-samples:500}") long minSamples,
+            @Value("${anomaly.drift.psi-alert:0.25}") double psiAlert,
+            @Value("${anomaly.drift.stripes:8}") int stripes,
+            @Value("${anomaly.drift.max-segments:200}") int maxSegments
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sliceMs = sliceMs;
+        this.currentSlices = currentSlices;
+        this.slicesPerPeriod = slicesPerPeriod;
+        this.referencePeriods = referencePeriods;
+        this.minSamples = minSamples;
+        this.psiAlert = psiAlert;
+        this.stripes = stripes;
+        this.maxSegments = maxSegments;
+        this.droppedSegments = meterRegistry.counter("anomaly.drift.segments.dropped");
+    }
+
+    /** Fold a scored behavior into its app version's and its device type's sketches. */
+    public void record(UserBehavior behavior, AnomalyDetectionResult result) {
+        if (!enabled || result.getOverallAnomalyScore() == null) return;
+        double[] values = new double[SIGNALS.size()];
+        values[0] = result.getOverallAnomalyScore();
+        double[] raw = FeatureSchema.extract(behavior);
+        System.arraycopy(raw, 0, values, 1, FeatureSchema.SCALAR_FEATURES);
+
+        String deviceType = behavior.getDeviceType() == null ? UNKNOWN : behavior.getDeviceType();
+        Segment version = segment(appVersionOf(behavior) + "|" + deviceType);
+        Segment allVersions = segment(ANY_VERSION + "|" + deviceType);
+        if (version != null) version.add(values);
+        if (allVersions != null) allVersions.add(values);
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.drift.check-ms:300000}")
+    public void check() {
+        if (!enabled) return;
+        long slice = System.currentTimeMillis() / sliceMs;
+        segments.values().forEach(segment -> segment.rotate(slice));
+        for (Segment segment : segments.values()) {
+            if (segment.isEmpty() && segments.remove(segment.key, segment)) {
+                segment.removeGauges();
+            }
+        }
+        for (Segment segment : segments.values()) {
+            Segment fallback = segments.get(ANY_VERSION + "|" + segment.deviceType);
+            segment.compare(fallback == segment ? null : fallback);
+        }
+        checkedAt = LocalDateTime.now();
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("checkedAt", checkedAt);
+        report.put("psiAlert", psiAlert);
+        report.put("minSamples", minSamples);
+        List<String> alerts = new ArrayList<>();
+        Map<String, Object> bySegment = new TreeMap<>();
+        for (Segment segment : segments.values()) {
+            Comparison[] comparisons = segment.comparisons;
+            Map<String, Object> signals = new LinkedHashMap<>();
+            for (int s = 0; s < comparisons.length; s++) {
+                Comparison comparison = comparisons[s];
+                if (comparison == null) continue;
+                signals.put(SIGNALS.get(s), comparison.toMap());
+                if (comparison.alert) alerts.add(segment.key + "/" + SIGNALS.get(s));
+            }
+            bySegment.put(segment.key, signals);
+        }
+        alerts.sort(null);
+        report.put("alerts", alerts);
+        report.put("segments", bySegment);
+        return report;
+    }
+
+    private Segment segment(String key) {
+        Segment segment = segments.get(key);
+        if (segment != null) return segment;
+        if (segments.size() >= maxSegments) {
+            droppedSegments.increment();
+            return null;
+        }
+        return segments.computeIfAbsent(key, Segment::new);
+    }
+
+    private static String appVersionOf(UserBehavior behavior) {
+        Object version = behavior.getContextData() == null ? null : behavior.getContextData().get("appVersion");
+        return version == null ? UNKNOWN : version.toString();
+    }
+
+    /**
+     * PSI and KL(current || reference) over the reference's deciles, bounded by
+     * its min and max so values outside the reference range get bins of their own.
+     */
+    private static double[] divergence(QuantileSketch reference, QuantileSketch current) {
+        double[] edges = decileEdges(reference);
+        double psi = 0;
+        double kl = 0;
+        double previousReference = 0;
+        double previousCurrent = 0;
+        for (int i = 0; i <= edges.length; i++) {
+            double referenceCdf = i < edges.length ? reference.cdf(edges[i]) : 1.0;
+            double currentCdf = i < edges.length ? current.cdf(edges[i]) : 1.0;
+            double r = Math.max(referenceCdf - previousReference, EPSILON);
+            double c = Math.max(currentCdf - previousCurrent, EPSILON);
+            psi += (c - r) * Math.log(c / r);
+            kl += c * Math.log(c / r);
+            previousReference = referenceCdf;
+            previousCurrent = currentCdf;
+        }
+        return new double[]{psi, kl};
+    }
+
+    private static double[] decileEdges(QuantileSketch sketch) {
+        double[] edges = new double[BINS + 1];
+        int size = 0;
+        edges[size++] = sketch.getMin();
+        for (int q = 1; q < BINS; q++) {
+            double edge = quantile(sketch, (double) q / BINS);
+            if (edge > edges[size - 1]) edges[size++] = edge;
+        }
+        if (sketch.getMax() > edges[size - 1]) edges[size++] = sketch.getMax();
+        return Arrays.copyOf(edges, size);
+    }
+
+    /** Inverse of the sketch's CDF by bisection between its min and max. */
+    private static double quantile(QuantileSketch sketch, double q) {
+        double low = sketch.getMin();
+        double high = sketch.getMax();
+        for (int i = 0; i < BISECTION_STEPS && low < high; i++) {
+            double middle = low + (high - low) / 2;
+            if (sketch.cdf(middle) < q) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    private static QuantileSketch[] emptySketches() {
+        QuantileSketch[] sketches = new QuantileSketch[SIGNALS.size()];
+        for (int s = 0; s < sketches.length; s++) sketches[s] = QuantileSketch.empty();
+        return sketches;
+    }
+
+    private static void mergeInto(QuantileSketch[] target, QuantileSketch[] source) {
+        for (int s = 0; s < target.length; s++) target[s].merge(source[s]);
+    }
+
+    private record Comparison(double psi, double kl, long referenceSamples, long currentSamples, String reference,
+                              boolean alert) {
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("psi", psi);
+            map.put("kl", kl);
+            map.put("reference", reference);
+            map.put("referenceSamples", referenceSamples);
+            map.put("currentSamples", currentSamples);
+            map.put("alert", alert);
+            return map;
+        }
+    }
+
+    /** Sketches of one time slice, or of one reference period. */
+    private static final class Window {
+        final long index;
+        final QuantileSketch[] sketches = emptySketches();
+
+        Window(long index) {
+            this.index = index;
+        }
+    }
+
+    private final class Segment {
+        final String key;
+        final String deviceType;
+        // The open slice is striped so concurrent requests rarely share a lock
+        final QuantileSketch[][] open = new QuantileSketch[stripes][];
+        final ArrayDeque<Window> recent = new ArrayDeque<>();
+        final ArrayDeque<Window> reference = new ArrayDeque<>();
+        final double[] psi = new double[SIGNALS.size()];
+        final boolean[] alerting = new boolean[SIGNALS.size()];
+        final List<Meter> gauges = new ArrayList<>();
+        volatile Comparison[] comparisons = new Comparison[SIGNALS.size()];
+        long openSlice = System.currentTimeMillis() / sliceMs;
+
+        Segment(String key) {
+            this.key = key;
+            this.deviceType = key.substring(key.indexOf('|') + 1);
+            for (int i = 0; i < open.length; i++) open[i] = emptySketches();
+            Arrays.fill(psi, Double.NaN);
+            for (int s = 0; s < psi.length; s++) {
+                int signal = s;
+                gauges.add(Gauge.builder("anomaly.drift.psi", this, segment -> segment.psi[signal])
+                        .tag("segment", key)
+                        .tag("signal", SIGNALS.get(s))
+                        .register(meterRegistry));
+            }
+        }
+
+        void add(double[] values) {
+            QuantileSketch[] stripe = open[(int) Math.floorMod(Thread.currentThread().getId(), (long) open.length)];
+            synchronized (stripe) {
+                for (int s = 0; s < values.length; s++) stripe[s].add(values[s]);
+            }
+        }
+
+        /** Close the open slice once time has moved past it, and age windows out. */
+        synchronized void rotate(long slice) {
+            if (slice <= openSlice) return;
+            Window closed = new Window(openSlice);
+            for (QuantileSketch[] stripe : open) {
+                synchronized (stripe) {
+                    mergeInto(closed.sketches, stripe);
+                    for (int s = 0; s < stripe.length; s++) stripe[s] = QuantileSketch.empty();
+                }
+            }
+            recent.addLast(closed);
+            openSlice = slice;
+
+            while (!recent.isEmpty() && recent.peekFirst().index <= slice - currentSlices) {
+                Window aged = recent.pollFirst();
+                long period = aged.index / slicesPerPeriod;
+                Window last = reference.peekLast();
+                if (last == null || last.index != period) {
+                    last = new Window(period);
+                    reference.addLast(last);
+                }
+                mergeInto(last.sketches, aged.sketches);
+            }
+            long currentPeriod = (slice - currentSlices) / slicesPerPeriod;
+            while (!reference.isEmpty() && reference.peekFirst().index < currentPeriod - referencePeriods) {
+                reference.pollFirst();
+            }
+        }
+
+        /** True once neither window nor the open slice holds a sample. */
+        synchronized boolean isEmpty() {
+            if (!recent.isEmpty() || !reference.isEmpty()) return false;
+            for (QuantileSketch[] stripe : open) {
+                synchronized (stripe) {
+                    if (stripe[0].getCount() > 0) return false;
+                }
+            }
+            return true;
+        }
+
+        void removeGauges() {
+            gauges.forEach(meterRegistry::remove);
+        }
+
+        synchronized QuantileSketch[] referenceSketches() {
+            QuantileSketch[] merged = emptySketches();
+            reference.forEach(window -> mergeInto(merged, window.sketches));
+            return merged;
+        }
+
+        synchronized QuantileSketch[] currentSketches() {
+            QuantileSketch[] merged = emptySketches();
+            recent.forEach(window -> mergeInto(merged, window.sketches));
+            for (QuantileSketch[] stripe : open) {
+                synchronized (stripe) {
+                    mergeInto(merged, stripe);
+                }
+            }
+            return merged;
+        }
+
+        void compare(Segment fallback) {
+            QuantileSketch[] own = referenceSketches();
+            QuantileSketch[] shared = fallback == null ? null : fallback.referenceSketches();
+            QuantileSketch[] current = currentSketches();
+            Comparison[] results = new Comparison[SIGNALS.size()];
+            for (int s = 0; s < results.length; s++) {
+                QuantileSketch baseline = own[s];
+                String name = key;
+                if (baseline.getCount() < minSamples && shared != null) {
+                    baseline = shared[s];
+                    name = fallback.key;
+                }
+                if (baseline.getCount() < minSamples || current[s].getCount() < minSamples) {
+                    psi[s] = Double.NaN;
+                    alerting[s] = false;
+                    continue;
+                }
+                double[] divergence = divergence(baseline, current[s]);
+                boolean alert = divergence[0] > psiAlert;
+                if (alert && !alerting[s]) {
+                    log.warn("Drift in {} for {}: PSI {} against {} ({} reference, {} current samples)",
+                            SIGNALS.get(s), key, String.format("%.3f", divergence[0]), name,
+                            baseline.getCount(), current[s].getCount());
+                    meterRegistry.counter("anomaly.drift.alerts", "segment", key, "signal", SIGNALS.get(s))
+                            .increment();
+                }
+                alerting[s] = alert;
+                psi[s] = divergence[0];
+                results[s] = new Comparison(divergence[0], divergence[1], baseline.getCount(), current[s].getCount(),
+                        name, alert);
+            }
+            comparisons = results;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.util.IsolationForest;
+
+/**
+ * Scores the behavior's baseline-deviation feature vector with an isolation forest.
+ * The vector is the one already computed for the sub-scores, so it is not re-extracted.
+ */
+public class IsolationForestScorer implements AnomalyScorer {
+    private final IsolationForest forest;
+
+    public IsolationForestScorer(IsolationForest forest) {
+        if (forest.getNumFeatures() != BehaviorFeatureExtractor.FEATURE_COUNT) {
+            throw new IllegalArgumentException("Isolation forest has " + forest.getNumFeatures()
+                    + " features, expected " + BehaviorFeatureExtractor.FEATURE_COUNT);
+        }
+        this.forest = forest;
+    }
+
+    @Override
+    public double score(UserBehavior behavior, BehaviorBaseline baseline, SubScores subScores) {
+        return forest.score(subScores.getDeviations());
+    }
+
+    public IsolationForest getForest() {
+        return forest;
+    }
+}
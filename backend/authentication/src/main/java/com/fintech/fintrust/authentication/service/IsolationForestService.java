@@ -0,0 +1,180 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.FeatureSchema;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.util.IsolationForest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Trains isolation forests offline from the stored user behaviors and
+ * registers each one as a new model version. Training replays each user's
+ * history in time order against an in-memory baseline, so every sample is the
+ * deviation a live request would have seen at that point. Forest scores do not
+ * share the heuristic's scale, so the overall score cut-offs are calibrated
+ * from the training scores: medium at the 95th percentile, anomaly at the
+ * 99th, up to critical at the 99.9th.
+ */
+@Service
+@Slf4j
+public class IsolationForestService {
+    private static final DateTimeFormatter VERSION_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final BehaviorHistoryStore historyStore;
+    private final ModelRegistry modelRegistry;
+    private final Path modelDirectory;
+    private final int numTrees;
+    private final int sampleSize;
+    private final int maxTrainingSamples;
+    private final long seed;
+
+    public IsolationForestService(
+            BehaviorHistoryStore historyStore,
+            ModelRegistry modelRegistry,
+            @Value("${anomaly.models.directory:data/models}") String modelDirectory,
+            @Value("${anomaly.isolation-forest.trees:100}") int numTrees,
+            @Value("${anomaly.isolation-forest.sample-size:256}") int sampleSize,
+            @Value("${anomaly.isolation-forest.training.max-samples:100000}") int maxTrainingSamples,
+            @Value("${anomaly.isolation-forest.training.seed:42}") long seed
+    ) {
+        this.historyStore = historyStore;
+        this.modelRegistry = modelRegistry;
+        this.modelDirectory = Paths.get(modelDirectory);
+        this.numTrees = numTrees;
+        this.sampleSize = sampleSize;
+        this.maxTrainingSamples = maxTrainingSamples;
+        this.seed = seed;
+    }
+
+    /**
+     * Train a new forest from stored behaviors and register it as a new model
+     * version. The model is not activated; samples beyond the configured
+     * maximum are reservoir-sampled.
+     */
+    public Map<String, Object> train() throws IOException {
+        long startedAt = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] reservoir = new double[maxTrainingSamples][];
+        long seen = 0;
+        long users = 0;
+
+        try (Stream<UserBehavior> behaviors = historyStore.streamAll()) {
+            String currentUser = null;
+            BehaviorBaseline baseline = null;
+            for (UserBehavior behavior : (Iterable<UserBehavior>) behaviors::iterator) {
+                if (behavior.getUserId() == null) continue;
+                if (!behavior.getUserId().equals(currentUser)) {
+                    currentUser = behavior.getUserId();
+                    baseline = BehaviorBaseline.empty(currentUser);
+                    users++;
+                }
+                double[] raw = FeatureSchema.extract(behavior);
+                // A user's first behavior only creates the baseline, as in live scoring
+                if (baseline.getSampleCount() > 0) {
+                    double[] features = new double[BehaviorFeatureExtractor.FEATURE_COUNT];
+                    BehaviorFeatureExtractor.extract(raw, behavior.getDeviceId(), baseline, features);
+                    if (seen < maxTrainingSamples) {
+                        reservoir[(int) seen] = features;
+                    } else {
+                        long slot = random.nextLong(seen + 1);
+                        if (slot < maxTrainingSamples) reservoir[(int) slot] = features;
+                    }
+                    seen++;
+                }
+                baseline.record(behavior, raw);
+            }
+        }
+
+        int sampleCount = (int) Math.min(seen, maxTrainingSamples);
+        if (sampleCount == 0) {
+            throw new IllegalStateException("No behaviors with an established baseline to train on");
+        }
+        double[][] samples = sampleCount == reservoir.length ? reservoir : Arrays.copyOf(reservoir, sampleCount);
+        IsolationForest trained = IsolationForest.train(samples, numTrees, sampleSize, seed);
+        AnomalyModelDescriptor.Thresholds thresholds = calibrate(trained, samples);
+
+        Instant createdAt = Instant.now();
+        String version = AnomalyModelDescriptor.ALGORITHM_ISOLATION_FOREST + "-" + VERSION_FORMAT.format(createdAt);
+        String artifact = version + ".bin";
+        save(trained, modelDirectory.resolve(artifact));
+        modelRegistry.register(AnomalyModelDescriptor.builder()
+                .version(version)
+                .algorithm(AnomalyModelDescriptor.ALGORITHM_ISOLATION_FOREST)
+                .description("Isolation forest trained on " + sampleCount + " behaviors from " + users + " users")
+                .artifact(artifact)
+                .createdAt(createdAt)
+                .thresholds(thresholds)
+                .build());
+
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("Trained isolation forest {} on {} samples from {} users in {} ms",
+                version, sampleCount, users, durationMs);
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("version", version);
+        summary.put("users", users);
+        summary.put("eligibleBehaviors", seen);
+        summary.put("trainingSamples", sampleCount);
+        summary.put("trees", trained.getNumTrees());
+        summary.put("subsampleSize", trained.getSampleSize());
+        summary.put("thresholds", thresholds);
+        summary.put("durationMs", durationMs);
+        return summary;
+    }
+
+    /**
+     * Overall score cut-offs at fixed percentiles of the forest's scores on its
+     * own training data, so each action fires for the same share of traffic
+     * whatever the forest's score scale. Per-signal thresholds keep their
+     * defaults: they apply to sub-scores, not the forest score.
+     */
+    static AnomalyModelDescriptor.Thresholds calibrate(IsolationForest forest, double[][] samples) {
+        double[] scores = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            scores[i] = forest.score(samples[i]);
+        }
+        Arrays.sort(scores);
+        return AnomalyModelDescriptor.Thresholds.builder()
+                .medium(percentile(scores, 0.95))
+                .anomaly(percentile(scores, 0.99))
+                .high(percentile(scores, 0.995))
+                .reauthentication(percentile(scores, 0.998))
+                .critical(percentile(scores, 0.999))
+                .smartContract(percentile(scores, 0.999))
+                .build();
+    }
+
+    private static double percentile(double[] sorted, double q) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1)];
+    }
+
+    private void save(IsolationForest forest, Path target) throws IOException {
+        Files.createDirectories(modelDirectory);
+        // Write beside the target and rename, so a crash never leaves a truncated model behind
+        Path tmp = Files.createTempFile(modelDirectory, "isolation-forest", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            forest.writeTo(out);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,204 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.util.IsolationForest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the scoring models known to this node and the one currently active.
+ * Models are JSON descriptors (plus binary artifacts for trained algorithms) in
+ * the model directory, rescanned periodically so new or edited files are picked
+ * up without a restart. Activation swaps a single reference: a request keeps
+ * the model it read at its start, so in-flight requests finish on that model.
+ */
+@Service
+@Slf4j
+public class ModelRegistry {
+    private static final String ACTIVE_POINTER_FILE = "ACTIVE";
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final String configuredActive;
+    private final Map<String, ScoringModel> models = new ConcurrentHashMap<>();
+    private final Map<Path, FileTime> loadedFiles = new ConcurrentHashMap<>();
+    private final AtomicReference<ScoringModel> active = new AtomicReference<>();
+
+    public ModelRegistry(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.models.directory:data/models}") String directory,
+            @Value("${anomaly.models.active:}") String configuredActive
+    ) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.directory = Paths.get(directory);
+        this.configuredActive = configuredActive;
+    }
+
+    @PostConstruct
+    public void init() {
+        AnomalyModelDescriptor original = AnomalyModelDescriptor.originalBuiltin();
+        models.put(original.getVersion(), build(original));
+        AnomalyModelDescriptor builtin = AnomalyModelDescriptor.builtin();
+        models.put(builtin.getVersion(), build(builtin));
+        scan();
+
+        String initial = readActivePointer();
+        if (initial == null && !configuredActive.isBlank()) initial = configuredActive;
+        ScoringModel model = initial != null ? models.get(initial) : null;
+        if (model == null) {
+            if (initial != null) {
+                log.warn("Configured anomaly model {} is not available, using {}", initial, builtin.getVersion());
+            }
+            model = models.get(builtin.getVersion());
+        }
+        active.set(model);
+        meterRegistry.gauge("anomaly.models.loaded", models, Map::size);
+        log.info("Active anomaly model: {}", model.getVersion());
+    }
+
+    /** The model new requests should score with. Read once per request. */
+    public ScoringModel active() {
+        return active.get();
+    }
+
+    public ScoringModel get(String version) {
+        return models.get(version);
+    }
+
+    public List<AnomalyModelDescriptor> list() {
+        List<AnomalyModelDescriptor> descriptors = new ArrayList<>();
+        for (ScoringModel model : models.values()) descriptors.add(model.getDescriptor());
+        descriptors.sort(Comparator.comparing(AnomalyModelDescriptor::getVersion));
+        return descriptors;
+    }
+
+    /** Atomically switch new requests to the given model and remember the choice across restarts. */
+    public AnomalyModelDescriptor activate(String version) throws IOException {
+        ScoringModel model = models.get(version);
+        if (model == null) {
+            throw new IllegalArgumentException("Unknown anomaly model: " + version);
+        }
+        ScoringModel previous = active.getAndSet(model);
+        writeActivePointer(version);
+        log.info("Activated anomaly model {} (was {})", version, previous.getVersion());
+        return model.getDescriptor();
+    }
+
+    /** Write a descriptor into the model directory and load it. */
+    public ScoringModel register(AnomalyModelDescriptor descriptor) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(descriptor.getVersion() + ".json");
+        Path tmp = Files.createTempFile(directory, descriptor.getVersion(), ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), descriptor);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ScoringModel model = load(file);
+        loadedFiles.put(file, Files.getLastModifiedTime(file));
+        return model;
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.models.scan-interval-ms:30000}",
+            initialDelayString = "${anomaly.models.scan-interval-ms:30000}")
+    public void scan() {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (modified.equals(loadedFiles.get(file))) continue;
+                try {
+                    load(file);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Failed to load anomaly model {}: {}", file, e.getMessage());
+                }
+                // Remember failures too, so a broken file is retried only after it changes
+                loadedFiles.put(file, modified);
+            }
+        } catch (IOException e) {
+            log.error("Failed to scan anomaly model directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private ScoringModel load(Path file) throws IOException {
+        AnomalyModelDescriptor descriptor = objectMapper.readValue(file.toFile(), AnomalyModelDescriptor.class);
+        if (descriptor.getVersion() == null || descriptor.getVersion().isBlank()) {
+            throw new IOException("Model descriptor has no version");
+        }
+        ScoringModel model = build(descriptor);
+        models.put(descriptor.getVersion(), model);
+        // An edited descriptor of the active model replaces it in place
+        ScoringModel current = active.get();
+        if (current != null && current.getVersion().equals(descriptor.getVersion())) {
+            active.compareAndSet(current, model);
+        }
+        log.info("Loaded anomaly model {} ({}) from {}", descriptor.getVersion(), descriptor.getAlgorithm(), file);
+        return model;
+    }
+
+    private ScoringModel build(AnomalyModelDescriptor descriptor) {
+        String algorithm = descriptor.getAlgorithm() == null
+                ? AnomalyModelDescriptor.ALGORITHM_WEIGHTED_DEVIATION
+                : descriptor.getAlgorithm();
+        AnomalyScorer scorer = switch (algorithm) {
+            case AnomalyModelDescriptor.ALGORITHM_WEIGHTED_DEVIATION -> new WeightedDeviationScorer(descriptor);
+            case AnomalyModelDescriptor.ALGORITHM_ISOLATION_FOREST -> new IsolationForestScorer(readForest(descriptor));
+            default -> throw new IllegalArgumentException("Unknown scoring algorithm: " + algorithm);
+        };
+        return new ScoringModel(descriptor, scorer, meterRegistry);
+    }
+
+    private IsolationForest readForest(AnomalyModelDescriptor descriptor) {
+        if (descriptor.getArtifact() == null) {
+            throw new IllegalArgumentException("Model " + descriptor.getVersion() + " has no artifact");
+        }
+        Path artifact = directory.resolve(descriptor.getArtifact());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(artifact)))) {
+            return IsolationForest.readFrom(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read model artifact " + artifact + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String readActivePointer() {
+        Path pointer = directory.resolve(ACTIVE_POINTER_FILE);
+        if (!Files.exists(pointer)) return null;
+        try {
+            String version = Files.readString(pointer, StandardCharsets.UTF_8).trim();
+            return version.isEmpty() ? null : version;
+        } catch (IOException e) {
+            log.warn("Cannot read active model pointer {}: {}", pointer, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeActivePointer(String version) throws IOException {
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, ACTIVE_POINTER_FILE, ".tmp");
+        Files.writeString(tmp, version, StandardCharsets.UTF_8);
+        Files.move(tmp, directory.resolve(ACTIVE_POINTER_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
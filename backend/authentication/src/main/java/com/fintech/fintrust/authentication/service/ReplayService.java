@@ -0,0 +1,294 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.FeatureSchema;
+import com.fintech.fintrust.authentication.model.ReplayRequest;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Backtests a model and thresholds against the stored behaviors. Users are
+ * split into ranges that are replayed in parallel, each from its own cursor
+ * over the history in user, then time order. Every user's baseline is rebuilt
+ * in memory as the replay goes, so each behavior is scored against the user's
+ * own history up to that point, and only one user's state per partition is
+ * held at a time. Nothing is written and live meters are not touched.
+ * <p>
+ * This is the model tier on its own, not the full live pipeline. Every
+ * behavior with a baseline runs the model, including those the statistics
+ * tier would have allowed; the report counts those separately. Cohort
+ * scoring of new users and the shared-infrastructure graph are left out:
+ * both are cross-user state that a per-user replay cannot rebuild as it was
+ * at the time. The report lists these exclusions.
+ */
+@Service
+@Slf4j
+public class ReplayService {
+    public static final List<String> ACTIONS = List.of("ALLOW", "MONITOR", "CHALLENGE", "BLOCK");
+    public static final List<String> EXCLUDED = List.of("cohortScoring", "sharedInfrastructure", "statisticsTier");
+
+    private static final int SCORE_BINS = 20;
+    private static final int PARTITION_SAMPLE = 10_000;
+    private static final int MAX_PARTITIONS = 256;
+    // Latency histogram: 8 linear sub-buckets per power of two of nanoseconds
+    private static final int SUB_BUCKETS = 8;
+    private static final int LATENCY_BUCKETS = (64 - 2) * SUB_BUCKETS;
+
+    private final BehaviorHistoryStore historyStore;
+    private final ModelRegistry modelRegistry;
+    private final AnomalyFastPath fastPath;
+    private final int defaultPartitions;
+
+    public ReplayService(
+            BehaviorHistoryStore historyStore,
+            ModelRegistry modelRegistry,
+            AnomalyFastPath fastPath,
+            @Value("${anomaly.replay.partitions:8}") int defaultPartitions
+    ) {
+        this.historyStore = historyStore;
+        this.modelRegistry = modelRegistry;
+        this.fastPath = fastPath;
+        this.defaultPartitions = defaultPartitions;
+    }
+
+    public synchronized Map<String, Object> replay(ReplayRequest request) throws InterruptedException {
+        ScoringModel model = request.getModel() == null || request.getModel().isBlank()
+                ? modelRegistry.active()
+                : modelRegistry.get(request.getModel());
+        if (model == null) {
+            throw new IllegalArgumentException("Unknown model version: " + request.getModel());
+        }
+        AnomalyModelDescriptor.Thresholds thresholds = request.getThresholds() != null
+                ? request.getThresholds()
+                : model.getThresholds();
+        int partitions = Math.max(1, Math.min(MAX_PARTITIONS,
+                request.getPartitions() != null ? request.getPartitions() : defaultPartitions));
+        long startedAt = System.currentTimeMillis();
+        List<String> bounds = splitPoints(partitions);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(bounds.size() + 1, runnable -> {
+            Thread thread = new Thread(runnable, "behavior-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<ReplayStats>> running = new ArrayList<>();
+            for (int i = 0; i <= bounds.size(); i++) {
+                String fromUser = i == 0 ? null : bounds.get(i - 1);
+                String toUser = i == bounds.size() ? null : bounds.get(i);
+                running.add(pool.submit(() -> replayUsers(fromUser, toUser, model, thresholds,
+                        request.getFrom(), request.getTo())));
+            }
+            ReplayStats totals = new ReplayStats();
+            for (Future<ReplayStats> partition : running) {
+                totals.merge(partition.get());
+            }
+
+            long durationMs = System.currentTimeMillis() - startedAt;
+            log.info("Replayed {} behaviors of {} users with model {} in {} ms over {} partitions",
+                    totals.behaviors, totals.users, model.getVersion(), durationMs, running.size());
+            Map<String, Object> report = totals.report();
+            report.put("model", model.getVersion());
+            report.put("thresholds", thresholds);
+            report.put("excluded", EXCLUDED);
+            report.put("from", request.getFrom());
+            report.put("to", request.getTo());
+            report.put("partitions", running.size());
+            report.put("durationMs", durationMs);
+            report.put("behaviorsPerSecond", durationMs == 0 ? null : totals.behaviors * 1000 / durationMs);
+            return report;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Behavior replay failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** User ids that split the history into roughly equal partitions, weighted by stored documents. */
+    private List<String> splitPoints(int partitions) {
+        List<String> bounds = new ArrayList<>();
+        if (partitions == 1) return bounds;
+        List<String> sample = historyStore.sampleUserIds(PARTITION_SAMPLE);
+        sample.sort(null);
+        for (int i = 1; i < partitions && !sample.isEmpty(); i++) {
+            String bound = sample.get(i * sample.size() / partitions);
+            if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(bound)) {
+                bounds.add(bound);
+            }
+        }
+        return bounds;
+    }
+
+    private ReplayStats replayUsers(String fromUser, String toUser, ScoringModel model,
+                                    AnomalyModelDescriptor.Thresholds thresholds,
+                                    LocalDateTime from, LocalDateTime to) {
+        ReplayStats stats = new ReplayStats();
+        try (Stream<UserBehavior> behaviors = historyStore.streamUsers(fromUser, toUser)) {
+            String currentUser = null;
+            BehaviorBaseline baseline = null;
+            for (UserBehavior behavior : (Iterable<UserBehavior>) behaviors::iterator) {
+                if (behavior.getUserId() == null) continue;
+                if (!behavior.getUserId().equals(currentUser)) {
+                    currentUser = behavior.getUserId();
+                    baseline = BehaviorBaseline.empty(currentUser);
+                    stats.users++;
+                }
+                stats.behaviors++;
+                double[] raw = FeatureSchema.extract(behavior);
+                if (inRange(behavior.getTimestamp(), from, to)) {
+                    if (baseline.getSampleCount() == 0) {
+                        // Live scoring only creates the baseline here
+                        stats.baselineOnly++;
+                    } else {
+                        score(behavior, baseline, model, thresholds, stats);
+                    }
+                }
+                baseline.record(behavior, raw);
+            }
+        }
+        return stats;
+    }
+
+    private void score(UserBehavior behavior, BehaviorBaseline baseline, ScoringModel model,
+                              AnomalyModelDescriptor.Thresholds thresholds, ReplayStats stats) {
+        try {
+            long start = System.nanoTime();
+            SubScores subScores = AnomalyDetectionService.calculateSubScores(behavior, baseline);
+            // The scorer directly, so the replay does not feed the live model meters
+            double score = model.getScorer().score(behavior, baseline, subScores);
+            String action = AnomalyDetectionService.recommendedAction(score, subScores, thresholds);
+            stats.record(score, score > thresholds.getAnomaly(), action, System.nanoTime() - start);
+            // Live, these would have been allowed by the statistics tier without running the model
+            if (fastPath.isClear(subScores, thresholds)) stats.statisticsTierClear++;
+        } catch (RuntimeException e) {
+            stats.errors++;
+        }
+    }
+
+    private static boolean inRange(LocalDateTime timestamp, LocalDateTime from, LocalDateTime to) {
+        if (timestamp == null) return from == null && to == null;
+        return (from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to));
+    }
+
+    /** Counts and histograms of one partition, merged into the totals at the end. */
+    private static final class ReplayStats {
+        long users;
+        long behaviors;
+        long scored;
+        long baselineOnly;
+        long statisticsTierClear;
+        long anomalies;
+        long errors;
+        final long[] actions = new long[ACTIONS.size()];
+        final long[] scores = new long[SCORE_BINS];
+        final long[] latency = new long[LATENCY_BUCKETS];
+        long latencyNanos;
+
+        void record(double score, boolean anomaly, String action, long nanos) {
+            if (score != score) {
+                errors++;
+                return;
+            }
+            scored++;
+            if (anomaly) anomalies++;
+            int actionIndex = ACTIONS.indexOf(action);
+            if (actionIndex >= 0) actions[actionIndex]++;
+            scores[Math.max(0, Math.min(SCORE_BINS - 1, (int) (score * SCORE_BINS)))]++;
+            latency[latencyBucket(nanos)]++;
+            latencyNanos += nanos;
+        }
+
+        void merge(ReplayStats other) {
+            users += other.users;
+            behaviors += other.behaviors;
+            scored += other.scored;
+            baselineOnly += other.baselineOnly;
+            statisticsTierClear += other.statisticsTierClear;
+            anomalies += other.anomalies;
+            errors += other.errors;
+            for (int i = 0; i < actions.length; i++) actions[i] += other.actions[i];
+            for (int i = 0; i < scores.length; i++) scores[i] += other.scores[i];
+            for (int i = 0; i < latency.length; i++) latency[i] += other.latency[i];
+            latencyNanos += other.latencyNanos;
+        }
+
+        Map<String, Object> report() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("users", users);
+            report.put("behaviors", behaviors);
+            report.put("scored", scored);
+            report.put("baselineOnly", baselineOnly);
+            report.put("statisticsTierClear", statisticsTierClear);
+            report.put("errors", errors);
+
+            Map<String, Long> actionCounts = new LinkedHashMap<>();
+            for (int i = 0; i < actions.length; i++) actionCounts.put(ACTIONS.get(i), actions[i]);
+            report.put("actions", actionCounts);
+            report.put("blockRate", rate(actions[ACTIONS.indexOf("BLOCK")]));
+            report.put("challengeRate", rate(actions[ACTIONS.indexOf("CHALLENGE")]));
+            report.put("anomalyRate", rate(anomalies));
+
+            // Keyed by the lower edge of each bin
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < scores.length; i++) {
+                histogram.put(String.format(Locale.ROOT, "%.2f", (double) i / SCORE_BINS), scores[i]);
+            }
+            report.put("scoreHistogram", histogram);
+
+            Map<String, Double> latencyMicros = new LinkedHashMap<>();
+            latencyMicros.put("p50", percentileMicros(0.50));
+            latencyMicros.put("p90", percentileMicros(0.90));
+            latencyMicros.put("p99", percentileMicros(0.99));
+            latencyMicros.put("mean", scored == 0 ? null : latencyNanos / 1000.0 / scored);
+            report.put("scoringLatencyMicros", latencyMicros);
+            return report;
+        }
+
+        private Double rate(long count) {
+            return scored == 0 ? null : (double) count / scored;
+        }
+
+        /** Upper edge of the bucket holding the percentile, within 1/8 of a power of two. */
+        private Double percentileMicros(double percentile) {
+            if (scored == 0) return null;
+            long target = (long) Math.ceil(percentile * scored);
+            long seen = 0;
+            for (int i = 0; i < latency.length; i++) {
+                seen += latency[i];
+                if (seen >= target) return bucketUpperNanos(i) / 1000.0;
+            }
+            return bucketUpperNanos(latency.length - 1) / 1000.0;
+        }
+
+        private static int latencyBucket(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) Math.max(nanos, 0);
+            int octave = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (octave - 3)) & (SUB_BUCKETS - 1);
+            return (octave - 2) * SUB_BUCKETS + sub;
+        }
+
+        private static long bucketUpperNanos(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int octave = bucket / SUB_BUCKETS + 2;
+            int sub = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (octave - 3)) - 1;
+        }
+    }
+}
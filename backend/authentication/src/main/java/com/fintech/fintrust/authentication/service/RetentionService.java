@@ -0,0 +1,292 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyEventBucket;
+import com.fintech.fintrust.authentication.model.BehaviorBucket;
+import com.fintech.fintrust.authentication.model.RetentionCheckpoint;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Enforces data retention. Per-request documents expire through TTL indexes:
+ * user_behaviors at their dataRetentionUntil, stamped from behavior-days when
+ * the behavior is stored, and anomaly event buckets a fixed time after their
+ * hour. Behavior buckets mix entries of different ages, so a
+ * throttled background purge deletes expired buckets and trims expired entries
+ * from the rest, a batch at a time, checkpointing as it goes. Before any of a
+ * user's raw behaviors go, their baseline is compacted: folded into a stored
+ * current-layout baseline, which is all scoring needs from the history.
+ * Scheduled passes run on their own thread, not the shared scheduler's.
+ */
+@Service
+@Slf4j
+public class RetentionService {
+    private static final String BUCKET_TASK = "behavior_buckets";
+    private static final int MAX_COMPACTED_PER_RUN = 100_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final BehaviorBaselineService baselineService;
+    private final BehaviorHistoryStore historyStore;
+    private final Executor executor;
+    private final boolean enabled;
+    private final Duration behaviorRetention;
+    private final Duration eventRetention;
+    private final Duration compactionLead;
+    private final int batchSize;
+    private final long pauseMs;
+    private final long maxRunMs;
+    private final Counter documentsPurged;
+    private final Counter entriesTrimmed;
+    private final Counter bytesReclaimed;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    public RetentionService(
+            MongoTemplate mongoTemplate,
+            BehaviorBaselineService baselineService,
+            BehaviorHistoryStore historyStore,
+            @Qualifier("retentionExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.retention.enabled:true}") boolean enabled,
+            @Value("${anomaly.retention.behavior-days:365}") long behaviorDays,
+            @Value("${anomaly.retention.event-days:90}") long eventDays,
+            @Value("${anomaly.retention.compaction-lead-days:2}") long compactionLeadDays,
+            @Value("${anomaly.retention.batch-size:500}") int batchSize,
+            @Value("${anomaly.retention.pause-ms:200}") long pauseMs,
+            @Value("${anomaly.retention.max-run-ms:600000}") long maxRunMs
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.baselineService = baselineService;
+        this.historyStore = historyStore;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.behaviorRetention = Duration.ofDays(behaviorDays);
+        this.eventRetention = Duration.ofDays(eventDays);
+        this.compactionLead = Duration.ofDays(compactionLeadDays);
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.maxRunMs = maxRunMs;
+        this.documentsPurged = meterRegistry.counter("retention.documents.purged");
+        this.entriesTrimmed = meterRegistry.counter("retention.entries.trimmed");
+        this.bytesReclaimed = meterRegistry.counter("retention.bytes.reclaimed");
+    }
+
+    @PostConstruct
+    public void ensureTtlIndexes() {
+        if (!enabled) return;
+        try {
+            mongoTemplate.indexOps(UserBehavior.class).ensureIndex(new Index()
+                    .on("dataRetentionUntil", Sort.Direction.ASC)
+                    .expire(0)
+                    .named("retention_ttl"));
+            mongoTemplate.indexOps(AnomalyEventBucket.class).ensureIndex(new Index()
+                    .on("hourStart", Sort.Direction.ASC)
+                    .expire(eventRetention.toSeconds())
+                    .named("retention_ttl"));
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure retention TTL indexes: {}", e.getMessage());
+        }
+    }
+
+    /** When a behavior stored now expires in the documents layout. */
+    public LocalDateTime behaviorRetentionUntil() {
+        return LocalDateTime.now().plus(behaviorRetention);
+    }
+
+    public Map<String, Object> lastReport() {
+        return lastReport;
+    }
+
+    @Scheduled(cron = "${anomaly.retention.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) return;
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            log.info("Retention pass still running, skipping this schedule");
+        }
+    }
+
+    /** One time-boxed retention pass; returns the report, or the last one if a pass is already running. */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) return lastReport;
+        try {
+            LocalDateTime started = LocalDateTime.now();
+            long startedAt = System.currentTimeMillis();
+            long deadline = startedAt + maxRunMs;
+            Map<String, Long> sizesBefore = collectionSizes();
+            long[] totals = new long[4]; // users compacted, buckets deleted, entries trimmed, buckets trimmed
+
+            Set<String> compacted = new HashSet<>();
+            compactExpiringDocuments(compacted, totals, deadline);
+            boolean complete = !historyStore.isBucketed() || purgeBuckets(compacted, totals, deadline);
+
+            Map<String, Long> sizesAfter = collectionSizes();
+            long reclaimed = Math.max(0, sizesBefore.getOrDefault("total", 0L) - sizesAfter.getOrDefault("total", 0L));
+            bytesReclaimed.increment(reclaimed);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", started);
+            report.put("durationMs", System.currentTimeMillis() - startedAt);
+            report.put("complete", complete);
+            report.put("usersCompacted", totals[0]);
+            report.put("bucketsDeleted", totals[1]);
+            report.put("entriesTrimmed", totals[2]);
+            report.put("bucketsTrimmed", totals[3]);
+            // Includes what the TTL monitor removed since the sizes were taken
+            report.put("bytesReclaimed", reclaimed);
+            report.put("collectionBytes", sizesAfter);
+            lastReport = report;
+            log.info("Retention pass: {}", report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** Compact the baselines of users whose oldest documents the TTL monitor will delete soon. */
+    private void compactExpiringDocuments(Set<String> compacted, long[] totals, long deadline) {
+        Query expiring = Query.query(Criteria.where("dataRetentionUntil").lt(LocalDateTime.now().plus(compactionLead)));
+        List<String> users = mongoTemplate.findDistinct(expiring, "userId", UserBehavior.class, String.class);
+        for (int i = 0; i < users.size() && System.currentTimeMillis() < deadline; i++) {
+            compact(users.get(i), compacted, totals);
+            if ((i + 1) % batchSize == 0) pause();
+        }
+    }
+
+    /** Delete and trim expired behavior buckets; true when the pass reached the end. */
+    private boolean purgeBuckets(Set<String> compacted, long[] totals, long deadline) {
+        long cutoff = System.currentTimeMillis() - behaviorRetention.toMillis();
+        RetentionCheckpoint checkpoint = mongoTemplate.findById(BUCKET_TASK, RetentionCheckpoint.class);
+        String lastId = checkpoint == null ? null : checkpoint.getLastId();
+
+        while (System.currentTimeMillis() < deadline) {
+            // Buckets with any expired entry, in _id order from the checkpoint
+            Criteria criteria = Criteria.where("firstMillis").lt(cutoff);
+            if (lastId != null) criteria = criteria.and("id").gt(lastId);
+            Query query = Query.query(criteria).with(Sort.by("id")).limit(batchSize);
+            List<BehaviorBucket> batch = mongoTemplate.find(query, BehaviorBucket.class);
+            if (batch.isEmpty()) {
+                saveCheckpoint(null);
+                return true;
+            }
+
+            List<String> expired = new ArrayList<>();
+            for (BehaviorBucket bucket : batch) {
+                compact(bucket.getUserId(), compacted, totals);
+                if (bucket.getLastMillis() < cutoff) {
+                    expired.add(bucket.getId());
+                } else {
+                    trim(bucket, cutoff, totals);
+                }
+            }
+            if (!expired.isEmpty()) {
+                long deleted = mongoTemplate.remove(Query.query(Criteria.where("id").in(expired)), BehaviorBucket.class)
+                        .getDeletedCount();
+                totals[1] += deleted;
+                documentsPurged.increment(deleted);
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            saveCheckpoint(lastId);
+            pause();
+        }
+        return false;
+    }
+
+    private void trim(BehaviorBucket bucket, long cutoff, long[] totals) {
+        List<BehaviorBucket.Entry> kept = new ArrayList<>(bucket.getEntries().size());
+        long first = Long.MAX_VALUE;
+        for (BehaviorBucket.Entry entry : bucket.getEntries()) {
+            if (entry.getTimestampMillis() >= cutoff) {
+                kept.add(entry);
+                first = Math.min(first, entry.getTimestampMillis());
+            }
+        }
+        int removed = bucket.getEntries().size() - kept.size();
+        if (removed == 0) return;
+        // Guarded on the count so an append racing the trim is not lost; the next pass retries
+        Query unchanged = Query.query(Criteria.where("id").is(bucket.getId()).and("count").is(bucket.getCount()));
+        Update update = new Update().set("entries", kept).set("count", kept.size()).set("firstMillis", first);
+        if (mongoTemplate.updateFirst(unchanged, update, BehaviorBucket.class).getModifiedCount() > 0) {
+            totals[2] += removed;
+            totals[3]++;
+            entriesTrimmed.increment(removed);
+        }
+    }
+
+    private void compact(String userId, Set<String> compacted, long[] totals) {
+        if (userId == null || compacted.contains(userId)) return;
+        if (compacted.size() >= MAX_COMPACTED_PER_RUN) compacted.clear();
+        baselineService.compact(userId);
+        compacted.add(userId);
+        totals[0]++;
+    }
+
+    private void saveCheckpoint(String lastId) {
+        mongoTemplate.save(RetentionCheckpoint.builder()
+                .task(BUCKET_TASK)
+                .lastId(lastId)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /** Data plus index bytes of each retained collection, and their total. */
+    private Map<String, Long> collectionSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        for (String collection : List.of(mongoTemplate.getCollectionName(UserBehavior.class),
+                mongoTemplate.getCollectionName(BehaviorBucket.class),
+                mongoTemplate.getCollectionName(AnomalyEventBucket.class))) {
+            try {
+                Document stats = mongoTemplate.getDb().runCommand(new Document("collStats", collection));
+                long bytes = number(stats.get("size")) + number(stats.get("totalIndexSize"));
+                sizes.put(collection, bytes);
+                total += bytes;
+            } catch (RuntimeException e) {
+                // Collection does not exist yet
+                sizes.put(collection, 0L);
+            }
+        }
+        sizes.put("total", total);
+        return sizes;
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,54 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A loaded, immutable scoring model: its descriptor, the scorer built from it
+ * and the per-model latency and score-distribution meters.
+ */
+@Getter
+public class ScoringModel {
+    private final AnomalyModelDescriptor descriptor;
+    private final AnomalyScorer scorer;
+    private final Timer latency;
+    private final DistributionSummary scores;
+
+    public ScoringModel(AnomalyModelDescriptor descriptor, AnomalyScorer scorer, MeterRegistry meterRegistry) {
+        this.descriptor = descriptor;
+        this.scorer = scorer;
+        this.latency = Timer.builder("anomaly.model.latency")
+                .tag("model", descriptor.getVersion())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.scores = DistributionSummary.builder("anomaly.model.score")
+                .tag("model", descriptor.getVersion())
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .serviceLevelObjectives(descriptor.getThresholds().getMedium(), descriptor.getThresholds().getAnomaly(),
+                        descriptor.getThresholds().getHigh(), descriptor.getThresholds().getCritical())
+                .register(meterRegistry);
+    }
+
+    public String getVersion() {
+        return descriptor.getVersion();
+    }
+
+    public AnomalyModelDescriptor.Thresholds getThresholds() {
+        return descriptor.getThresholds();
+    }
+
+    public double score(UserBehavior behavior, BehaviorBaseline baseline, SubScores subScores) {
+        long start = System.nanoTime();
+        double score = scorer.score(behavior, baseline, subScores);
+        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        scores.record(score);
+        return score;
+    }
+}
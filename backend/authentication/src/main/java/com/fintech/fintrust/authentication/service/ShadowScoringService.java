@@ -0,0 +1,198 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores a sample of live behaviors with candidate models, off the request
+ * thread, and compares their decisions with the active model's. The request
+ * thread only samples and enqueues. Candidates get the sub-scores the active
+ * model saw, which carry everything the scorers read from the baseline, so
+ * no baseline is copied. When the shadow pool is saturated the sample is
+ * dropped rather than slowing the request.
+ */
+@Service
+@Slf4j
+public class ShadowScoringService {
+
+    private final ModelRegistry modelRegistry;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final List<String> candidates;
+    private final Counter dropped;
+    private final Map<String, CandidateStats> stats = new ConcurrentHashMap<>();
+    private volatile LocalDateTime since = LocalDateTime.now();
+
+    public ShadowScoringService(
+            ModelRegistry modelRegistry,
+            @Qualifier("shadowScoringExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.shadow.enabled:false}") boolean enabled,
+            @Value("${anomaly.shadow.sample-rate:0.1}") double sampleRate,
+            @Value("${anomaly.shadow.models:}") List<String> candidates
+    ) {
+        this.modelRegistry = modelRegistry;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.candidates = candidates.stream().map(String::trim).filter(c -> !c.isEmpty()).toList();
+        this.dropped = meterRegistry.counter("anomaly.shadow.dropped");
+    }
+
+    /**
+     * Whether this behavior falls in the shadow sample. Asked before the tier
+     * split so candidates see statistics-tier decisions too, not only the ones
+     * the active model made.
+     */
+    public boolean sample() {
+        return enabled && !candidates.isEmpty() && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /** Queue a sampled behavior, with the live decision, for shadow evaluation. */
+    public void submit(UserBehavior behavior, SubScores subScores, ScoringModel activeModel,
+                       double activeScore, String activeAction) {
+        try {
+            executor.execute(() -> evaluate(behavior, subScores, activeModel, activeScore, activeAction));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    public Map<String, Object> report() {
+        ScoringModel active = modelRegistry.active();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("since", since);
+        report.put("enabled", enabled);
+        report.put("sampleRate", sampleRate);
+        report.put("activeModel", active.getVersion());
+        report.put("activeLatencyMs", percentiles(active.getLatency()));
+        report.put("dropped", (long) dropped.count());
+
+        List<Map<String, Object>> models = new ArrayList<>();
+        for (String candidate : candidates) {
+            CandidateStats candidateStats = stats.get(candidate);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("model", candidate);
+            entry.put("loaded", modelRegistry.get(candidate) != null);
+            if (candidateStats != null) {
+                long compared = candidateStats.compared.sum();
+                long agreed = candidateStats.agreed.sum();
+                entry.put("compared", compared);
+                entry.put("agreed", agreed);
+                entry.put("disagreed", compared - agreed);
+                entry.put("agreementRate", compared == 0 ? null : (double) agreed / compared);
+                entry.put("meanAbsoluteScoreDelta", compared == 0 ? null : candidateStats.absoluteScoreDelta.sum() / compared);
+                entry.put("decisionChanges", candidateStats.transitionCounts());
+                entry.put("latencyMs", percentiles(candidateStats.latency));
+            }
+            models.add(entry);
+        }
+        report.put("candidates", models);
+        return report;
+    }
+
+    /** Start a new comparison window. Latency percentiles keep their own decaying window. */
+    public void reset() {
+        stats.values().forEach(CandidateStats::clear);
+        since = LocalDateTime.now();
+    }
+
+    private void evaluate(UserBehavior behavior, SubScores subScores, ScoringModel activeModel,
+                          double activeScore, String activeAction) {
+        for (String version : candidates) {
+            ScoringModel candidate = modelRegistry.get(version);
+            if (candidate == null || version.equals(activeModel.getVersion())) continue;
+            CandidateStats candidateStats = stats.computeIfAbsent(version, this::newStats);
+            try {
+                long start = System.nanoTime();
+                double score = candidate.getScorer().score(behavior, null, subScores);
+                candidateStats.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                String action = AnomalyDetectionService.recommendedAction(score, subScores, candidate.getThresholds());
+                candidateStats.record(activeAction, action, Math.abs(score - activeScore));
+                meterRegistry.counter("anomaly.shadow.comparisons", "model", version,
+                        "agreement", String.valueOf(action.equals(activeAction))).increment();
+            } catch (RuntimeException e) {
+                log.warn("Shadow scoring with model {} failed for user {}: {}", version, behavior.getUserId(), e.getMessage());
+            }
+        }
+    }
+
+    private CandidateStats newStats(String version) {
+        Timer latency = Timer.builder("anomaly.shadow.latency")
+                .tag("model", version)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        return new CandidateStats(latency);
+    }
+
+    private static Map<String, Double> percentiles(Timer timer) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        values.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+        return values;
+    }
+
+    private static final class CandidateStats {
+        final Timer latency;
+        final LongAdder compared = new LongAdder();
+        final LongAdder agreed = new LongAdder();
+        final DoubleAdder absoluteScoreDelta = new DoubleAdder();
+        // "ACTIVE->CANDIDATE" action pairs where the decisions differ
+        final Map<String, LongAdder> transitions = new ConcurrentHashMap<>();
+
+        CandidateStats(Timer latency) {
+            this.latency = latency;
+        }
+
+        void record(String activeAction, String candidateAction, double scoreDelta) {
+            compared.increment();
+            absoluteScoreDelta.add(scoreDelta);
+            if (activeAction.equals(candidateAction)) {
+                agreed.increment();
+            } else {
+                transitions.computeIfAbsent(activeAction + "->" + candidateAction, k -> new LongAdder()).increment();
+            }
+        }
+
+        Map<String, Long> transitionCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            transitions.forEach((key, count) -> counts.put(key, count.sum()));
+            return counts;
+        }
+
+        void clear() {
+            compared.reset();
+            agreed.reset();
+            absoluteScoreDelta.reset();
+            transitions.clear();
+        }
+    }
+}
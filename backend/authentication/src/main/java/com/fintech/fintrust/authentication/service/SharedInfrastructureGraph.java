@@ -0,0 +1,371 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Which accounts share devices and IP addresses, for spotting account-takeover
+ * and mule rings. Every behavior adds or refreshes an edge from its device and
+ * from its IP address to its user. An edge's weight halves every half-life
+ * since it was last seen, so the account count of a device or IP address is
+ * the sum of its edge weights, and edges below the minimum weight no longer
+ * count. Each device and IP address keeps at most max-degree edges in two
+ * primitive arrays, evicting the stalest edge when full. Accounts that share a
+ * device, or an IP address with few accounts behind it, are linked in a
+ * union-find, so the size of a user's linked group is a lookup. Busy IP
+ * addresses such as carrier NAT still count their accounts but link nobody. Links are never undone in place: a scheduled
+ * compaction rebuilds the whole graph from the edges that are still live and
+ * swaps it in, which forgets decayed links and bounds memory.
+ */
+@Service
+@Slf4j
+public class SharedInfrastructureGraph {
+    private static final long MINUTE_MS = 60_000L;
+    private static final int INITIAL_DEGREE = 2;
+    private static final int RING_SAMPLE = 10;
+
+    private final boolean enabled;
+    private final int maxDegree;
+    // Weight lost per minute since an edge was last seen, ln 2 / half-life
+    private final double decayPerMinute;
+    private final double minWeight;
+    // Above this many accounts an IP address is a NAT or an office egress, not a link between them
+    private final double ipLinkMaxAccounts;
+    private final int maxAccounts;
+    private final Counter evictedEdges;
+    private final Counter droppedAccounts;
+    private volatile Graph graph;
+    private volatile LocalDateTime compactedAt;
+
+    public SharedInfrastructureGraph(
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.graph.enabled:true}") boolean enabled,
+            @Value("${anomaly.graph.max-degree:64}") int maxDegree,
+            @Value("${anomaly.graph.half-life-hours:24}") double halfLifeHours,
+            @Value("${anomaly.graph.min-weight:0.05}") double minWeight,
+            @Value("${anomaly.graph.ip-link-max-accounts:10}") double ipLinkMaxAccounts,
+            @Value("${anomaly.graph.max-accounts:5000000}") int maxAccounts
+    ) {
+        this.enabled = enabled;
+        this.maxDegree = maxDegree;
+        this.decayPerMinute = Math.log(2) / (halfLifeHours * 60);
+        this.minWeight = minWeight;
+        this.ipLinkMaxAccounts = ipLinkMaxAccounts;
+        this.maxAccounts = maxAccounts;
+        this.evictedEdges = meterRegistry.counter("anomaly.graph.edges.evicted");
+        this.droppedAccounts = meterRegistry.counter("anomaly.graph.accounts.dropped");
+        this.graph = new Graph();
+        Gauge.builder("anomaly.graph.nodes", this, g -> g.graph.devices.size()).tag("kind", "device")
+                .register(meterRegistry);
+        Gauge.builder("anomaly.graph.nodes", this, g -> g.graph.ipAddresses.size()).tag("kind", "ip")
+                .register(meterRegistry);
+        Gauge.builder("anomaly.graph.accounts", this, g -> g.graph.accounts.size()).register(meterRegistry);
+    }
+
+    /**
+     * Time-decayed accounts on a behavior's device and IP address, counting its
+     * own user, and the size of the user's linked group; zeros when unknown.
+     */
+    public record Exposure(double deviceAccounts, double ipAddressAccounts, int linkedAccounts) {
+        public static final Exposure NONE = new Exposure(0.0, 0.0, 0);
+    }
+
+    /** Add or refresh the behavior's edges and return its exposure, in constant time per edge. */
+    public Exposure record(UserBehavior behavior) {
+        if (!enabled || behavior.getUserId() == null) return Exposure.NONE;
+        return graph.record(behavior.getUserId(), behavior.getDeviceId(), behavior.getIpAddress(),
+                minuteOf(behavior.getTimestamp()));
+    }
+
+    /**
+     * Rebuild the graph from its live edges. Edges refreshed on nodes the copy
+     * has already passed are lost with the old graph; the user's next behavior
+     * adds them back.
+     */
+    @Scheduled(fixedDelayString = "${anomaly.graph.compact-ms:3600000}",
+            initialDelayString = "${anomaly.graph.compact-ms:3600000}")
+    public void compact() {
+        if (!enabled) return;
+        long startedAt = System.currentTimeMillis();
+        int now = minuteOf(null);
+        Graph old = graph;
+        Graph next = new Graph();
+        old.devices.forEach((id, node) -> node.copyInto(next, next.devices, id, old.accounts, now,
+                Double.POSITIVE_INFINITY));
+        old.ipAddresses.forEach((id, node) -> node.copyInto(next, next.ipAddresses, id, old.accounts, now,
+                ipLinkMaxAccounts));
+        graph = next;
+        compactedAt = LocalDateTime.now();
+        log.info("Compacted shared-infrastructure graph from {} to {} accounts in {} ms",
+                old.accounts.size(), next.accounts.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    /** Node and account counts, and the largest linked groups with a sample of their accounts. */
+    public Map<String, Object> summary(int rings) {
+        Graph current = graph;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", enabled);
+        summary.put("compactedAt", compactedAt);
+        summary.put("devices", current.devices.size());
+        summary.put("ipAddresses", current.ipAddresses.size());
+        summary.put("accounts", current.accounts.size());
+        summary.put("largestRings", current.accounts.largest(rings));
+        return summary;
+    }
+
+    private static int minuteOf(LocalDateTime timestamp) {
+        long millis = timestamp != null
+                ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli()
+                : LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return (int) (millis / MINUTE_MS);
+    }
+
+    /** One generation of the graph, replaced whole by compaction. */
+    private final class Graph {
+        final Map<String, Node> devices = new ConcurrentHashMap<>();
+        final Map<String, Node> ipAddresses = new ConcurrentHashMap<>();
+        final Map<String, Integer> accountIndex = new ConcurrentHashMap<>();
+        final Accounts accounts = new Accounts(maxAccounts);
+
+        Exposure record(String userId, String deviceId, String ipAddress, int minute) {
+            Integer account = accountIndex.computeIfAbsent(userId, id -> {
+                int index = accounts.add(id);
+                if (index < 0) droppedAccounts.increment();
+                return index < 0 ? null : index;
+            });
+            if (account == null) return Exposure.NONE;
+            double deviceAccounts = link(devices, deviceId, account, minute, Double.POSITIVE_INFINITY);
+            double ipAddressAccounts = link(ipAddresses, ipAddress, account, minute, ipLinkMaxAccounts);
+            return new Exposure(deviceAccounts, ipAddressAccounts, accounts.groupSizeOf(account));
+        }
+
+        double link(Map<String, Node> nodes, String id, int account, int minute, double linkBelow) {
+            if (id == null || id.isBlank()) return 0.0;
+            return nodes.computeIfAbsent(id, key -> new Node()).link(account, minute, accounts, linkBelow);
+        }
+    }
+
+    /** Edges of one device or IP address: account indexes and the minute each was last seen. */
+    private final class Node {
+        private int[] accounts = new int[INITIAL_DEGREE];
+        private int[] seenAt = new int[INITIAL_DEGREE];
+        private int degree;
+
+        /**
+         * Add or refresh the account's edge, drop edges that decayed away, and
+         * return the decayed account count. While the node has fewer than
+         * {@code linkBelow} other accounts, a new edge links the account to the
+         * most recently seen one, which is already linked to the rest.
+         */
+        synchronized double link(int account, int minute, Accounts groups, double linkBelow) {
+            double weight = 0.0;
+            int found = -1;
+            int newest = -1;
+            int stalest = -1;
+            for (int i = 0; i < degree; i++) {
+                double edge = Math.exp(-decayPerMinute * Math.max(0, minute - seenAt[i]));
+                if (accounts[i] != account && edge < minWeight) {
+                    remove(i--);
+                    continue;
+                }
+                if (accounts[i] == account) {
+                    found = i;
+                    continue;
+                }
+                weight += edge;
+                if (newest < 0 || seenAt[i] > seenAt[newest]) newest = i;
+                if (stalest < 0 || seenAt[i] < seenAt[stalest]) stalest = i;
+            }
+            if (found >= 0) {
+                seenAt[found] = Math.max(seenAt[found], minute);
+                return weight + 1.0;
+            }
+            if (newest >= 0 && weight < linkBelow) groups.union(account, accounts[newest]);
+            if (degree == accounts.length && degree < maxDegree) {
+                int capacity = Math.min(maxDegree, degree * 2);
+                accounts = Arrays.copyOf(accounts, capacity);
+                seenAt = Arrays.copyOf(seenAt, capacity);
+            }
+            if (degree == accounts.length) {
+                weight -= Math.exp(-decayPerMinute * Math.max(0, minute - seenAt[stalest]));
+                remove(stalest);
+                evictedEdges.increment();
+            }
+            accounts[degree] = account;
+            seenAt[degree] = minute;
+            degree++;
+            return weight + 1.0;
+        }
+
+        /** Add this node's live edges to the next graph, oldest first. */
+        void copyInto(Graph next, Map<String, Node> nodes, String id, Accounts old, int now, double linkBelow) {
+            long[] live;
+            int count = 0;
+            synchronized (this) {
+                live = new long[degree];
+                for (int i = 0; i < degree; i++) {
+                    if (Math.exp(-decayPerMinute * Math.max(0, now - seenAt[i])) >= minWeight) {
+                        live[count++] = (long) seenAt[i] << 32 | accounts[i];
+                    }
+                }
+            }
+            Arrays.sort(live, 0, count);
+            for (int i = 0; i < count; i++) {
+                String userId = old.userId((int) live[i]);
+                Integer account = next.accountIndex.computeIfAbsent(userId, key -> {
+                    int index = next.accounts.add(key);
+                    return index < 0 ? null : index;
+                });
+                if (account != null) next.link(nodes, id, account, (int) (live[i] >>> 32), linkBelow);
+            }
+        }
+
+        private void remove(int index) {
+            degree--;
+            accounts[index] = accounts[degree];
+            seenAt[index] = seenAt[degree];
+        }
+    }
+
+    /**
+     * Union-find over account indexes, with the user id of each index, in
+     * fixed-size chunks so it grows without copying. Adding and linking
+     * accounts take the lock; reading a group's size does not, so a request
+     * may miss a link made a moment earlier. Parents only ever move up the
+     * tree, so a lock-free walk always ends at a root.
+     */
+    private static final class Accounts {
+        private static final int CHUNK_BITS = 16;
+        private static final int CHUNK = 1 << CHUNK_BITS;
+
+        private final int maxAccounts;
+        private final AtomicReferenceArray<Chunk> chunks;
+        private volatile int size;
+
+        Accounts(int maxAccounts) {
+            this.maxAccounts = maxAccounts;
+            this.chunks = new AtomicReferenceArray<>((maxAccounts + CHUNK - 1) >>> CHUNK_BITS);
+        }
+
+        private static final class Chunk {
+            final AtomicIntegerArray parent = new AtomicIntegerArray(CHUNK);
+            final AtomicIntegerArray groupSize = new AtomicIntegerArray(CHUNK);
+            final String[] userIds = new String[CHUNK];
+        }
+
+        /** Index of a new account, or -1 when the graph already holds the maximum. */
+        synchronized int add(String userId) {
+            int index = size;
+            if (index >= maxAccounts) return -1;
+            Chunk chunk = chunks.get(index >>> CHUNK_BITS);
+            if (chunk == null) {
+                chunk = new Chunk();
+                chunks.set(index >>> CHUNK_BITS, chunk);
+            }
+            int slot = index & (CHUNK - 1);
+            chunk.parent.set(slot, index);
+            chunk.groupSize.set(slot, 1);
+            chunk.userIds[slot] = userId;
+            size = index + 1;
+            return index;
+        }
+
+        synchronized void union(int a, int b) {
+            int rootA = compressToRoot(a);
+            int rootB = compressToRoot(b);
+            if (rootA == rootB) return;
+            if (groupSize(rootA) < groupSize(rootB)) {
+                int swap = rootA;
+                rootA = rootB;
+                rootB = swap;
+            }
+            // Grow the group before attaching, so a concurrent reader never sees it short
+            chunk(rootA).groupSize.set(rootA & (CHUNK - 1), groupSize(rootA) + groupSize(rootB));
+            chunk(rootB).parent.set(rootB & (CHUNK - 1), rootA);
+        }
+
+        /** Size of the account's linked group, without the lock. */
+        int groupSizeOf(int account) {
+            return groupSize(root(account));
+        }
+
+        String userId(int account) {
+            return chunk(account).userIds[account & (CHUNK - 1)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** The largest groups of more than one account, largest first. */
+        synchronized List<Map<String, Object>> largest(int limit) {
+            int accounts = size;
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < accounts; i++) {
+                if (parent(i) == i && groupSize(i) > 1) roots.add(i);
+            }
+            roots.sort((a, b) -> Integer.compare(groupSize(b), groupSize(a)));
+            List<Integer> top = roots.subList(0, Math.min(limit, roots.size()));
+            Map<Integer, List<String>> samples = new LinkedHashMap<>();
+            top.forEach(root -> samples.put(root, new ArrayList<>()));
+            for (int i = 0; i < accounts; i++) {
+                List<String> sample = samples.get(root(i));
+                if (sample != null && sample.size() < RING_SAMPLE) sample.add(userId(i));
+            }
+            List<Map<String, Object>> rings = new ArrayList<>();
+            for (Map.Entry<Integer, List<String>> ring : samples.entrySet()) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("accounts", groupSize(ring.getKey()));
+                entry.put("sample", ring.getValue());
+                rings.add(entry);
+            }
+            return rings;
+        }
+
+        private int root(int account) {
+            int parent;
+            while ((parent = parent(account)) != account) account = parent;
+            return account;
+        }
+
+        // Path halving, under the lock
+        private int compressToRoot(int account) {
+            int parent;
+            while ((parent = parent(account)) != account) {
+                int grandparent = parent(parent);
+                chunk(account).parent.set(account & (CHUNK - 1), grandparent);
+                account = grandparent;
+            }
+            return account;
+        }
+
+        private int parent(int account) {
+            return chunk(account).parent.get(account & (CHUNK - 1));
+        }
+
+        private int groupSize(int account) {
+            return chunk(account).groupSize.get(account & (CHUNK - 1));
+        }
+
+        private Chunk chunk(int account) {
+            return chunks.get(account >>> CHUNK_BITS);
+        }
+    }
+}
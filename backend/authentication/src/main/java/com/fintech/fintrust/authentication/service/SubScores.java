@@ -0,0 +1,82 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.LocationClusters;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Scoring input for one behavior. It holds:
+ * <ul>
+ *   <li>the raw deviation vector from {@link BehaviorFeatureExtractor};</li>
+ *   <li>the per-signal sub-scores in [0, 1], derived from the deviations, the
+ *       user's own percentiles and the navigation transition;</li>
+ *   <li>the travel speed since the user's last seen location;</li>
+ *   <li>how many distinct devices and IP addresses the user has shown this
+ *       week, counting this behavior.</li>
+ * </ul>
+ * Live scoring also records how many accounts share the behavior's device and
+ * IP address (see {@link SharedInfrastructureGraph}).
+ */
+@Getter
+@AllArgsConstructor
+public class SubScores {
+    // Normalization of the location distance, 100 km or more is a full anomaly
+    private static final double MAX_LOCATION_KM = 100.0;
+    // A transition with probability 1/1024 or lower is a full navigation anomaly
+    private static final double MAX_NAVIGATION_SURPRISE_BITS = 10.0;
+    private static final double UNKNOWN_DEVICE_SCORE = 0.8;
+
+    private final double[] deviations;
+    private final double typing;
+    private final double touch;
+    private final double location;
+    private final double session;
+    private final double device;
+    private final double navigation;
+    private final double travelSpeedKmh;
+    private final boolean impossibleTravel;
+    private final long weeklyDevices;
+    private final long weeklyIpAddresses;
+    private final SharedInfrastructureGraph.Exposure sharedInfrastructure;
+
+    /**
+     * Typing, touch and session are scored by their percentile in the user's own
+     * distribution ({@code tailScores}, indexed like the deviations) once the
+     * user has enough history, and by relative deviation from the mean before that.
+     */
+    public static SubScores fromDeviations(double[] deviations, double[] tailScores, double navigationSurpriseBits,
+                                           double travelSpeedKmh, long weeklyDevices, long weeklyIpAddresses) {
+        boolean impossibleTravel = LocationClusters.isImpossibleTravel(travelSpeedKmh);
+        return new SubScores(
+                deviations,
+                scalar(deviations, tailScores, BehaviorFeatureExtractor.TYPING_SPEED_DEVIATION),
+                scalar(deviations, tailScores, BehaviorFeatureExtractor.TAP_PRESSURE_DEVIATION),
+                // Being somewhere the user could not have reached is a full location anomaly
+                impossibleTravel ? 1.0 : clamp(deviations[BehaviorFeatureExtractor.LOCATION_DISTANCE_KM] / MAX_LOCATION_KM),
+                scalar(deviations, tailScores, BehaviorFeatureExtractor.SESSION_DURATION_DEVIATION),
+                deviations[BehaviorFeatureExtractor.UNKNOWN_DEVICE] == 1.0 ? UNKNOWN_DEVICE_SCORE : 0.0,
+                clamp(navigationSurpriseBits / MAX_NAVIGATION_SURPRISE_BITS),
+                travelSpeedKmh,
+                impossibleTravel,
+                weeklyDevices,
+                weeklyIpAddresses,
+                SharedInfrastructureGraph.Exposure.NONE
+        );
+    }
+
+    /** These scores with the behavior's exposure in the shared-infrastructure graph. */
+    public SubScores withSharedInfrastructure(SharedInfrastructureGraph.Exposure exposure) {
+        return new SubScores(deviations, typing, touch, location, session, device, navigation, travelSpeedKmh,
+                impossibleTravel, weeklyDevices, weeklyIpAddresses, exposure);
+    }
+
+    private static double scalar(double[] deviations, double[] tailScores, int feature) {
+        double tail = tailScores[feature];
+        return tail == tail ? tail : clamp(deviations[feature]);
+    }
+
+    private static double clamp(double deviation) {
+        // Missing signals do not contribute
+        return deviation != deviation ? 0.0 : Math.min(deviation, 1.0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+
+/** Weighted average of the per-signal sub-scores. */
+public class WeightedDeviationScorer implements AnomalyScorer {
+    private final double typingWeight;
+    private final double touchWeight;
+    private final double locationWeight;
+    private final double sessionWeight;
+    private final double deviceWeight;
+    private final double navigationWeight;
+
+    public WeightedDeviationScorer(AnomalyModelDescriptor descriptor) {
+        this.typingWeight = descriptor.weight("typing");
+        this.touchWeight = descriptor.weight("touch");
+        this.locationWeight = descriptor.weight("location");
+        this.sessionWeight = descriptor.weight("session");
+        this.deviceWeight = descriptor.weight("device");
+        this.navigationWeight = descriptor.weight("navigation");
+    }
+
+    @Override
+    public double score(UserBehavior behavior, BehaviorBaseline baseline, SubScores subScores) {
+        return subScores.getTyping() * typingWeight
+                + subScores.getTouch() * touchWeight
+                + subScores.getLocation() * locationWeight
+                + subScores.getSession() * sessionWeight
+                + subScores.getDevice() * deviceWeight
+                + subScores.getNavigation() * navigationWeight;
+    }
+}
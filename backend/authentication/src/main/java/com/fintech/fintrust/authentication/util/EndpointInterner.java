@@ -0,0 +1,64 @@
+package com.fintech.fintrust.authentication.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a request (method and path) to a small integer endpoint ID. Path
+ * segments that look like identifiers are replaced by {@code {id}}, so
+ * /api/requests/42 and /api/requests/43 are the same endpoint. IDs are derived
+ * from the normalized template with {@link String#hashCode()}, which the
+ * language specifies exactly, so they are stable across restarts and nodes and
+ * can be persisted without a shared dictionary. Normalization runs once per
+ * distinct raw path; after that a lookup is a single map read.
+ */
+public final class EndpointInterner {
+    public static final int UNKNOWN = -1;
+
+    private static final int MAX_CACHED = 10_000;
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private EndpointInterner() {
+    }
+
+    public static int id(String method, String path) {
+        if (path == null) return UNKNOWN;
+        String key = method == null ? path : method + ' ' + path;
+        Integer id = IDS.get(key);
+        if (id != null) return id;
+        int computed = (method == null ? template(path) : method + ' ' + template(path)).hashCode() & Integer.MAX_VALUE;
+        // Paths that normalize badly must not grow the cache without bound
+        if (IDS.size() < MAX_CACHED) IDS.put(key, computed);
+        return computed;
+    }
+
+    static String template(String path) {
+        StringBuilder template = new StringBuilder(path.length());
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) end = path.length();
+            if (start > 0) template.append('/');
+            String segment = path.substring(start, end);
+            template.append(isIdentifier(segment) ? "{id}" : segment);
+            start = end + 1;
+        }
+        return template.toString();
+    }
+
+    private static boolean isIdentifier(String segment) {
+        if (segment.isEmpty()) return false;
+        boolean digit = false;
+        boolean allDigits = true;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else {
+                allDigits = false;
+            }
+        }
+        // Numbers, and long tokens with digits in them (UUIDs, object IDs, hashes)
+        return allDigits || (digit && segment.length() >= 12);
+    }
+}
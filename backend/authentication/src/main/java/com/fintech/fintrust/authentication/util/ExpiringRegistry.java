@@ -0,0 +1,67 @@
+package com.fintech.fintrust.authentication.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-node map with a fixed time-to-live and a size bound that never drops a
+ * live entry. Unlike {@link ExpiringCache}, it is meant for state whose loss is
+ * unsafe, such as revocations. When full, expired entries are purged, and if
+ * that frees nothing a new key is refused; updating a key already present
+ * always succeeds.
+ */
+public class ExpiringRegistry<K, V> {
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Counter refused;
+
+    public ExpiringRegistry(String name, long ttlMillis, int maxEntries, MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.refused = meterRegistry.counter("registry.puts.refused", "registry", name);
+        Gauge.builder("registry.size", entries, Map::size)
+                .tag("registry", name)
+                .register(meterRegistry);
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /** Store the value for a full time-to-live; false if the registry is full of live entries. */
+    public boolean put(K key, V value) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+            if (entries.size() >= maxEntries) {
+                refused.increment();
+                return false;
+            }
+        }
+        entries.put(key, new Entry<>(value, now + ttlMillis));
+        return true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAtMillis;
+
+        Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
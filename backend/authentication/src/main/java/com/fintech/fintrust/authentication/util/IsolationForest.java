@@ -0,0 +1,262 @@
+package com.fintech.fintrust.authentication.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Isolation Forest (Liu, Ting and Zhou, 2008) over fixed-width feature vectors.
+ * Every tree is stored in heap order in shared primitive arrays, where node i has
+ * children 2i+1 and 2i+2, so scoring walks array indices and allocates nothing.
+ * Missing features (NaN) are replaced by the training median of that feature.
+ */
+public final class IsolationForest {
+    private static final int LEAF = -1;
+    private static final int FORMAT_MAGIC = 0x49464F52; // "IFOR"
+    private static final int FORMAT_VERSION = 1;
+    private static final double EULER_GAMMA = 0.5772156649015329;
+
+    private final int numFeatures;
+    private final int numTrees;
+    private final int sampleSize;
+    private final int nodesPerTree;
+    // Split attribute per node, LEAF for leaves and unused slots
+    private final int[] splitFeature;
+    // Split threshold per node; for leaves, the precomputed path length depth + c(size)
+    private final double[] splitValue;
+    private final double[] fillValues;
+    private final double normalizer;
+
+    private IsolationForest(int numFeatures, int numTrees, int sampleSize, int nodesPerTree,
+                            int[] splitFeature, double[] splitValue, double[] fillValues) {
+        this.numFeatures = numFeatures;
+        this.numTrees = numTrees;
+        this.sampleSize = sampleSize;
+        this.nodesPerTree = nodesPerTree;
+        this.splitFeature = splitFeature;
+        this.splitValue = splitValue;
+        this.fillValues = fillValues;
+        this.normalizer = averagePathLength(sampleSize);
+    }
+
+    /**
+     * Anomaly score in (0, 1]: close to 1 for points that isolate quickly,
+     * around 0.5 or below for points that look like the training data.
+     */
+    public double score(double[] features) {
+        double totalPathLength = 0.0;
+        for (int tree = 0, base = 0; tree < numTrees; tree++, base += nodesPerTree) {
+            int node = 0;
+            int feature;
+            while ((feature = splitFeature[base + node]) != LEAF) {
+                double value = features[feature];
+                if (value != value) value = fillValues[feature];
+                // Branch-free child selection; split outcomes are unpredictable
+                node = 2 * node + 1 + (value < splitValue[base + node] ? 0 : 1);
+            }
+            totalPathLength += splitValue[base + node];
+        }
+        if (normalizer == 0.0) return 0.5;
+        return Math.pow(2.0, -(totalPathLength / numTrees) / normalizer);
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    public int getNumTrees() {
+        return numTrees;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Train a forest on the given samples. Each row must have the same width;
+     * NaN entries are treated as missing.
+     */
+    public static IsolationForest train(double[][] samples, int numTrees, int sampleSize, long seed) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("Cannot train an isolation forest without samples");
+        }
+        int numFeatures = samples[0].length;
+        int psi = Math.min(sampleSize, samples.length);
+        int maxDepth = Math.max(1, 32 - Integer.numberOfLeadingZeros(psi - 1));
+        int nodesPerTree = (1 << (maxDepth + 1)) - 1;
+
+        double[] fillValues = medians(samples, numFeatures);
+        double[][] data = new double[samples.length][];
+        for (int i = 0; i < samples.length; i++) {
+            if (samples[i].length != numFeatures) {
+                throw new IllegalArgumentException("Sample " + i + " has " + samples[i].length
+                        + " features, expected " + numFeatures);
+            }
+            data[i] = fill(samples[i], fillValues);
+        }
+
+        int[] splitFeature = new int[numTrees * nodesPerTree];
+        double[] splitValue = new double[numTrees * nodesPerTree];
+        Arrays.fill(splitFeature, LEAF);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] permutation = new int[data.length];
+        for (int i = 0; i < permutation.length; i++) permutation[i] = i;
+        int[] subsample = new int[psi];
+
+        TreeBuilder builder = new TreeBuilder(data, numFeatures, maxDepth, splitFeature, splitValue, random);
+        for (int tree = 0; tree < numTrees; tree++) {
+            // Partial Fisher-Yates shuffle: sampling without replacement
+            for (int i = 0; i < psi; i++) {
+                int j = i + random.nextInt(permutation.length - i);
+                int tmp = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = tmp;
+                subsample[i] = permutation[i];
+            }
+            builder.build(tree * nodesPerTree, 0, subsample, 0, psi, 0);
+        }
+        return new IsolationForest(numFeatures, numTrees, psi, nodesPerTree, splitFeature, splitValue, fillValues);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(numFeatures);
+        out.writeInt(numTrees);
+        out.writeInt(sampleSize);
+        out.writeInt(nodesPerTree);
+        for (double fill : fillValues) out.writeDouble(fill);
+        for (int i = 0; i < splitFeature.length; i++) {
+            out.writeInt(splitFeature[i]);
+            out.writeDouble(splitValue[i]);
+        }
+    }
+
+    public static IsolationForest readFrom(DataInput in) throws IOException {
+        if (in.readInt() != FORMAT_MAGIC) {
+            throw new IOException("Not an isolation forest artifact");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported isolation forest format version " + version);
+        }
+        int numFeatures = in.readInt();
+        int numTrees = in.readInt();
+        int sampleSize = in.readInt();
+        int nodesPerTree = in.readInt();
+        double[] fillValues = new double[numFeatures];
+        for (int i = 0; i < numFeatures; i++) fillValues[i] = in.readDouble();
+        int[] splitFeature = new int[numTrees * nodesPerTree];
+        double[] splitValue = new double[numTrees * nodesPerTree];
+        for (int i = 0; i < splitFeature.length; i++) {
+            splitFeature[i] = in.readInt();
+            splitValue[i] = in.readDouble();
+        }
+        return new IsolationForest(numFeatures, numTrees, sampleSize, nodesPerTree, splitFeature, splitValue, fillValues);
+    }
+
+    /** Average path length of an unsuccessful BST search over n points, c(n) in the paper. */
+    static double averagePathLength(int n) {
+        if (n <= 1) return 0.0;
+        if (n == 2) return 1.0;
+        return 2.0 * (Math.log(n - 1.0) + EULER_GAMMA) - 2.0 * (n - 1.0) / n;
+    }
+
+    private static double[] medians(double[][] samples, int numFeatures) {
+        double[] medians = new double[numFeatures];
+        double[] column = new double[samples.length];
+        for (int f = 0; f < numFeatures; f++) {
+            int count = 0;
+            for (double[] sample : samples) {
+                double value = sample[f];
+                if (!Double.isNaN(value)) column[count++] = value;
+            }
+            if (count == 0) continue;
+            Arrays.sort(column, 0, count);
+            medians[f] = column[count / 2];
+        }
+        return medians;
+    }
+
+    private static double[] fill(double[] sample, double[] fillValues) {
+        double[] filled = sample.clone();
+        for (int f = 0; f < filled.length; f++) {
+            if (Double.isNaN(filled[f])) filled[f] = fillValues[f];
+        }
+        return filled;
+    }
+
+    private static final class TreeBuilder {
+        private final double[][] data;
+        private final int numFeatures;
+        private final int maxDepth;
+        private final int[] splitFeature;
+        private final double[] splitValue;
+        private final SplittableRandom random;
+
+        TreeBuilder(double[][] data, int numFeatures, int maxDepth,
+                    int[] splitFeature, double[] splitValue, SplittableRandom random) {
+            this.data = data;
+            this.numFeatures = numFeatures;
+            this.maxDepth = maxDepth;
+            this.splitFeature = splitFeature;
+            this.splitValue = splitValue;
+            this.random = random;
+        }
+
+        void build(int base, int node, int[] rows, int from, int to, int depth) {
+            int size = to - from;
+            if (depth >= maxDepth || size <= 1) {
+                makeLeaf(base + node, depth, size);
+                return;
+            }
+            // Try attributes in random order until one still has spread in this partition
+            int start = random.nextInt(numFeatures);
+            for (int attempt = 0; attempt < numFeatures; attempt++) {
+                int feature = (start + attempt) % numFeatures;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    double value = data[rows[i]][feature];
+                    if (value < min) min = value;
+                    if (value > max) max = value;
+                }
+                if (max <= min) continue;
+
+                double split = min + random.nextDouble() * (max - min);
+                if (split <= min) split = Math.nextUp(min);
+                int mid = partition(rows, from, to, feature, split);
+                splitFeature[base + node] = feature;
+                splitValue[base + node] = split;
+                build(base, 2 * node + 1, rows, from, mid, depth + 1);
+                build(base, 2 * node + 2, rows, mid, to, depth + 1);
+                return;
+            }
+            makeLeaf(base + node, depth, size);
+        }
+
+        private void makeLeaf(int index, int depth, int size) {
+            splitFeature[index] = LEAF;
+            splitValue[index] = depth + averagePathLength(size);
+        }
+
+        private int partition(int[] rows, int from, int to, int feature, double split) {
+            int lo = from;
+            int hi = to - 1;
+            while (lo <= hi) {
+                if (data[rows[lo]][feature] < split) {
+                    lo++;
+                } else {
+                    int tmp = rows[lo];
+                    rows[lo] = rows[hi];
+                    rows[hi] = tmp;
+                    hi--;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.fintech.fintrust.authentication.util;
+
+/**
+ * 64-bit string hash that is identical across JVMs and restarts, for values
+ * that are persisted or compared between nodes: FNV-1a over the UTF-16 code
+ * units followed by the MurmurHash3 finalizer to spread the bits.
+ */
+public final class StableHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableHash() {
+    }
+
+    public static long hash64(String value) {
+        return mix(update(FNV_OFFSET, value));
+    }
+
+    /** Hash of several values, with nulls and separators distinguished. */
+    public static long hash64(String... values) {
+        long hash = FNV_OFFSET;
+        for (String value : values) {
+            hash = value == null ? (hash ^ 0xFF) * FNV_PRIME : update(hash, value);
+            // Separator so ("ab", "c") and ("a", "bc") differ
+            hash = (hash ^ 0x1F) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long update(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,103 @@
+package com.fintech.fintrust.authentication.util;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of claims from tokens whose signature has already been verified,
+ * keyed by a SHA-256 digest of the token so raw tokens are never held in memory.
+ * An entry lives until the token's own exp claim, after which the token goes
+ * back through full verification (and fails it as expired).
+ */
+public class VerifiedClaimsCache {
+    private static final long PURGE_INTERVAL_MS = 1000;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private volatile long lastPurgeMillis;
+
+    public VerifiedClaimsCache(String name, int maxEntries, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("cache.gets", "cache", name, "result", "hit");
+        this.misses = meterRegistry.counter("cache.gets", "cache", name, "result", "miss");
+        Gauge.builder("cache.size", entries, Map::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Return the token's claims, calling the verifier only when the token has not
+     * been verified on this node yet. Verifier exceptions propagate unchanged.
+     */
+    public Claims get(String token, Function<String, Claims> verifier) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMillis > now) {
+                hits.increment();
+                return entry.claims;
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        Claims claims = verifier.apply(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null && expiration.getTime() > now) {
+            if (entries.size() >= maxEntries) {
+                purgeExpired(now);
+            }
+            if (entries.size() < maxEntries) {
+                entries.put(key, new Entry(claims, expiration.getTime()));
+            }
+        }
+        return claims;
+    }
+
+    public void invalidate(String token) {
+        entries.remove(digest(token));
+    }
+
+    private void purgeExpired(long now) {
+        // A cache full of live tokens would otherwise rescan on every miss
+        if (now - lastPurgeMillis < PURGE_INTERVAL_MS) return;
+        lastPurgeMillis = now;
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static final class Entry {
+        final Claims claims;
+        final long expiresAtMillis;
+
+        Entry(Claims claims, long expiresAtMillis) {
+            this.claims = claims;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.fintech.fintrust.authentication.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only NDJSON journal split into numbered segments. A segment is sealed by
+ * {@link #rotate()} and deleted once everything in it has been persisted, so any
+ * segment found on disk at startup holds records a previous process never wrote.
+ */
+@Slf4j
+public class WriteAheadJournal<T> implements AutoCloseable {
+    private static final String SUFFIX = ".ndjson";
+
+    private final Path directory;
+    private final String prefix;
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final boolean fsync;
+
+    private FileChannel channel;
+    private Path currentSegment;
+    private long sequence;
+    private long appendedInSegment;
+
+    public WriteAheadJournal(Path directory, String prefix, ObjectMapper objectMapper, Class<T> type, boolean fsync)
+            throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        this.sequence = listSegments().stream().mapToLong(this::sequenceOf).max().orElse(0L);
+        openNextSegment();
+    }
+
+    public synchronized void append(T item) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(item);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+        buffer.put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        appendedInSegment++;
+    }
+
+    /**
+     * Seal the current segment and start a new one.
+     * Returns the sealed segment, or null if nothing was appended to it.
+     */
+    public synchronized Path rotate() throws IOException {
+        if (appendedInSegment == 0) {
+            return null;
+        }
+        Path sealed = currentSegment;
+        channel.close();
+        openNextSegment();
+        return sealed;
+    }
+
+    /** Sealed segments left on disk, oldest first. */
+    public synchronized List<Path> sealedSegments() throws IOException {
+        return listSegments().stream()
+                .filter(segment -> !segment.equals(currentSegment))
+                .collect(Collectors.toList());
+    }
+
+    public List<T> read(Path segment) throws IOException {
+        List<T> items = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    items.add(objectMapper.readValue(line, type));
+                } catch (IOException e) {
+                    // A crash mid-append leaves a torn last line
+                    log.warn("Skipping unreadable journal entry in {}", segment.getFileName());
+                }
+            }
+        }
+        return items;
+    }
+
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        if (appendedInSegment == 0) {
+            Files.deleteIfExists(currentSegment);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        sequence++;
+        currentSegment = directory.resolve(String.format("%s-%019d%s", prefix, sequence, SUFFIX));
+        channel = FileChannel.open(currentSegment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        appendedInSegment = 0;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix + "-") && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length() + 1, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.fintech.fintrust.authentication.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-memory buffer that hands items to a batch sink from a background
+ * thread, flushing when a batch fills up or the flush interval elapses.
+ *
+ * When the buffer is full, {@link #submit} waits up to the offer timeout and then
+ * returns false so the caller can write synchronously instead of dropping data.
+ * With a journal attached every accepted item is also appended to disk, and a
+ * journal segment is only deleted after all of its items reached the sink.
+ *
+ * A batch the sink rejects is held and retried on later flushes, with the
+ * delay doubling from the retry backoff, up to the maximum attempts. Held
+ * items count against the capacity, so a sink that stays down pushes callers
+ * onto their synchronous fallback instead of growing memory. A batch that
+ * runs out of attempts is dropped from memory. Its journal segments are then
+ * kept for replay on the next start, so only a buffer without a journal
+ * loses it. Retries can go to a separate sink, for stores that need to skip
+ * the part of a failed batch that was already written.
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final int capacity;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final Consumer<List<T>> sink;
+    private final Consumer<List<T>> retrySink;
+    private final WriteAheadJournal<T> journal;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Readers append + enqueue, the writer seals a journal segment
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final Object spaceMonitor = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Guarded by flushLock: failed batches awaiting retry, and the sealed segments they may come from
+    private final Deque<HeldBatch<T>> held = new ArrayDeque<>();
+    private final List<Path> heldSegments = new ArrayList<>();
+    private volatile int heldItems;
+    private boolean keepHeldSegments;
+
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+    private final Counter rejectedCounter;
+
+    public WriteBehindBuffer(String name, int capacity, int batchSize, long flushIntervalMs, long offerTimeoutMs,
+                             int maxAttempts, long retryBackoffMs,
+                             Consumer<List<T>> sink, WriteAheadJournal<T> journal, MeterRegistry meterRegistry) {
+        this(name, capacity, batchSize, flushIntervalMs, offerTimeoutMs, maxAttempts, retryBackoffMs,
+                sink, sink, journal, meterRegistry);
+    }
+
+    public WriteBehindBuffer(String name, int capacity, int batchSize, long flushIntervalMs, long offerTimeoutMs,
+                             int maxAttempts, long retryBackoffMs, Consumer<List<T>> sink,
+                             Consumer<List<T>> retrySink, WriteAheadJournal<T> journal, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.capacity = capacity;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.sink = sink;
+        this.retrySink = retrySink;
+        this.journal = journal;
+
+        Gauge.builder("write.behind.queue.depth", queue, BlockingQueue::size)
+                .tag("buffer", name)
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("write.behind.flush.latency")
+                .tag("buffer", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("write.behind.items.flushed", "buffer", name);
+        this.failedCounter = meterRegistry.counter("write.behind.items.failed", "buffer", name);
+        this.droppedCounter = meterRegistry.counter("write.behind.items.dropped", "buffer", name);
+        this.rejectedCounter = meterRegistry.counter("write.behind.items.rejected", "buffer", name);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue an item for the next flush. Returns false if the buffer stayed full
+     * for the whole offer timeout, in which case the item was not accepted.
+     */
+    public boolean submit(T item) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        while (true) {
+            rotationLock.readLock().lock();
+            try {
+                if (queue.size() + heldItems < capacity && queue.offer(item)) {
+                    appendToJournal(item);
+                    requestFlushIfBatchFull();
+                    return true;
+                }
+            } finally {
+                rotationLock.readLock().unlock();
+            }
+
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                rejectedCounter.increment();
+                return false;
+            }
+            requestFlushIfBatchFull();
+            synchronized (spaceMonitor) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(spaceMonitor, remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejectedCounter.increment();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Write everything queued so far to the sink, after any held batches that are due for a retry. */
+    public void flush() {
+        flush(false);
+    }
+
+    private void flush(boolean closing) {
+        flushLock.lock();
+        try {
+            Path sealed = null;
+            if (journal != null) {
+                rotationLock.writeLock().lock();
+                try {
+                    sealed = journal.rotate();
+                } catch (IOException e) {
+                    log.warn("Write-behind journal rotation failed for {}: {}", name, e.getMessage());
+                } finally {
+                    rotationLock.writeLock().unlock();
+                }
+            }
+
+            retryHeld(closing);
+
+            // Only drain what was queued before the seal; later items belong to the next segment
+            int pending = queue.size();
+            List<T> batch = new ArrayList<>(batchSize);
+            while (pending > 0 && queue.drainTo(batch, Math.min(batchSize, pending)) > 0) {
+                pending -= batch.size();
+                if (writeBatch(batch, sink)) {
+                    batch.clear();
+                } else {
+                    hold(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                synchronized (spaceMonitor) {
+                    spaceMonitor.notifyAll();
+                }
+            }
+            if (closing) {
+                // Nothing retries after close; the journal, if any, still has them
+                for (HeldBatch<T> failed : held) drop(failed);
+                held.clear();
+                heldItems = 0;
+            }
+
+            if (sealed != null) heldSegments.add(sealed);
+            if (held.isEmpty()) releaseSegments();
+        } catch (IOException e) {
+            log.warn("Write-behind journal cleanup failed for {}: {}", name, e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Closing write-behind journal failed for {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private void retryHeld(boolean closing) {
+        long now = System.nanoTime();
+        for (int i = held.size(); i > 0; i--) {
+            HeldBatch<T> failed = held.pollFirst();
+            if (!closing && now < failed.nextAttemptNanos) {
+                held.addLast(failed);
+                continue;
+            }
+            if (writeBatch(failed.items, retrySink)) {
+                heldItems -= failed.items.size();
+            } else if (++failed.attempts >= maxAttempts) {
+                heldItems -= failed.items.size();
+                drop(failed);
+            } else {
+                failed.nextAttemptNanos = now + TimeUnit.MILLISECONDS.toNanos(retryBackoffMs << Math.min(failed.attempts - 1, 16));
+                held.addLast(failed);
+            }
+        }
+        synchronized (spaceMonitor) {
+            spaceMonitor.notifyAll();
+        }
+    }
+
+    private void hold(List<T> batch) {
+        HeldBatch<T> failed = new HeldBatch<>(batch);
+        if (maxAttempts == 1) {
+            drop(failed);
+            return;
+        }
+        failed.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+        held.addLast(failed);
+        heldItems += batch.size();
+    }
+
+    private void drop(HeldBatch<T> failed) {
+        droppedCounter.increment(failed.items.size());
+        keepHeldSegments = true;
+        if (journal != null) {
+            log.error("Giving up on {} items for {} after {} attempts; their journal segments are kept for replay",
+                    failed.items.size(), name, failed.attempts);
+        } else {
+            log.error("Giving up on {} items for {} after {} attempts; without a journal they are lost",
+                    failed.items.size(), name, failed.attempts);
+        }
+    }
+
+    /** No batch is held any more: every sealed segment so far is either persisted or kept for replay. */
+    private void releaseSegments() throws IOException {
+        for (Path segment : heldSegments) {
+            if (keepHeldSegments) {
+                log.warn("Keeping journal segment {} for replay after failed flush", segment.getFileName());
+            } else {
+                journal.delete(segment);
+            }
+        }
+        heldSegments.clear();
+        keepHeldSegments = false;
+    }
+
+    private boolean writeBatch(List<T> batch, Consumer<List<T>> target) {
+        long start = System.nanoTime();
+        try {
+            target.accept(batch);
+            flushedCounter.increment(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("Write-behind flush of {} items failed for {}: {}", batch.size(), name, e.getMessage());
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void appendToJournal(T item) {
+        if (journal == null) return;
+        try {
+            journal.append(item);
+        } catch (IOException e) {
+            // Still queued, just not crash-safe
+            log.warn("Write-behind journal append failed for {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void requestFlushIfBatchFull() {
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RuntimeException e) {
+                // Flusher already shut down; close() drains the rest
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed for {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static final class HeldBatch<T> {
+        final List<T> items;
+        int attempts = 1;
+        long nextAttemptNanos;
+
+        HeldBatch(List<T> items) {
+            this.items = items;
+        }
+    }
+}
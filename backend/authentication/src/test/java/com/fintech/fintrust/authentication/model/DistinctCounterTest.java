@@ -0,0 +1,59 @@
+package com.fintech.fintrust.authentication.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistinctCounterTest {
+    private static final long NOW = 100 * DistinctCounter.WEEK_MILLIS + 1_000;
+
+    @Test
+    void smallCountsAreExactToWithinOne() {
+        for (int n = 0; n <= 30; n++) {
+            DistinctCounter counter = DistinctCounter.weekly();
+            for (int i = 0; i < n; i++) counter.add("ip-" + i, NOW);
+            assertEquals(n, counter.estimate(NOW), 1.0, "estimate of " + n);
+        }
+    }
+
+    @Test
+    void largeCountsStayWithinTheStandardError() {
+        // 256 registers: about 6.5% standard error; allow three of them
+        for (int n : new int[]{1_000, 10_000, 100_000}) {
+            DistinctCounter counter = DistinctCounter.weekly();
+            for (int i = 0; i < n; i++) counter.add("ip-" + n + "-" + i, NOW);
+            double error = Math.abs(counter.estimate(NOW) - n) / (double) n;
+            assertTrue(error < 3 * 0.065, "relative error " + error + " at " + n);
+        }
+    }
+
+    @Test
+    void repeatsDoNotCount() {
+        DistinctCounter counter = DistinctCounter.weekly();
+        for (int i = 0; i < 1_000; i++) counter.add(i % 2 == 0 ? "device-a" : "device-b", NOW);
+        assertEquals(2, counter.estimate(NOW));
+    }
+
+    @Test
+    void estimateWithDoesNotChangeTheCounter() {
+        DistinctCounter counter = DistinctCounter.weekly();
+        counter.add("device-a", NOW);
+        assertEquals(2, counter.estimateWith("device-b", NOW));
+        assertEquals(1, counter.estimateWith("device-a", NOW));
+        assertEquals(1, counter.estimate(NOW));
+    }
+
+    @Test
+    void aNewWindowStartsFromZero() {
+        DistinctCounter counter = DistinctCounter.weekly();
+        for (int i = 0; i < 5; i++) counter.add("ip-" + i, NOW);
+        long nextWeek = NOW + DistinctCounter.WEEK_MILLIS;
+        assertEquals(0, counter.estimate(nextWeek));
+        counter.add("ip-9", nextWeek);
+        assertEquals(1, counter.estimate(nextWeek));
+        // A late event from the old window is counted in the current one
+        counter.add("ip-0", NOW);
+        assertEquals(2, counter.estimate(nextWeek));
+    }
+}
@@ -0,0 +1,62 @@
+package com.fintech.fintrust.authentication.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MembershipFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        MembershipFilter filter = MembershipFilter.forCapacity(1_000, 0.01);
+        assertTrue(filter.isEmpty());
+        for (int i = 0; i < 1_000; i++) filter.add("device-" + i);
+        assertFalse(filter.isEmpty());
+        for (int i = 0; i < 1_000; i++) assertTrue(filter.mightContain("device-" + i));
+        assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        MembershipFilter filter = MembershipFilter.forCapacity(1_000, 0.01);
+        for (int i = 0; i < 999; i++) filter.add("device-" + i);
+        double oneGeneration = falsePositiveRate(filter);
+        assertTrue(oneGeneration < 0.015, "false-positive rate " + oneGeneration);
+
+        // Two full generations are both consulted, so the rate at most doubles
+        for (int i = 999; i < 1_999; i++) filter.add("device-" + i);
+        double twoGenerations = falsePositiveRate(filter);
+        assertTrue(twoGenerations < 0.03, "false-positive rate " + twoGenerations);
+    }
+
+    @Test
+    void valuesUnseenForTwoGenerationsAreForgotten() {
+        MembershipFilter filter = MembershipFilter.forCapacity(100, 0.001);
+        filter.add("old-device");
+        for (int i = 0; i < 99; i++) filter.add("device-" + i);
+        // One generation later it is still remembered
+        assertTrue(filter.mightContain("old-device"));
+        for (int i = 99; i < 199; i++) filter.add("device-" + i);
+        assertFalse(filter.mightContain("old-device"));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        MembershipFilter filter = MembershipFilter.forCapacity(100, 0.01);
+        filter.add("a");
+        MembershipFilter copy = filter.copy();
+        copy.add("b");
+        assertTrue(copy.mightContain("a"));
+        assertFalse(filter.mightContain("b"));
+    }
+
+    private static double falsePositiveRate(MembershipFilter filter) {
+        int positives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("unseen-" + i)) positives++;
+        }
+        return (double) positives / probes;
+    }
+}
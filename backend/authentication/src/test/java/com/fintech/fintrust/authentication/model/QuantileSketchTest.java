@@ -0,0 +1,129 @@
+package com.fintech.fintrust.authentication.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    @Test
+    void emptyAndSmallSketchesDoNotScore() {
+        QuantileSketch sketch = QuantileSketch.empty();
+        assertTrue(Double.isNaN(sketch.cdf(1.0)));
+        for (int i = 0; i < QuantileSketch.MIN_SAMPLES - 1; i++) sketch.add(i);
+        assertTrue(Double.isNaN(sketch.tailScore(100.0)));
+    }
+
+    @Test
+    void constantInputIsNeverUnusual() {
+        QuantileSketch sketch = QuantileSketch.empty();
+        for (int i = 0; i < 500; i++) sketch.add(1.0);
+        assertEquals(0.5, sketch.cdf(1.0), 1e-12);
+        assertEquals(0.0, sketch.tailScore(1.0), 1e-12);
+        assertEquals(0.0, sketch.cdf(0.9), 1e-12);
+        assertEquals(1.0, sketch.cdf(1.1), 1e-12);
+    }
+
+    @Test
+    void tiesAtTheMaximumCountHalf() {
+        // A capped feature: half the values sit exactly at the cap
+        QuantileSketch sketch = QuantileSketch.empty();
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) sketch.add(i % 2 == 0 ? 1.0 : random.nextDouble());
+        assertEquals(0.75, sketch.cdf(1.0), 0.05);
+        assertTrue(sketch.tailScore(1.0) < 0.5);
+        assertEquals(1.0, sketch.cdf(Math.nextUp(1.0)), 1e-12);
+        assertEquals(1.0, sketch.tailScore(1.5), 1e-12);
+    }
+
+    @Test
+    void tiesAtTheMinimumCountHalf() {
+        QuantileSketch sketch = QuantileSketch.empty();
+        Random random = new Random(11);
+        for (int i = 0; i < 1_000; i++) sketch.add(i % 4 == 0 ? 0.0 : 1.0 + random.nextDouble());
+        assertEquals(0.125, sketch.cdf(0.0), 0.03);
+        assertEquals(0.0, sketch.cdf(-0.1), 1e-12);
+    }
+
+    @Test
+    void upperTailIgnoresLowValues() {
+        QuantileSketch sketch = QuantileSketch.empty();
+        for (int i = 1; i <= 1_000; i++) sketch.add(i);
+        assertEquals(0.0, sketch.upperTailScore(0.0), 1e-12);
+        assertEquals(0.0, sketch.upperTailScore(400.0), 1e-12);
+        assertEquals(sketch.tailScore(990.0), sketch.upperTailScore(990.0), 1e-12);
+        assertEquals(1.0, sketch.upperTailScore(5_000.0), 1e-12);
+    }
+
+    @Test
+    void cdfTracksAnExactSort() {
+        Random random = new Random(42);
+        double[] values = new double[20_000];
+        QuantileSketch sketch = QuantileSketch.empty();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+            sketch.add(values[i]);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[]{0.001, 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99, 0.999}) {
+            double value = sorted[(int) (q * sorted.length)];
+            double exact = exactCdf(sorted, value);
+            // The digest is tighter in the tails, where scoring reads it
+            double tolerance = q < 0.05 || q > 0.95 ? 0.002 : 0.01;
+            assertEquals(exact, sketch.cdf(value), tolerance, "cdf at quantile " + q);
+        }
+    }
+
+    @Test
+    void mergeMatchesOneSketchOfEverything() {
+        Random random = new Random(3);
+        QuantileSketch left = QuantileSketch.empty();
+        QuantileSketch right = QuantileSketch.empty();
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Two differently shaped halves, as from two nodes
+            values[i] = i % 2 == 0 ? random.nextGaussian() : 1 + random.nextExponential();
+            (i % 2 == 0 ? left : right).add(values[i]);
+        }
+        left.merge(right);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(values.length, left.getCount());
+        assertEquals(sorted[0], left.getMin(), 0.0);
+        assertEquals(sorted[sorted.length - 1], left.getMax(), 0.0);
+        for (double q : new double[]{0.01, 0.1, 0.5, 0.9, 0.99}) {
+            double value = sorted[(int) (q * sorted.length)];
+            double tolerance = q < 0.05 || q > 0.95 ? 0.005 : 0.02;
+            assertEquals(exactCdf(sorted, value), left.cdf(value), tolerance, "merged cdf at quantile " + q);
+        }
+    }
+
+    @Test
+    void mergeIntoEmptyKeepsTheOther() {
+        QuantileSketch other = QuantileSketch.empty();
+        for (int i = 1; i <= 100; i++) other.add(i);
+        QuantileSketch merged = QuantileSketch.empty();
+        merged.merge(other);
+        assertEquals(100, merged.getCount());
+        assertEquals(1.0, merged.getMin(), 0.0);
+        assertEquals(100.0, merged.getMax(), 0.0);
+        assertEquals(other.cdf(50.0), merged.cdf(50.0), 0.01);
+    }
+
+    /** Fraction below {@code value}, counting equal values half. */
+    private static double exactCdf(double[] sorted, double value) {
+        int below = 0;
+        int equal = 0;
+        for (double v : sorted) {
+            if (v < value) below++;
+            else if (v == value) equal++;
+        }
+        return (below + equal / 2.0) / sorted.length;
+    }
+}
@@ -0,0 +1,62 @@
+package com.fintech.fintrust.authentication.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransitionMatrixTest {
+    private static final int HOME = 1;
+    private static final int ACCOUNTS = 2;
+    private static final int TRANSFERS = 3;
+    private static final int SETTINGS = 4;
+
+    @Test
+    void noScoreWithoutEnoughHistory() {
+        TransitionMatrix matrix = TransitionMatrix.empty();
+        assertTrue(Double.isNaN(matrix.surpriseBits(ACCOUNTS)));
+        cycle(matrix, HOME, ACCOUNTS, 2);
+        matrix.record(HOME);
+        assertTrue(Double.isNaN(matrix.surpriseBits(ACCOUNTS)));
+    }
+
+    @Test
+    void habitualTransitionsAreUnsurprising() {
+        TransitionMatrix matrix = TransitionMatrix.empty();
+        cycle(matrix, HOME, ACCOUNTS, 50);
+        matrix.record(HOME);
+        double habitual = matrix.surpriseBits(ACCOUNTS);
+        double novel = matrix.surpriseBits(SETTINGS);
+        assertTrue(habitual < 0.5, "habitual surprise " + habitual);
+        assertTrue(novel > 8, "novel surprise " + novel);
+    }
+
+    @Test
+    void recentHabitsOutweighOlderOnes() {
+        TransitionMatrix matrix = TransitionMatrix.empty();
+        cycle(matrix, HOME, ACCOUNTS, 300);
+        // Half as many visits, but recent enough that decay puts them ahead
+        cycle(matrix, HOME, TRANSFERS, 150);
+        matrix.record(HOME);
+        assertTrue(matrix.surpriseBits(TRANSFERS) < matrix.surpriseBits(ACCOUNTS));
+    }
+
+    @Test
+    void pruningBoundsTheEdgesAndKeepsTheHeavyOnes() {
+        TransitionMatrix matrix = TransitionMatrix.empty();
+        cycle(matrix, HOME, ACCOUNTS, 50);
+        for (int i = 0; i < 200; i++) {
+            matrix.record(HOME);
+            matrix.record(1_000 + i);
+        }
+        assertTrue(matrix.getEdgeCount() <= TransitionMatrix.MAX_EDGES);
+        matrix.record(HOME);
+        assertTrue(matrix.surpriseBits(ACCOUNTS) < matrix.surpriseBits(SETTINGS));
+    }
+
+    private static void cycle(TransitionMatrix matrix, int from, int to, int times) {
+        for (int i = 0; i < times; i++) {
+            matrix.record(from);
+            matrix.record(to);
+        }
+    }
+}
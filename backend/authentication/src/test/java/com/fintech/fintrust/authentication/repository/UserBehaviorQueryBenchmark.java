@@ -0,0 +1,235 @@
+package com.fintech.fintrust.authentication.repository;
+
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a user's recent history and checks a device against a seeded local
+ * MongoDB, with full documents and with the {@link UserBehavior#SCORING_FIELDS}
+ * projection, through the declared indexes and with a forced collection scan.
+ * The first run seeds bench.behaviors documents (10M by default, over
+ * bench.users users) and builds the indexes, which takes a while; later runs
+ * reuse them. The bytes and documents counters are totals per iteration, so
+ * bytes / queries is what one query transferred. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fintech.fintrust.authentication.repository.UserBehaviorQueryBenchmark},
+ * adding {@code -Dbench.mongo.uri=...} for a server other than localhost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserBehaviorQueryBenchmark {
+    private static final String URI = System.getProperty("bench.mongo.uri", "mongodb://localhost:27017");
+    private static final String DATABASE = System.getProperty("bench.mongo.database", "behavior_benchmark");
+    private static final long BEHAVIORS = Long.getLong("bench.behaviors", 10_000_000L);
+    private static final int USERS = Integer.getInteger("bench.users", 100_000);
+    private static final int DEVICES_PER_USER = 3;
+    private static final int RECENT = 100;
+    private static final int SEED_BATCH = 10_000;
+
+    private static final Document SCORING_PROJECTION = Document.parse(UserBehavior.SCORING_FIELDS);
+    private static final Document NEWEST_FIRST = new Document("timestamp", -1);
+    private static final Document COLLECTION_SCAN = new Document("$natural", 1);
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private MongoClient client;
+    private MongoCollection<RawBsonDocument> behaviors;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Transfer {
+        public long bytes;
+        public long documents;
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            documents = 0;
+            queries = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Users {
+        private final Random random = new Random();
+
+        String next() {
+            return userId(random.nextInt(USERS));
+        }
+
+        String device(String userId) {
+            return userId + "-device-" + random.nextInt(DEVICES_PER_USER + 1);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create(URI);
+        MongoCollection<Document> seeded = client.getDatabase(DATABASE).getCollection("user_behaviors");
+        seed(seeded);
+        behaviors = seeded.withDocumentClass(RawBsonDocument.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public int recentFullDocuments(Users users, Transfer transfer) {
+        return drain(recent(users.next()), transfer);
+    }
+
+    @Benchmark
+    public int recentScoringProjection(Users users, Transfer transfer) {
+        return drain(recent(users.next()).projection(SCORING_PROJECTION), transfer);
+    }
+
+    @Benchmark
+    public int knownDeviceLookup(Users users, Transfer transfer) {
+        String userId = users.next();
+        Bson filter = new Document("userId", userId).append("deviceId", users.device(userId));
+        FindIterable<RawBsonDocument> query = behaviors.find(filter)
+                .projection(new Document("_id", 1))
+                .limit(1);
+        return drain(indexed ? query : query.hint(COLLECTION_SCAN), transfer);
+    }
+
+    private FindIterable<RawBsonDocument> recent(String userId) {
+        FindIterable<RawBsonDocument> query = behaviors.find(new Document("userId", userId))
+                .sort(NEWEST_FIRST)
+                .limit(RECENT);
+        return indexed ? query : query.hint(COLLECTION_SCAN);
+    }
+
+    private static int drain(FindIterable<RawBsonDocument> query, Transfer transfer) {
+        int count = 0;
+        for (RawBsonDocument document : query) {
+            transfer.bytes += document.getByteBuffer().remaining();
+            count++;
+        }
+        transfer.documents += count;
+        transfer.queries++;
+        return count;
+    }
+
+    /** Top the collection up to bench.behaviors documents, then ensure the indexes UserBehavior declares. */
+    private static void seed(MongoCollection<Document> collection) {
+        long existing = collection.estimatedDocumentCount();
+        Random random = new Random(existing);
+        Instant now = Instant.now();
+        List<Document> batch = new ArrayList<>(SEED_BATCH);
+        for (long i = existing; i < BEHAVIORS; i++) {
+            batch.add(sampleDocument(random, userId((int) (i % USERS)), now));
+            if (batch.size() == SEED_BATCH) {
+                collection.insertMany(batch, new InsertManyOptions().ordered(false));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.insertMany(batch, new InsertManyOptions().ordered(false));
+        }
+        collection.createIndex(new Document("userId", 1).append("timestamp", -1), new IndexOptions().name("user_time"));
+        collection.createIndex(new Document("userId", 1).append("deviceId", 1), new IndexOptions().name("user_device"));
+        collection.createIndex(new Document("userId", 1).append("ipAddress", 1), new IndexOptions().name("user_ip"));
+    }
+
+    /** A behavior shaped like the ones the filter stores, context data included. */
+    private static Document sampleDocument(Random random, String userId, Instant now) {
+        Date timestamp = Date.from(now.minus(random.nextInt(365 * 24 * 60), ChronoUnit.MINUTES));
+        String deviceId = userId + "-device-" + random.nextInt(DEVICES_PER_USER);
+        return new Document("_class", UserBehavior.class.getName())
+                .append("userId", userId)
+                .append("username", userId + "@example.com")
+                .append("timestamp", timestamp)
+                .append("deviceId", deviceId)
+                .append("deviceType", "MOBILE")
+                .append("deviceModel", "Pixel 8")
+                .append("ipAddress", "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256))
+                .append("userAgent", "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) "
+                        + "Chrome/126.0.0.0 Mobile Safari/537.36")
+                .append("latitude", 12.97 + random.nextGaussian() * 0.05)
+                .append("longitude", 77.59 + random.nextGaussian() * 0.05)
+                .append("locationHash", Long.toHexString(random.nextLong()))
+                .append("typingPattern", new Document("averageTypingSpeed", 5.0 + random.nextGaussian())
+                        .append("typingVariance", random.nextDouble())
+                        .append("pauseDuration", 300.0 + random.nextGaussian() * 40)
+                        .append("backspaceFrequency", random.nextDouble() * 0.1)
+                        .append("keyPressIntervals", new Document("a", 120.0).append("e", 95.0).append("s", 143.0)))
+                .append("touchPattern", new Document("tapPressure", 0.6 + random.nextGaussian() * 0.1)
+                        .append("tapDuration", 90.0 + random.nextGaussian() * 10)
+                        .append("swipeVelocity", 1.2 + random.nextGaussian() * 0.2)
+                        .append("touchArea", "center"))
+                .append("navigationPattern", new Document("previousPage", "/api/dashboard")
+                        .append("currentPage", "/api/accounts")
+                        .append("timeOnPage", 1_000.0 + random.nextInt(60_000))
+                        .append("navigationPath", List.of("/api/dashboard", "/api/accounts")))
+                .append("sessionPattern", new Document("sessionStart", timestamp)
+                        .append("sessionDuration", 600_000L + (long) (random.nextGaussian() * 60_000))
+                        .append("requestCount", 1 + random.nextInt(50))
+                        .append("sessionId", "token-" + random.nextInt(1_000_000))
+                        .append("isActive", true)
+                        .append("accessedEndpoints", List.of("/api/dashboard", "/api/accounts")))
+                .append("anomalyScore", random.nextDouble() * 0.3)
+                .append("riskFactors", List.of())
+                .append("riskLevel", "LOW")
+                .append("actionType", "NAVIGATION")
+                .append("endpoint", "/api/accounts")
+                .append("requestMethod", "GET")
+                .append("contextData", new Document("appVersion", "4.12.0")
+                        .append("locale", "en-IN")
+                        .append("referer", "https://app.example.com/dashboard"))
+                .append("dataAnonymized", false)
+                .append("consentLevel", "FULL")
+                .append("dataRetentionUntil", Date.from(timestamp.toInstant().plus(365, ChronoUnit.DAYS)));
+    }
+
+    private static String userId(int index) {
+        return "bench-user-" + index;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserBehaviorQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,34 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyFastPathTest {
+    private final AnomalyFastPath fastPath = new AnomalyFastPath(new SimpleMeterRegistry(), true, 0.3);
+    private final AnomalyModelDescriptor.Thresholds thresholds = AnomalyModelDescriptor.builtin().getThresholds();
+
+    @Test
+    void lowSubScoresWithUsualVelocityAreClear() {
+        assertTrue(fastPath.isClear(quiet(1, 1), thresholds));
+    }
+
+    @Test
+    void highIpVelocityGoesToTheModelTier() {
+        assertFalse(fastPath.isClear(quiet(1, thresholds.getWeeklyIpAddresses() + 1), thresholds));
+    }
+
+    @Test
+    void highDeviceVelocityGoesToTheModelTier() {
+        assertFalse(fastPath.isClear(quiet(thresholds.getWeeklyDevices() + 1, 1), thresholds));
+    }
+
+    /** Every per-signal sub-score zero, with the given weekly device and IP counts. */
+    private static SubScores quiet(long weeklyDevices, long weeklyIpAddresses) {
+        return new SubScores(new double[0], 0, 0, 0, 0, 0, 0, 0, false, weeklyDevices, weeklyIpAddresses,
+                SharedInfrastructureGraph.Exposure.NONE);
+    }
+}
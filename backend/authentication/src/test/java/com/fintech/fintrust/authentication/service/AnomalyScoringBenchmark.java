@@ -0,0 +1,121 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.AnomalyModelDescriptor;
+import com.fintech.fintrust.authentication.model.BehaviorBaseline;
+import com.fintech.fintrust.authentication.model.FeatureSchema;
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import com.fintech.fintrust.authentication.util.IsolationForest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-request scoring cost of the weighted heuristic and the isolation
+ * forest against the same user baseline, and the cost of the fused deviation
+ * pass over the baseline's feature columns on its own. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fintech.fintrust.authentication.service.AnomalyScoringBenchmark},
+ * or add {@code -prof gc} through JMH options to check allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnomalyScoringBenchmark {
+
+    private BehaviorBaseline baseline;
+    private UserBehavior behavior;
+    private IsolationForest forest;
+    private WeightedDeviationScorer heuristic;
+    private double[] raw;
+    private double[] features;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        baseline = BehaviorBaseline.empty("bench-user");
+        for (int i = 0; i < 100; i++) {
+            baseline.record(sampleBehavior(random, "device-" + (i % 3)));
+        }
+        behavior = sampleBehavior(random, "device-new");
+
+        double[][] samples = new double[10_000][];
+        BehaviorBaseline trainingBaseline = BehaviorBaseline.empty("training-user");
+        trainingBaseline.record(sampleBehavior(random, "device-0"));
+        for (int i = 0; i < samples.length; i++) {
+            UserBehavior sample = sampleBehavior(random, "device-" + random.nextInt(4));
+            samples[i] = BehaviorFeatureExtractor.extract(sample, trainingBaseline);
+            trainingBaseline.record(sample);
+        }
+        forest = IsolationForest.train(samples, 100, 256, 42);
+        heuristic = new WeightedDeviationScorer(AnomalyModelDescriptor.builtin());
+        raw = FeatureSchema.extract(behavior);
+        features = BehaviorFeatureExtractor.extract(behavior, baseline);
+    }
+
+    @Benchmark
+    public double heuristic() {
+        return heuristic.score(behavior, baseline, AnomalyDetectionService.calculateSubScores(behavior, baseline));
+    }
+
+    @Benchmark
+    public SubScores subScores() {
+        return AnomalyDetectionService.calculateSubScores(behavior, baseline);
+    }
+
+    @Benchmark
+    public double[] fusedDeviationPass() {
+        BehaviorFeatureExtractor.extract(raw, behavior.getDeviceId(), baseline, features);
+        return features;
+    }
+
+    @Benchmark
+    public double isolationForestWithExtraction() {
+        BehaviorFeatureExtractor.extract(raw, behavior.getDeviceId(), baseline, features);
+        return forest.score(features);
+    }
+
+    @Benchmark
+    public double isolationForestScoreOnly() {
+        return forest.score(features);
+    }
+
+    private static UserBehavior sampleBehavior(Random random, String deviceId) {
+        return UserBehavior.builder()
+                .userId("bench-user")
+                .deviceId(deviceId)
+                .latitude(12.97 + random.nextGaussian() * 0.05)
+                .longitude(77.59 + random.nextGaussian() * 0.05)
+                .typingPattern(UserBehavior.TypingPattern.builder()
+                        .averageTypingSpeed(5.0 + random.nextGaussian())
+                        .build())
+                .touchPattern(UserBehavior.TouchPattern.builder()
+                        .tapPressure(0.6 + random.nextGaussian() * 0.1)
+                        .build())
+                .sessionPattern(UserBehavior.SessionPattern.builder()
+                        .sessionDuration(600_000L + (long) (random.nextGaussian() * 60_000))
+                        .build())
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnomalyScoringBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
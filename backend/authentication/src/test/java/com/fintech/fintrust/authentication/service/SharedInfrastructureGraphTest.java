@@ -0,0 +1,73 @@
+package com.fintech.fintrust.authentication.service;
+
+import com.fintech.fintrust.authentication.model.UserBehavior;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharedInfrastructureGraphTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final SharedInfrastructureGraph graph =
+            new SharedInfrastructureGraph(new SimpleMeterRegistry(), true, 4, 24, 0.05, 10, 1_000);
+
+    @Test
+    void accountsOnOneDeviceAreLinked() {
+        for (int i = 0; i < 3; i++) graph.record(behavior("user-" + i, "device-1", "10.0.0." + i, NOW));
+        SharedInfrastructureGraph.Exposure exposure = graph.record(behavior("user-3", "device-1", "10.0.0.3", NOW));
+        assertEquals(4.0, exposure.deviceAccounts(), 1e-9);
+        assertEquals(1.0, exposure.ipAddressAccounts(), 1e-9);
+        assertEquals(4, exposure.linkedAccounts());
+    }
+
+    @Test
+    void busyIpAddressesCountAccountsButLinkNobody() {
+        SharedInfrastructureGraph wide = new SharedInfrastructureGraph(new SimpleMeterRegistry(), true, 64, 24, 0.05,
+                10, 1_000);
+        SharedInfrastructureGraph.Exposure[] exposures = new SharedInfrastructureGraph.Exposure[30];
+        for (int i = 0; i < exposures.length; i++) {
+            exposures[i] = wide.record(behavior("user-" + i, "device-" + i, "100.64.0.1", NOW));
+        }
+        // The first ten arrived while the address was small enough to link them
+        assertEquals(10, exposures[9].linkedAccounts());
+        assertEquals(1, exposures[29].linkedAccounts());
+        assertEquals(30.0, exposures[29].ipAddressAccounts(), 1e-9);
+    }
+
+    @Test
+    void edgesDecayAndOldLinksAreForgottenOnCompaction() {
+        LocalDateTime old = LocalDateTime.now().minusDays(10);
+        graph.record(behavior("user-a", "device-1", null, old));
+        SharedInfrastructureGraph.Exposure linked = graph.record(behavior("user-b", "device-1", null, old));
+        assertEquals(2, linked.linkedAccounts());
+
+        // Ten half-lives later user-a's edge no longer counts
+        SharedInfrastructureGraph.Exposure fresh = graph.record(behavior("user-c", "device-1", null, LocalDateTime.now()));
+        assertEquals(1.0, fresh.deviceAccounts(), 1e-9);
+
+        graph.compact();
+        SharedInfrastructureGraph.Exposure afterCompaction =
+                graph.record(behavior("user-b", "device-2", null, LocalDateTime.now()));
+        assertEquals(1, afterCompaction.linkedAccounts());
+    }
+
+    @Test
+    void fullNodesEvictTheStalestEdge() {
+        for (int i = 0; i < 4; i++) graph.record(behavior("user-" + i, "device-1", null, NOW.plusMinutes(i)));
+        SharedInfrastructureGraph.Exposure exposure = graph.record(behavior("user-4", "device-1", null, NOW.plusMinutes(5)));
+        // Max degree 4: user-0 made room, minus its small decayed weight
+        assertEquals(4.0, exposure.deviceAccounts(), 0.01);
+    }
+
+    private static UserBehavior behavior(String userId, String deviceId, String ipAddress, LocalDateTime timestamp) {
+        UserBehavior behavior = new UserBehavior();
+        behavior.setUserId(userId);
+        behavior.setDeviceId(deviceId);
+        behavior.setIpAddress(ipAddress);
+        behavior.setTimestamp(timestamp);
+        return behavior;
+    }
+}
@@ -0,0 +1,37 @@
+package com.fintech.fintrust.authentication.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringRegistryTest {
+
+    @Test
+    void fullRegistryRefusesNewKeysInsteadOfEvicting() {
+        ExpiringRegistry<String, Long> registry = new ExpiringRegistry<>("test", 60_000, 3, new SimpleMeterRegistry());
+        for (int i = 0; i < 3; i++) assertTrue(registry.put("user-" + i, (long) i));
+
+        assertFalse(registry.put("user-3", 3L));
+        for (int i = 0; i < 3; i++) assertEquals(Long.valueOf(i), registry.getIfPresent("user-" + i));
+        assertNull(registry.getIfPresent("user-3"));
+        // Refreshing a key that is already held needs no room
+        assertTrue(registry.put("user-0", 10L));
+        assertEquals(Long.valueOf(10), registry.getIfPresent("user-0"));
+    }
+
+    @Test
+    void expiredEntriesMakeRoom() throws InterruptedException {
+        ExpiringRegistry<String, Long> registry = new ExpiringRegistry<>("test", 20, 2, new SimpleMeterRegistry());
+        registry.put("user-0", 0L);
+        registry.put("user-1", 1L);
+        Thread.sleep(40);
+
+        assertNull(registry.getIfPresent("user-0"));
+        assertTrue(registry.put("user-2", 2L));
+        assertEquals(1, registry.size());
+    }
+}
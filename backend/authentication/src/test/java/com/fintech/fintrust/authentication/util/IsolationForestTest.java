@@ -0,0 +1,83 @@
+package com.fintech.fintrust.authentication.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsolationForestTest {
+
+    @Test
+    void averagePathLengthMatchesTheHarmonicDefinition() {
+        assertEquals(0.0, IsolationForest.averagePathLength(1), 0.0);
+        assertEquals(1.0, IsolationForest.averagePathLength(2), 0.0);
+        for (int n : new int[]{3, 16, 256, 4096}) {
+            // c(n) = 2 H(n-1) - 2 (n-1) / n; the code approximates H(i) by ln(i) + gamma
+            double harmonic = 0;
+            for (int i = 1; i < n; i++) harmonic += 1.0 / i;
+            double exact = 2 * harmonic - 2.0 * (n - 1) / n;
+            assertEquals(exact, IsolationForest.averagePathLength(n), 1.0 / (n - 1), "c(" + n + ")");
+        }
+    }
+
+    @Test
+    void outliersScoreAboveTheTrainingCluster() {
+        IsolationForest forest = IsolationForest.train(gaussianCluster(2_000, 1), 100, 256, 42);
+        double inlier = forest.score(new double[]{0.0, 0.0});
+        double outlier = forest.score(new double[]{8.0, -8.0});
+        assertTrue(inlier < 0.5, "inlier score " + inlier);
+        assertTrue(outlier > 0.65, "outlier score " + outlier);
+    }
+
+    @Test
+    void identicalSamplesScoreOneHalf() {
+        double[][] samples = new double[100][];
+        for (int i = 0; i < samples.length; i++) samples[i] = new double[]{1.0, 2.0};
+        IsolationForest forest = IsolationForest.train(samples, 10, 64, 1);
+        // Nothing can be split, so every point sits at the average path length
+        assertEquals(0.5, forest.score(new double[]{1.0, 2.0}), 1e-12);
+        assertEquals(0.5, forest.score(new double[]{50.0, -3.0}), 1e-12);
+    }
+
+    @Test
+    void missingFeaturesTakeTheTrainingMedian() {
+        double[][] samples = gaussianCluster(501, 7);
+        IsolationForest forest = IsolationForest.train(samples, 50, 128, 7);
+        double[] column = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) column[i] = samples[i][1];
+        Arrays.sort(column);
+        double median = column[samples.length / 2];
+        assertEquals(forest.score(new double[]{3.0, median}), forest.score(new double[]{3.0, Double.NaN}), 0.0);
+    }
+
+    @Test
+    void artifactRoundTripScoresIdentically() throws IOException {
+        IsolationForest forest = IsolationForest.train(gaussianCluster(1_000, 3), 20, 128, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        forest.writeTo(new DataOutputStream(bytes));
+        IsolationForest read = IsolationForest.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(forest.getNumTrees(), read.getNumTrees());
+        assertEquals(forest.getSampleSize(), read.getSampleSize());
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            double[] point = {random.nextGaussian() * 3, random.nextGaussian() * 3};
+            assertEquals(forest.score(point), read.score(point), 0.0);
+        }
+    }
+
+    private static double[][] gaussianCluster(int size, long seed) {
+        Random random = new Random(seed);
+        double[][] samples = new double[size][];
+        for (int i = 0; i < size; i++) samples[i] = new double[]{random.nextGaussian(), random.nextGaussian()};
+        return samples;
+    }
+}
@@ -0,0 +1,137 @@
+package com.fintech.fintrust.authentication.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindBufferTest {
+    // Long enough that only the test's own flush() calls write
+    private static final long NEVER_MS = 3_600_000;
+
+    @Test
+    void flushWritesEverythingQueuedInOrder() {
+        List<String> written = new ArrayList<>();
+        try (WriteBehindBuffer<String> buffer = buffer(100, 5, 0, written::addAll, null)) {
+            for (int i = 0; i < 12; i++) assertTrue(buffer.submit("item-" + i));
+            buffer.flush();
+            assertEquals(12, written.size());
+            assertEquals("item-0", written.get(0));
+            assertEquals("item-11", written.get(11));
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    void failedBatchIsRetriedOnLaterFlushes() {
+        List<String> written = new ArrayList<>();
+        FlakySink sink = new FlakySink(2, written);
+        try (WriteBehindBuffer<String> buffer = buffer(100, 100, 3, sink, null)) {
+            for (int i = 0; i < 10; i++) buffer.submit("item-" + i);
+            buffer.flush();
+            buffer.flush();
+            assertTrue(written.isEmpty());
+            buffer.flush();
+            assertEquals(10, written.size());
+            buffer.flush();
+            assertEquals(10, written.size());
+        }
+    }
+
+    @Test
+    void retriesGoToTheRetrySink() {
+        FlakySink sink = new FlakySink(1, new ArrayList<>());
+        List<String> retried = new ArrayList<>();
+        try (WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>("test", 100, 100, NEVER_MS, 0, 3, 0,
+                sink, retried::addAll, null, new SimpleMeterRegistry())) {
+            for (int i = 0; i < 3; i++) buffer.submit("item-" + i);
+            buffer.flush();
+            buffer.submit("item-3");
+            buffer.flush();
+            assertEquals(List.of("item-0", "item-1", "item-2"), retried);
+            assertEquals(List.of("item-3"), sink.written);
+        }
+    }
+
+    @Test
+    void heldBatchesCountAgainstCapacity() {
+        try (WriteBehindBuffer<String> buffer = buffer(4, 100, 5, new FlakySink(Integer.MAX_VALUE, null), null)) {
+            for (int i = 0; i < 4; i++) assertTrue(buffer.submit("item-" + i));
+            buffer.flush();
+            assertEquals(0, buffer.size());
+            assertFalse(buffer.submit("item-4"));
+        }
+    }
+
+    @Test
+    void journalSegmentIsDeletedOncePersisted() throws IOException {
+        Path directory = Files.createTempDirectory("write-behind");
+        WriteAheadJournal<String> journal = journal(directory);
+        List<String> written = new ArrayList<>();
+        try (WriteBehindBuffer<String> buffer = buffer(100, 100, 3, written::addAll, journal)) {
+            for (int i = 0; i < 10; i++) buffer.submit("item-" + i);
+            buffer.flush();
+            assertEquals(10, written.size());
+            assertTrue(journal.sealedSegments().isEmpty());
+        }
+    }
+
+    @Test
+    void batchOutOfAttemptsIsReplayedFromTheJournal() throws IOException {
+        Path directory = Files.createTempDirectory("write-behind");
+        try (WriteBehindBuffer<String> buffer = buffer(100, 100, 2,
+                new FlakySink(Integer.MAX_VALUE, null), journal(directory))) {
+            for (int i = 0; i < 10; i++) buffer.submit("item-" + i);
+            buffer.flush();
+            buffer.flush();
+        }
+
+        // What a restart finds on disk
+        WriteAheadJournal<String> reopened = journal(directory);
+        List<String> replayed = new ArrayList<>();
+        for (Path segment : reopened.sealedSegments()) replayed.addAll(reopened.read(segment));
+        reopened.close();
+        assertEquals(10, replayed.size());
+        assertEquals("item-0", replayed.get(0));
+    }
+
+    private static WriteBehindBuffer<String> buffer(int capacity, int batchSize, int maxAttempts,
+                                                    Consumer<List<String>> sink, WriteAheadJournal<String> journal) {
+        return new WriteBehindBuffer<>("test", capacity, batchSize, NEVER_MS, 0, maxAttempts, 0, sink, journal,
+                new SimpleMeterRegistry());
+    }
+
+    private static WriteAheadJournal<String> journal(Path directory) throws IOException {
+        return new WriteAheadJournal<>(directory, "test", new ObjectMapper(), String.class, false);
+    }
+
+    /** Fails the first {@code failures} writes, then passes batches on. */
+    private static final class FlakySink implements Consumer<List<String>> {
+        private int failures;
+        private final List<String> written;
+
+        FlakySink(int failures, List<String> written) {
+            this.failures = failures;
+            this.written = written;
+        }
+
+        @Override
+        public void accept(List<String> batch) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("database unavailable");
+            }
+            written.addAll(batch);
+        }
+    }
+}
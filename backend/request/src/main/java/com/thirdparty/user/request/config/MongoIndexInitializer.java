@@ -0,0 +1,91 @@
+package com.thirdparty.user.request.config;
+
+import com.thirdparty.user.request.domain.UserBehavior;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared with {@code @CompoundIndex} on the listed
+ * documents at startup, then reads the collection's indexes back and checks
+ * every declared one is there. Automatic index creation stays off so this is
+ * the single place those indexes come from. A missing index is logged, or
+ * fails startup when anomaly.indexes.fail-on-missing is set.
+ */
+@Component
+@Slf4j
+public class MongoIndexInitializer {
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(UserBehavior.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean failOnMissing;
+
+    public MongoIndexInitializer(
+            MongoTemplate mongoTemplate,
+            @Value("${anomaly.indexes.fail-on-missing:false}") boolean failOnMissing
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.failOnMissing = failOnMissing;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        List<String> missing = new ArrayList<>();
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            String collection = mongoTemplate.getCollectionName(document);
+            IndexOperations indexes = mongoTemplate.indexOps(document);
+            List<String> declared = new ArrayList<>();
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                String name = index.getIndexOptions().getString("name");
+                declared.add(name);
+                try {
+                    indexes.ensureIndex(index);
+                } catch (DataAccessException e) {
+                    // Typically an existing index on the same keys under another name or options
+                    log.warn("Could not create index {} on {}: {}", name, collection, e.getMessage());
+                }
+            }
+            missing.addAll(verify(collection, indexes, declared));
+        }
+        if (missing.isEmpty()) return;
+        if (failOnMissing) {
+            throw new IllegalStateException("Missing MongoDB indexes: " + missing);
+        }
+        log.warn("Missing MongoDB indexes, queries on them will scan: {}", missing);
+    }
+
+    /** Declared indexes that the collection does not have, as collection.name. */
+    private List<String> verify(String collection, IndexOperations indexes, List<String> declared) {
+        Set<String> present = new HashSet<>();
+        try {
+            for (IndexInfo info : indexes.getIndexInfo()) {
+                present.add(info.getName());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not list indexes of {}: {}", collection, e.getMessage());
+        }
+        List<String> missing = new ArrayList<>();
+        for (String name : declared) {
+            if (!present.contains(name)) {
+                missing.add(collection + "." + name);
+            }
+        }
+        if (missing.isEmpty()) {
+            log.info("Verified indexes {} on {}", declared, collection);
+        }
+        return missing;
+    }
+}
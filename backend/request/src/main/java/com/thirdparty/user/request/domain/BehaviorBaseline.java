@@ -0,0 +1,112 @@
+package com.thirdparty.user.request.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running per-user behavioral statistics. Each new behavior is folded in with
+ * O(1) work, so scoring reads this single record instead of the user's history.
+ */
+@Document(collection = "behavior_baselines")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BehaviorBaseline {
+    public static final int MAX_KNOWN_DEVICES = 32;
+
+    @Id
+    private String userId;
+    @Version
+    private Long version;
+    private long sampleCount;
+
+    // Welford accumulators per feature
+    private RunningStat typingSpeed;
+    private RunningStat tapPressure;
+    private RunningStat sessionDuration;
+    private RunningStat latitude;
+    private RunningStat longitude;
+
+    // Most recently used last
+    private List<String> knownDevices;
+    private LocalDateTime updatedAt;
+
+    public static BehaviorBaseline empty(String userId) {
+        return BehaviorBaseline.builder()
+                .userId(userId)
+                .typingSpeed(new RunningStat())
+                .tapPressure(new RunningStat())
+                .sessionDuration(new RunningStat())
+                .latitude(new RunningStat())
+                .longitude(new RunningStat())
+                .knownDevices(new ArrayList<>())
+                .build();
+    }
+
+    public void record(UserBehavior behavior) {
+        if (behavior.getTypingPattern() != null) {
+            typingSpeed.add(behavior.getTypingPattern().getAverageTypingSpeed());
+        }
+        if (behavior.getTouchPattern() != null) {
+            tapPressure.add(behavior.getTouchPattern().getTapPressure());
+        }
+        if (behavior.getSessionPattern() != null && behavior.getSessionPattern().getSessionDuration() != null) {
+            sessionDuration.add(behavior.getSessionPattern().getSessionDuration().doubleValue());
+        }
+        if (behavior.getLatitude() != null && behavior.getLongitude() != null) {
+            latitude.add(behavior.getLatitude());
+            longitude.add(behavior.getLongitude());
+        }
+        rememberDevice(behavior.getDeviceId());
+        sampleCount++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    public boolean isKnownDevice(String deviceId) {
+        return deviceId != null && knownDevices.contains(deviceId);
+    }
+
+    private void rememberDevice(String deviceId) {
+        if (deviceId == null) return;
+        knownDevices.remove(deviceId);
+        if (knownDevices.size() >= MAX_KNOWN_DEVICES) {
+            knownDevices.remove(0);
+        }
+        knownDevices.add(deviceId);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RunningStat {
+        private long count;
+        private double mean;
+        private double m2;
+
+        public void add(Double value) {
+            if (value == null || value.isNaN()) return;
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        public double variance() {
+            return count > 1 ? m2 / (count - 1) : 0.0;
+        }
+
+        public boolean hasSamples() {
+            return count > 0;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -12,11 +14,24 @@ import java.util.List;
 import java.util.Map;
 
 @Document(collection = "user_behaviors")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_time", def = "{'userId': 1, 'timestamp': -1}"),
+        @CompoundIndex(name = "user_device", def = "{'userId': 1, 'deviceId': 1}"),
+        @CompoundIndex(name = "user_ip", def = "{'userId': 1, 'ipAddress': 1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class UserBehavior {
+    /**
+     * Projection of the fields the behavior baseline reads. Behaviors read
+     * through it come back partially filled.
+     */
+    public static final String SCORING_FIELDS = "{'userId': 1, 'timestamp': 1, 'deviceId': 1, 'latitude': 1, "
+            + "'longitude': 1, 'typingPattern.averageTypingSpeed': 1, 'touchPattern.tapPressure': 1, "
+            + "'sessionPattern.sessionDuration': 1}";
+
     @Id
     private String id;
     private String userId;
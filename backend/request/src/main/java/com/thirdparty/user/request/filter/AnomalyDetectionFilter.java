@@ -2,13 +2,15 @@ package com.thirdparty.user.request.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thirdparty.user.request.domain.AnomalyDetectionResult;
-import com.thirdparty.user.request.domain.User;
 import com.thirdparty.user.request.domain.UserBehavior;
-import com.thirdparty.user.request.dto.CustomUserDetails;
-import com.thirdparty.user.request.repository.UserRepository;
-import com.thirdparty.user.request.service.AnomalyDetectionService;
+import com.thirdparty.user.request.service.AsyncAnomalyScoringService;
+import com.thirdparty.user.request.service.AsyncAnomalyScoringService.ScoringOutcome;
 import com.thirdparty.user.request.service.JwtService;
+import com.thirdparty.user.request.service.PrincipalResolver;
+import com.thirdparty.user.request.service.SessionRevocationService;
+import com.thirdparty.user.request.service.SessionTracker;
 import com.thirdparty.user.request.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,9 +39,11 @@ import java.util.Enumeration;
 public class AnomalyDetectionFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
-    private final AnomalyDetectionService anomalyDetectionService;
+    private final AsyncAnomalyScoringService anomalyScoringService;
+    private final SessionRevocationService revocationService;
+    private final SessionTracker sessionTracker;
     private final ObjectMapper objectMapper;
-    private final UserRepository userRepository;
+    private final PrincipalResolver principalResolver;
     private final JwtUtil jwtUtil;
     
     @Override
@@ -72,15 +76,32 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
             final String username = jwtService.extractUsernameFromAccessToken(jwt);
             
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userRepository.findByUsername(username).orElseThrow(() -> new IllegalArgumentException("User with username '" + username + "' not found"));
-                UserDetails userDetails = new CustomUserDetails(user);
+                Claims claims = jwtService.extractAccessTokenClaims(jwt);
+                UserDetails userDetails = principalResolver.resolve(claims);
                 
                 if (jwtService.validateAccessToken(jwt)) {
+                    // Sessions revoked by a late anomaly score
+                    if (revocationService.isRevoked(username, claims.getIssuedAt())) {
+                        sendRevokedResponse(response);
+                        return;
+                    }
+                    
                     // Create user behavior data for anomaly detection
-                    UserBehavior userBehavior = createUserBehavior(request, username, userDetails);
+                    UserBehavior userBehavior = createUserBehavior(request, username, userDetails, claims);
                     
-                    // Perform anomaly detection
-                    AnomalyDetectionResult anomalyResult = anomalyDetectionService.detectAnomaly(userBehavior);
+                    // Perform anomaly detection within the latency budget
+                    ScoringOutcome outcome = anomalyScoringService.score(userBehavior);
+                    if (outcome.isDeferred()) {
+                        if (outcome.isFailClosed()) {
+                            sendDeferredResponse(response);
+                            return;
+                        }
+                        authenticate(request, userDetails);
+                        response.setHeader("X-Anomaly-Status", "DEFERRED");
+                        filterChain.doFilter(request, response);
+                        return;
+                    }
+                    AnomalyDetectionResult anomalyResult = outcome.getResult();
                     
                     // Check if anomaly is detected
                     if (anomalyResult.getIsAnomaly()) {
@@ -101,11 +122,7 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
                     }
                     
                     // If no anomaly or anomaly is acceptable, proceed with authentication
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    authenticate(request, userDetails);
                     
                     // Add anomaly detection headers to response
                     addAnomalyHeaders(response, anomalyResult);
@@ -120,7 +137,16 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
         }
     }
     
-    private UserBehavior createUserBehavior(HttpServletRequest request, String username, UserDetails userDetails) {
+    private void authenticate(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities()
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+    
+    private UserBehavior createUserBehavior(HttpServletRequest request, String username, UserDetails userDetails,
+                                            Claims claims) {
         // Extract behavioral data from request
         Map<String, Object> contextData = new HashMap<>();
         contextData.put("userAgent", request.getHeader("User-Agent"));
@@ -199,10 +225,8 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
                 .navigationPattern(UserBehavior.NavigationPattern.builder()
                         .currentPage(request.getRequestURI())
                         .build())
-                .sessionPattern(UserBehavior.SessionPattern.builder()
-                        .sessionId(request.getSession().getId())
-                        .isActive(true)
-                        .build())
+                .sessionPattern(sessionTracker.track(userDetails.getUsername(), sessionId(request, claims),
+                        request.getRequestURI()))
                 .actionType("API_REQUEST")
                 .endpoint(request.getRequestURI())
                 .requestMethod(request.getMethod())
@@ -244,6 +268,31 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
         objectMapper.writeValue(response.getWriter(), challengeResponse);
     }
     
+    private void sendRevokedResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        
+        Map<String, Object> revokedResponse = new HashMap<>();
+        revokedResponse.put("error", "SESSION_REVOKED");
+        revokedResponse.put("message", "Session revoked after anomaly review, please sign in again");
+        revokedResponse.put("timestamp", LocalDateTime.now());
+        
+        objectMapper.writeValue(response.getWriter(), revokedResponse);
+    }
+    
+    private void sendDeferredResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Retry-After", "1");
+        
+        Map<String, Object> deferredResponse = new HashMap<>();
+        deferredResponse.put("error", "ANOMALY_CHECK_UNAVAILABLE");
+        deferredResponse.put("message", "Risk assessment did not complete in time, please retry");
+        deferredResponse.put("timestamp", LocalDateTime.now());
+        
+        objectMapper.writeValue(response.getWriter(), deferredResponse);
+    }
+    
     private void addAnomalyHeaders(HttpServletResponse response, AnomalyDetectionResult anomalyResult) {
         response.setHeader("X-Anomaly-Score", String.valueOf(anomalyResult.getOverallAnomalyScore()));
         response.setHeader("X-Risk-Level", anomalyResult.getRiskLevel());
@@ -251,6 +300,18 @@ public class AnomalyDetectionFilter extends OncePerRequestFilter {
         response.setHeader("X-Security-Measures", String.join(",", anomalyResult.getSecurityMeasures()));
     }
     
+    /**
+     * The client's session ID, or else one per access token. Never a servlet
+     * session: this service is stateless.
+     */
+    private String sessionId(HttpServletRequest request, Claims claims) {
+        String sessionId = request.getHeader("X-Session-ID");
+        if (sessionId != null && !sessionId.isBlank()) {
+            return sessionId;
+        }
+        return claims.getIssuedAt() == null ? null : "token-" + claims.getIssuedAt().getTime();
+    }
+    
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
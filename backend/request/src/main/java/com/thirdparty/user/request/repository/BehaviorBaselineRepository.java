@@ -0,0 +1,9 @@
+package com.thirdparty.user.request.repository;
+
+import com.thirdparty.user.request.domain.BehaviorBaseline;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BehaviorBaselineRepository extends MongoRepository<BehaviorBaseline, String> {
+}
@@ -1,7 +1,7 @@
 package com.thirdparty.user.request.service;
 
-import com.thirdparty.user.request.repository.UserBehaviorRepository;
 import com.thirdparty.user.request.domain.AnomalyDetectionResult;
+import com.thirdparty.user.request.domain.BehaviorBaseline;
 import com.thirdparty.user.request.domain.UserBehavior;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,14 +9,14 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AnomalyDetectionService {
     
-    private final UserBehaviorRepository userBehaviorRepository;
+    private final BehaviorBaselineService baselineService;
+    private final UserBehaviorWriteBehindService behaviorWriter;
     
     // Machine Learning Model Parameters
     private static final double TYPING_ANOMALY_THRESHOLD = 0.7;
@@ -28,24 +28,22 @@ public class AnomalyDetectionService {
     public AnomalyDetectionResult detectAnomaly(UserBehavior currentBehavior) {
         log.info("Starting anomaly detection for user: {}", currentBehavior.getUserId());
         
-        // Get historical behavior data for comparison
-        List<UserBehavior> historicalBehaviors = userBehaviorRepository
-                .findByUserIdOrderByTimestampDesc(currentBehavior.getUserId())
-                .stream()
-                .limit(100) // Last 100 behaviors
-                .collect(Collectors.toList());
-        
-        if (historicalBehaviors.isEmpty()) {
+        // Running statistics replace the scan over the user's behavior history
+        BehaviorBaseline baseline = baselineService.load(currentBehavior.getUserId());
+        if (baseline.getSampleCount() == 0) {
             // First-time user, create baseline
+            baselineService.record(baseline, currentBehavior);
+            behaviorWriter.submit(currentBehavior);
             return createBaselineResult(currentBehavior);
         }
+        int historySize = (int) Math.min(baseline.getSampleCount(), Integer.MAX_VALUE);
         
         // Calculate anomaly scores for different behavioral aspects
-        double typingAnomalyScore = calculateTypingAnomalyScore(currentBehavior, historicalBehaviors);
-        double touchAnomalyScore = calculateTouchAnomalyScore(currentBehavior, historicalBehaviors);
-        double locationAnomalyScore = calculateLocationAnomalyScore(currentBehavior, historicalBehaviors);
-        double sessionAnomalyScore = calculateSessionAnomalyScore(currentBehavior, historicalBehaviors);
-        double deviceAnomalyScore = calculateDeviceAnomalyScore(currentBehavior, historicalBehaviors);
+        double typingAnomalyScore = calculateTypingAnomalyScore(currentBehavior, baseline);
+        double touchAnomalyScore = calculateTouchAnomalyScore(currentBehavior, baseline);
+        double locationAnomalyScore = calculateLocationAnomalyScore(currentBehavior, baseline);
+        double sessionAnomalyScore = calculateSessionAnomalyScore(currentBehavior, baseline);
+        double deviceAnomalyScore = calculateDeviceAnomalyScore(currentBehavior, baseline);
         
         // Calculate overall anomaly score using weighted average
         double overallAnomalyScore = calculateOverallAnomalyScore(
@@ -77,7 +75,7 @@ public class AnomalyDetectionService {
                 .overallAnomalyScore(overallAnomalyScore)
                 .isAnomaly(isAnomaly)
                 .anomalyType(determineAnomalyType(typingAnomalyScore, touchAnomalyScore, locationAnomalyScore))
-                .confidenceLevel(determineConfidenceLevel(historicalBehaviors.size()))
+                .confidenceLevel(determineConfidenceLevel(historySize))
                 .typingAnomalyScore(typingAnomalyScore)
                 .touchAnomalyScore(touchAnomalyScore)
                 .navigationAnomalyScore(0.0) // TODO: Implement navigation analysis
@@ -100,11 +98,12 @@ public class AnomalyDetectionService {
                 .modelVersion("1.0")
                 .algorithmUsed("Isolation Forest + Statistical Analysis")
                 .modelParameters(createModelParameters())
-                .modelConfidence(calculateModelConfidence(historicalBehaviors.size()))
+                .modelConfidence(calculateModelConfidence(historySize))
                 .build();
         
         // Save current behavior for future analysis
-        userBehaviorRepository.save(currentBehavior);
+        baselineService.record(baseline, currentBehavior);
+        behaviorWriter.submit(currentBehavior);
         
         log.info("Anomaly detection completed. Score: {}, Anomaly: {}, Risk Level: {}", 
                 overallAnomalyScore, isAnomaly, riskLevel);
@@ -112,15 +111,11 @@ public class AnomalyDetectionService {
         return result;
     }
     
-    private double calculateTypingAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getTypingPattern() == null) return 0.0;
+    private double calculateTypingAnomalyScore(UserBehavior current, BehaviorBaseline baseline) {
+        if (current.getTypingPattern() == null || current.getTypingPattern().getAverageTypingSpeed() == null) return 0.0;
         
-        // Calculate average typing speed from historical data
-        double avgHistoricalSpeed = historical.stream()
-                .filter(b -> b.getTypingPattern() != null && b.getTypingPattern().getAverageTypingSpeed() != null)
-                .mapToDouble(b -> b.getTypingPattern().getAverageTypingSpeed())
-                .average()
-                .orElse(0.0);
+        // Average typing speed from the running baseline
+        double avgHistoricalSpeed = baseline.getTypingSpeed().getMean();
         
         if (avgHistoricalSpeed == 0.0) return 0.0;
         
@@ -131,15 +126,11 @@ public class AnomalyDetectionService {
         return Math.min(speedDifference, 1.0);
     }
     
-    private double calculateTouchAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getTouchPattern() == null) return 0.0;
+    private double calculateTouchAnomalyScore(UserBehavior current, BehaviorBaseline baseline) {
+        if (current.getTouchPattern() == null || current.getTouchPattern().getTapPressure() == null) return 0.0;
         
-        // Calculate average tap pressure from historical data
-        double avgHistoricalPressure = historical.stream()
-                .filter(b -> b.getTouchPattern() != null && b.getTouchPattern().getTapPressure() != null)
-                .mapToDouble(b -> b.getTouchPattern().getTapPressure())
-                .average()
-                .orElse(0.0);
+        // Average tap pressure from the running baseline
+        double avgHistoricalPressure = baseline.getTapPressure().getMean();
         
         if (avgHistoricalPressure == 0.0) return 0.0;
         
@@ -149,58 +140,41 @@ public class AnomalyDetectionService {
         return Math.min(pressureDifference, 1.0);
     }
     
-    private double calculateLocationAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
+    private double calculateLocationAnomalyScore(UserBehavior current, BehaviorBaseline baseline) {
         if (current.getLatitude() == null || current.getLongitude() == null) return 0.0;
+        if (!baseline.getLatitude().hasSamples()) return 0.0;
         
         // Calculate distance from usual location
-        double avgLat = historical.stream()
-                .filter(b -> b.getLatitude() != null)
-                .mapToDouble(UserBehavior::getLatitude)
-                .average()
-                .orElse(current.getLatitude());
-        
-        double avgLon = historical.stream()
-                .filter(b -> b.getLongitude() != null)
-                .mapToDouble(UserBehavior::getLongitude)
-                .average()
-                .orElse(current.getLongitude());
-        
         double distance = calculateDistance(
                 current.getLatitude(), current.getLongitude(),
-                avgLat, avgLon
+                baseline.getLatitude().getMean(), baseline.getLongitude().getMean()
         );
         
         // Normalize distance (consider 100km as maximum anomaly)
         return Math.min(distance / 100.0, 1.0);
     }
     
-    private double calculateSessionAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
-        if (current.getSessionPattern() == null) return 0.0;
+    private double calculateSessionAnomalyScore(UserBehavior current, BehaviorBaseline baseline) {
+        if (current.getSessionPattern() == null || current.getSessionPattern().getSessionDuration() == null) return 0.0;
         
         // Check for unusual session patterns
         long currentDuration = current.getSessionPattern().getSessionDuration();
-        double avgHistoricalDuration = historical.stream()
-                .filter(b -> b.getSessionPattern() != null && b.getSessionPattern().getSessionDuration() != null)
-                .mapToDouble(b -> b.getSessionPattern().getSessionDuration())
-                .average()
-                .orElse(currentDuration);
+        double avgHistoricalDuration = baseline.getSessionDuration().hasSamples()
+                ? baseline.getSessionDuration().getMean()
+                : currentDuration;
         
         if (avgHistoricalDuration == 0.0) return 0.0;
         
-        double durationDifference = Math.abs(currentDuration - avgHistoricalDuration) / avgHistoricalDuration;
+        // The tracker reports time elapsed so far, so every session starts short; only longer than usual counts
+        double durationDifference = Math.max(0.0, currentDuration - avgHistoricalDuration) / avgHistoricalDuration;
         return Math.min(durationDifference, 1.0);
     }
     
-    private double calculateDeviceAnomalyScore(UserBehavior current, List<UserBehavior> historical) {
+    private double calculateDeviceAnomalyScore(UserBehavior current, BehaviorBaseline baseline) {
         // Check if device is new or unusual
-        Set<String> knownDevices = historical.stream()
-                .map(UserBehavior::getDeviceId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-        
-        if (knownDevices.isEmpty()) return 0.0;
+        if (baseline.getKnownDevices().isEmpty()) return 0.0;
         
-        return knownDevices.contains(current.getDeviceId()) ? 0.0 : 0.8;
+        return baseline.isKnownDevice(current.getDeviceId()) ? 0.0 : 0.8;
     }
     
     private double calculateOverallAnomalyScore(double typing, double touch, double location, 
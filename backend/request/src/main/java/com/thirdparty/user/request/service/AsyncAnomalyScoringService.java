@@ -0,0 +1,141 @@
+package com.thirdparty.user.request.service;
+
+import com.thirdparty.user.request.domain.AnomalyDetectionResult;
+import com.thirdparty.user.request.domain.UserBehavior;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs anomaly scoring on a dedicated pool under a per-request latency budget.
+ * When the budget is exceeded the request is let through (fail-open) or refused
+ * (fail-closed, for sensitive endpoints); the score still completes in the
+ * background, and a late BLOCK decision revokes the user's sessions. When the
+ * pool is saturated and cannot take the request at all, it is refused
+ * whatever the endpoint, so flooding the pool is not a way around scoring;
+ * the behavior is still stored.
+ */
+@Service
+@Slf4j
+public class AsyncAnomalyScoringService {
+
+    public enum TimeoutPolicy { FAIL_OPEN, FAIL_CLOSED }
+
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final SessionRevocationService revocationService;
+    private final UserBehaviorWriteBehindService behaviorWriter;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final boolean asyncEnabled;
+    private final long budgetMs;
+    private final TimeoutPolicy defaultPolicy;
+    private final List<String> failClosedPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public AsyncAnomalyScoringService(
+            AnomalyDetectionService anomalyDetectionService,
+            SessionRevocationService revocationService,
+            UserBehaviorWriteBehindService behaviorWriter,
+            @Qualifier("anomalyScoringExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.scoring.async.enabled:false}") boolean asyncEnabled,
+            @Value("${anomaly.scoring.async.budget-ms:15}") long budgetMs,
+            @Value("${anomaly.scoring.async.timeout-policy:FAIL_OPEN}") TimeoutPolicy defaultPolicy,
+            @Value("${anomaly.scoring.async.fail-closed-paths:/api/requests/*/submitToBlockChain}") List<String> failClosedPaths
+    ) {
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.revocationService = revocationService;
+        this.behaviorWriter = behaviorWriter;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.asyncEnabled = asyncEnabled;
+        this.budgetMs = budgetMs;
+        this.defaultPolicy = defaultPolicy;
+        this.failClosedPaths = failClosedPaths;
+    }
+
+    public ScoringOutcome score(UserBehavior behavior) {
+        if (!asyncEnabled) {
+            return ScoringOutcome.scored(anomalyDetectionService.detectAnomaly(behavior));
+        }
+
+        CompletableFuture<AnomalyDetectionResult> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> anomalyDetectionService.detectAnomaly(behavior), executor);
+        } catch (RejectedExecutionException e) {
+            // Nothing will score this request later, so keep it on record and refuse it
+            behaviorWriter.submit(behavior);
+            return deferred(behavior, "rejected", TimeoutPolicy.FAIL_CLOSED);
+        }
+
+        try {
+            return ScoringOutcome.scored(future.get(budgetMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            future.whenComplete((result, error) -> handleLateResult(behavior, result, error));
+            return deferred(behavior, "timeout", policyFor(behavior.getEndpoint()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return deferred(behavior, "interrupted", policyFor(behavior.getEndpoint()));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Anomaly scoring failed", e.getCause());
+        }
+    }
+
+    private ScoringOutcome deferred(UserBehavior behavior, String reason, TimeoutPolicy policy) {
+        meterRegistry.counter("anomaly.scoring.deferred", "reason", reason, "policy", policy.name()).increment();
+        log.debug("Anomaly scoring for user {} deferred ({}), applying {}", behavior.getUserId(), reason, policy);
+        return ScoringOutcome.deferred(policy == TimeoutPolicy.FAIL_CLOSED);
+    }
+
+    private TimeoutPolicy policyFor(String endpoint) {
+        if (endpoint != null) {
+            for (String pattern : failClosedPaths) {
+                if (pathMatcher.match(pattern, endpoint)) {
+                    return TimeoutPolicy.FAIL_CLOSED;
+                }
+            }
+        }
+        return defaultPolicy;
+    }
+
+    private void handleLateResult(UserBehavior behavior, AnomalyDetectionResult result, Throwable error) {
+        if (error != null) {
+            log.error("Deferred anomaly scoring failed for user {}: {}", behavior.getUserId(), error.getMessage());
+            return;
+        }
+        meterRegistry.counter("anomaly.scoring.late.results", "action", result.getRecommendedAction()).increment();
+        if ("BLOCK".equals(result.getRecommendedAction())) {
+            revocationService.revoke(behavior.getUsername(),
+                    "late anomaly score " + result.getOverallAnomalyScore() + " on " + behavior.getEndpoint());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ScoringOutcome {
+        private final AnomalyDetectionResult result;
+        private final boolean deferred;
+        private final boolean failClosed;
+
+        static ScoringOutcome scored(AnomalyDetectionResult result) {
+            return new ScoringOutcome(result, false, false);
+        }
+
+        static ScoringOutcome deferred(boolean failClosed) {
+            return new ScoringOutcome(null, true, failClosed);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.thirdparty.user.request.service;
+
+import com.thirdparty.user.request.domain.BehaviorBaseline;
+import com.thirdparty.user.request.domain.UserBehavior;
+import com.thirdparty.user.request.repository.BehaviorBaselineRepository;
+import com.thirdparty.user.request.repository.UserBehaviorRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BehaviorBaselineService {
+
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    private static final int SEED_HISTORY = 100;
+
+    private final BehaviorBaselineRepository baselineRepository;
+    private final UserBehaviorRepository userBehaviorRepository;
+
+    /**
+     * Load the user's baseline, seeding it once from recent history for users
+     * whose behaviors were recorded before the baseline store existed.
+     */
+    public BehaviorBaseline load(String userId) {
+        return baselineRepository.findById(userId).orElseGet(() -> seedFromHistory(userId));
+    }
+
+    /**
+     * Fold a behavior into the baseline and persist it. Concurrent writers for the
+     * same user are resolved by reloading and reapplying the behavior.
+     */
+    public BehaviorBaseline record(BehaviorBaseline baseline, UserBehavior behavior) {
+        BehaviorBaseline current = baseline;
+        for (int attempt = 1; ; attempt++) {
+            current.record(behavior);
+            try {
+                return baselineRepository.save(current);
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    log.warn("Dropping baseline update for user {} after {} conflicting writes",
+                            behavior.getUserId(), attempt);
+                    return current;
+                }
+                current = load(behavior.getUserId());
+            }
+        }
+    }
+
+    private BehaviorBaseline seedFromHistory(String userId) {
+        BehaviorBaseline baseline = BehaviorBaseline.empty(userId);
+        List<UserBehavior> recent = userBehaviorRepository.findScoringFieldsByUserId(userId,
+                PageRequest.of(0, SEED_HISTORY));
+        // Oldest first so the device list keeps its most-recently-used ordering
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            baseline.record(recent.get(i));
+        }
+        if (!recent.isEmpty()) {
+            log.info("Seeded behavior baseline for user {} from {} historical behaviors", userId, recent.size());
+        }
+        return baseline;
+    }
+}
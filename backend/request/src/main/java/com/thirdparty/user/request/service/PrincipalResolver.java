@@ -0,0 +1,73 @@
+package com.thirdparty.user.request.service;
+
+import com.thirdparty.user.request.domain.User;
+import com.thirdparty.user.request.dto.CustomUserDetails;
+import com.thirdparty.user.request.repository.UserRepository;
+import com.thirdparty.user.request.util.ExpiringCache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resolves the authenticated principal for a verified access token without a
+ * database round-trip per request. Either the principal is built straight from
+ * the token's roles claim, or user lookups are cached per node with a short TTL.
+ * <p>
+ * Nothing invalidates the cache when a user's roles or credentials change:
+ * neither module changes them, and the cache is per node anyway. A change made
+ * directly in the user store is seen once the entry expires, after at most
+ * security.principal.cache.ttl-ms. With roles from the token, it is seen when
+ * the access token expires. Revoking a user's sessions drops the entry at once.
+ */
+@Component
+public class PrincipalResolver {
+    private final UserRepository userRepository;
+    private final boolean fromJwtClaims;
+    private final ExpiringCache<String, UserDetails> cache;
+
+    public PrincipalResolver(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${security.principal.from-jwt-claims:false}") boolean fromJwtClaims,
+            @Value("${security.principal.cache.ttl-ms:60000}") long ttlMs,
+            @Value("${security.principal.cache.max-entries:50000}") int maxEntries
+    ) {
+        this.userRepository = userRepository;
+        this.fromJwtClaims = fromJwtClaims;
+        this.cache = new ExpiringCache<>("security.principals", ttlMs, maxEntries, meterRegistry);
+    }
+
+    public UserDetails resolve(Claims claims) {
+        String username = claims.getSubject();
+        if (fromJwtClaims) {
+            List<?> roles = claims.get("roles", List.class);
+            if (roles != null) {
+                return fromClaims(username, roles);
+            }
+        }
+        return cache.get(username, this::loadUser);
+    }
+
+    /** Drop the cached principal, so the next request loads the user again. */
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    private UserDetails loadUser(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("User with username '" + username + "' not found"));
+        return new CustomUserDetails(user);
+    }
+
+    private UserDetails fromClaims(String username, List<?> roles) {
+        User user = User.builder()
+                .username(username)
+                .roles(roles.stream().map(String::valueOf).toList())
+                .build();
+        return new CustomUserDetails(user);
+    }
+}
@@ -0,0 +1,59 @@
+package com.thirdparty.user.request.service;
+
+import com.thirdparty.user.request.repository.UserRepository;
+import com.thirdparty.user.request.util.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+/**
+ * Revokes a user's sessions after the fact, e.g. when a deferred anomaly score
+ * comes back as BLOCK. Access tokens issued before the revocation are rejected
+ * on this node until they would have expired anyway, and the stored refresh
+ * token is cleared so no new access token can be minted.
+ */
+@Service
+@Slf4j
+public class SessionRevocationService {
+    private final UserRepository userRepository;
+    private final PrincipalResolver principalResolver;
+    // username -> revocation time; entries outlive any token issued before them
+    private final ExpiringCache<String, Long> revokedAt;
+    private final Counter revocations;
+
+    public SessionRevocationService(
+            UserRepository userRepository,
+            PrincipalResolver principalResolver,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.access.expiration}") long accessTokenExpirationMs,
+            @Value("${security.revocation.max-entries:100000}") int maxEntries
+    ) {
+        this.userRepository = userRepository;
+        this.principalResolver = principalResolver;
+        this.revokedAt = new ExpiringCache<>("security.revocations", accessTokenExpirationMs, maxEntries, meterRegistry);
+        this.revocations = meterRegistry.counter("security.sessions.revoked");
+    }
+
+    public void revoke(String username, String reason) {
+        revokedAt.put(username, System.currentTimeMillis());
+        userRepository.findByUsername(username).ifPresent(user -> {
+            user.setRefreshToken(null);
+            userRepository.save(user);
+        });
+        principalResolver.invalidate(username);
+        revocations.increment();
+        log.warn("Revoked sessions for user {}: {}", username, reason);
+    }
+
+    /** True if the token was issued before the user's sessions were revoked. */
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long revokedAtMillis = revokedAt.getIfPresent(username);
+        if (revokedAtMillis == null) return false;
+        // iat is truncated to the second, so a token minted in the same second as the revocation is rejected too
+        return issuedAt == null || issuedAt.getTime() < revokedAtMillis;
+    }
+}
@@ -0,0 +1,198 @@
+package com.thirdparty.user.request.service;
+
+import com.thirdparty.user.request.domain.UserBehavior;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory view of each user's client session, keyed by the client's session
+ * ID, so the scorer sees real session duration, request counts and endpoints
+ * without the service creating servlet sessions. Requests only touch lock-free
+ * per-session counters. Idle sessions are evicted by a hashed timer wheel: a
+ * session sits in the slot of its idle deadline and is checked when that slot
+ * comes round, so a request never has to reschedule anything.
+ */
+@Service
+@Slf4j
+public class SessionTracker {
+    public static final int MAX_ENDPOINTS = 32;
+
+    private static final int WHEEL_SLOTS = 256;
+
+    private final boolean enabled;
+    private final long idleTimeoutMs;
+    private final long tickMs;
+    private final int maxSessions;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Queue<Session>[] wheel;
+    private final ScheduledExecutorService ticker;
+    private final Counter evictions;
+    private final Counter untracked;
+    // Last tick the wheel has processed; written by the ticker thread only
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public SessionTracker(
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.sessions.enabled:true}") boolean enabled,
+            @Value("${anomaly.sessions.idle-timeout-ms:1800000}") long idleTimeoutMs,
+            @Value("${anomaly.sessions.tick-ms:1000}") long tickMs,
+            @Value("${anomaly.sessions.max-sessions:1000000}") int maxSessions
+    ) {
+        this.enabled = enabled;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.tickMs = tickMs;
+        this.maxSessions = maxSessions;
+        this.wheel = new Queue[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) wheel[i] = new ConcurrentLinkedQueue<>();
+        this.currentTick = System.currentTimeMillis() / tickMs;
+        this.evictions = meterRegistry.counter("anomaly.sessions.evicted");
+        this.untracked = meterRegistry.counter("anomaly.sessions.untracked");
+        Gauge.builder("anomaly.sessions.active", sessions, Map::size).register(meterRegistry);
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            ticker.scheduleWithFixedDelay(this::advanceQuietly, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Count a request against its session and describe the session as it now stands. */
+    public UserBehavior.SessionPattern track(String userId, String sessionId, String endpoint) {
+        if (!enabled || sessionId == null) {
+            return UserBehavior.SessionPattern.builder()
+                    .sessionId(sessionId)
+                    .isActive(true)
+                    .build();
+        }
+        long now = System.currentTimeMillis();
+        // Session IDs come from the client, so they are only unique per user
+        String key = userId + '\n' + sessionId;
+        Session session = sessions.get(key);
+        if (session == null) {
+            if (sessions.size() >= maxSessions) {
+                untracked.increment();
+                return new Session(key, now).touch(now, endpoint).pattern(sessionId, now);
+            }
+            Session created = new Session(key, now);
+            session = sessions.putIfAbsent(key, created);
+            if (session == null) {
+                session = created;
+                schedule(session, now + idleTimeoutMs);
+            }
+        }
+        return session.touch(now, endpoint).pattern(sessionId, now);
+    }
+
+    @PreDestroy
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void schedule(Session session, long deadlineMillis) {
+        long tick = currentTick;
+        // Deadlines more than a rotation out are parked in the furthest slot and rescheduled from there
+        long target = Math.min(Math.max(deadlineMillis / tickMs, tick + 1), tick + WHEEL_SLOTS - 1);
+        wheel[(int) (target & (WHEEL_SLOTS - 1))].add(session);
+    }
+
+    private void advanceQuietly() {
+        try {
+            advance(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.error("Session tracker tick failed", e);
+        }
+    }
+
+    private void advance(long now) {
+        long target = now / tickMs;
+        // After a long pause, one full rotation already visits every slot
+        long from = Math.max(currentTick + 1, target - WHEEL_SLOTS + 1);
+        for (long tick = from; tick <= target; tick++) {
+            currentTick = tick;
+            Queue<Session> slot = wheel[(int) (tick & (WHEEL_SLOTS - 1))];
+            Session session;
+            while ((session = slot.poll()) != null) {
+                long deadline = session.lastSeenMillis + idleTimeoutMs;
+                if (deadline > now) {
+                    schedule(session, deadline);
+                } else if (sessions.remove(session.key, session)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Session {
+        final String key;
+        final long startMillis;
+        final AtomicInteger requests = new AtomicInteger();
+        // Bounded set: first MAX_ENDPOINTS distinct endpoints, claimed slot by slot with CAS
+        final AtomicReferenceArray<String> endpoints = new AtomicReferenceArray<>(MAX_ENDPOINTS);
+        volatile long lastSeenMillis;
+
+        Session(String key, long now) {
+            this.key = key;
+            this.startMillis = now;
+            this.lastSeenMillis = now;
+        }
+
+        Session touch(long now, String endpoint) {
+            requests.incrementAndGet();
+            lastSeenMillis = now;
+            if (endpoint != null) addEndpoint(endpoint);
+            return this;
+        }
+
+        private void addEndpoint(String endpoint) {
+            for (int i = 0; i < MAX_ENDPOINTS; i++) {
+                String existing = endpoints.get(i);
+                if (existing == null) {
+                    if (endpoints.compareAndSet(i, null, endpoint)) return;
+                    existing = endpoints.get(i);
+                }
+                if (existing.equals(endpoint)) return;
+            }
+        }
+
+        UserBehavior.SessionPattern pattern(String sessionId, long now) {
+            List<String> accessed = new ArrayList<>();
+            for (int i = 0; i < MAX_ENDPOINTS; i++) {
+                String endpoint = endpoints.get(i);
+                if (endpoint == null) break;
+                accessed.add(endpoint);
+            }
+            return UserBehavior.SessionPattern.builder()
+                    .sessionId(sessionId)
+                    .sessionStart(LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneId.systemDefault()))
+                    .sessionDuration(now - startMillis)
+                    .requestCount(requests.get())
+                    .accessedEndpoints(accessed)
+                    .isActive(true)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.thirdparty.user.request.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thirdparty.user.request.domain.UserBehavior;
+import com.thirdparty.user.request.repository.UserBehaviorRepository;
+import com.thirdparty.user.request.util.WriteAheadJournal;
+import com.thirdparty.user.request.util.WriteBehindBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Takes UserBehavior persistence off the request path. Behaviors are buffered
+ * and written with unordered bulk inserts, retried with backoff when the
+ * database refuses a batch; with the journal enabled they are also appended to
+ * local disk first and replayed on startup after a crash or a batch that ran
+ * out of retries. Set journal.required where losing behaviors is unacceptable.
+ */
+@Service
+@Slf4j
+public class UserBehaviorWriteBehindService {
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserBehaviorRepository userBehaviorRepository;
+    private final WriteBehindBuffer<UserBehavior> buffer;
+
+    public UserBehaviorWriteBehindService(
+            MongoTemplate mongoTemplate,
+            UserBehaviorRepository userBehaviorRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.behavior.write-behind.enabled:true}") boolean enabled,
+            @Value("${anomaly.behavior.write-behind.capacity:10000}") int capacity,
+            @Value("${anomaly.behavior.write-behind.batch-size:500}") int batchSize,
+            @Value("${anomaly.behavior.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${anomaly.behavior.write-behind.offer-timeout-ms:5}") long offerTimeoutMs,
+            @Value("${anomaly.behavior.write-behind.max-attempts:5}") int maxAttempts,
+            @Value("${anomaly.behavior.write-behind.retry-backoff-ms:500}") long retryBackoffMs,
+            @Value("${anomaly.behavior.write-behind.journal.enabled:false}") boolean journalEnabled,
+            @Value("${anomaly.behavior.write-behind.journal.directory:data/behavior-journal}") String journalDirectory,
+            @Value("${anomaly.behavior.write-behind.journal.fsync:false}") boolean journalFsync,
+            @Value("${anomaly.behavior.write-behind.journal.required:false}") boolean journalRequired
+    ) throws IOException {
+        this.mongoTemplate = mongoTemplate;
+        this.userBehaviorRepository = userBehaviorRepository;
+        if (!enabled) {
+            this.buffer = null;
+            return;
+        }
+        // Only the journal keeps a batch the database refused past its last retry
+        if (journalRequired && !journalEnabled) {
+            throw new IllegalStateException("anomaly.behavior.write-behind.journal.required is set "
+                    + "but anomaly.behavior.write-behind.journal.enabled is false");
+        }
+        WriteAheadJournal<UserBehavior> journal = null;
+        if (journalEnabled) {
+            journal = new WriteAheadJournal<>(Paths.get(journalDirectory), "user-behaviors",
+                    objectMapper, UserBehavior.class, journalFsync);
+            replay(journal);
+        }
+        this.buffer = new WriteBehindBuffer<>("user_behaviors", capacity, batchSize, flushIntervalMs,
+                offerTimeoutMs, maxAttempts, retryBackoffMs, this::insertBatch, journal, meterRegistry);
+    }
+
+    /**
+     * Persist a behavior asynchronously. Falls back to a synchronous save when
+     * the buffer is disabled or full, so backpressure slows callers down rather
+     * than losing behaviors.
+     */
+    public void submit(UserBehavior behavior) {
+        // An id before journaling lets a retry or replay recognise behaviors that were already stored
+        if (behavior.getId() == null) {
+            behavior.setId(UUID.randomUUID().toString());
+        }
+        if (buffer == null || !buffer.submit(behavior)) {
+            userBehaviorRepository.save(behavior);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private void insertBatch(List<UserBehavior> batch) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserBehavior.class)
+                    .insert(batch)
+                    .execute();
+        } catch (BulkOperationException e) {
+            // Replayed journal entries may already be stored; those ids are safe to skip
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+
+    private void replay(WriteAheadJournal<UserBehavior> journal) throws IOException {
+        for (Path segment : journal.sealedSegments()) {
+            List<UserBehavior> behaviors = journal.read(segment);
+            try {
+                if (!behaviors.isEmpty()) {
+                    insertBatch(behaviors);
+                }
+            } catch (RuntimeException e) {
+                log.error("Journal replay failed at {}, keeping remaining segments: {}",
+                        segment.getFileName(), e.getMessage());
+                return;
+            }
+            journal.delete(segment);
+            log.info("Replayed {} journaled user behaviors from {}", behaviors.size(), segment.getFileName());
+        }
+    }
+}
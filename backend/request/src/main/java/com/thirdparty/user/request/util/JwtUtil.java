@@ -17,11 +17,13 @@ import java.util.stream.Collectors;
 public class JwtUtil {
     private final Key key;
     private final long expirationMs;
+    private final JwtParser parser;
 
     public JwtUtil(@Value("${jwt.access.secret}") String secret,
                    @Value("${jwt.access.expiration}") long expirationMs) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String generateToken(String userId, List<String> roles) {
@@ -36,7 +38,7 @@ public class JwtUtil {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            parser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -44,19 +46,20 @@ public class JwtUtil {
     }
 
     public String extractUserId(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public String extractUsername(String token) {
         return extractClaim(token, key, Claims::getSubject);
     }
     public <T> T extractClaim(String token, Key key, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        JwtParser claimsParser = key == this.key ? parser : Jwts.parserBuilder().setSigningKey(key).build();
+        final Claims claims = claimsParser.parseClaimsJws(token).getBody();
         return claimsResolver.apply(claims);
     }
 
     public Collection<? extends GrantedAuthority> extractAuthorities(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        Claims claims = parser.parseClaimsJws(token).getBody();
         List<String> roles = claims.get("roles", List.class);
 
         return roles.stream()